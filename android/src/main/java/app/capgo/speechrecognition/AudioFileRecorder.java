@@ -0,0 +1,191 @@
+package app.capgo.speechrecognition;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams the PCM delivered by {@code onBufferReceived} to a WAV or raw file.
+ *
+ * <p>The buffers are written as delivered. The recognizer API does not describe their format, so they are assumed to
+ * be {@link #SAMPLE_RATE} Hz mono 16-bit little-endian PCM, which is what the stock recognizers deliver and what the
+ * WAV header declares.</p>
+ *
+ * <p>The recognizer thread only copies into a preallocated direct ring buffer and never touches the disk. A
+ * dedicated writer thread drains the ring into a {@link FileChannel}. Single producer, single consumer: the two
+ * positions are published through atomics and each side works on its own view of the ring. When the writer falls
+ * more than a ring behind, new audio is dropped and counted rather than blocking the producer.</p>
+ */
+public class AudioFileRecorder {
+
+    public static final int SAMPLE_RATE = 16000;
+    private static final int RING_CAPACITY = 256 * 1024;
+    private static final int WAV_HEADER_SIZE = 44;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final File file;
+    private final boolean wav;
+    private final ByteBuffer producerView;
+    private final ByteBuffer consumerView;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final Thread writer;
+    private volatile boolean closing;
+    private volatile long droppedBytes;
+    private volatile IOException failure;
+
+    public AudioFileRecorder(File file, boolean wav) {
+        this.file = file;
+        this.wav = wav;
+        ByteBuffer ring = ByteBuffer.allocateDirect(RING_CAPACITY);
+        this.producerView = ring.duplicate();
+        this.consumerView = ring.duplicate();
+        this.writer = new Thread(this::drain, "SpeechRecognition-AudioWriter");
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Copies {@code data} into the ring. Never blocks; drops the chunk when the ring is full.
+     */
+    public void write(byte[] data) {
+        if (closing || data == null || data.length == 0) {
+            return;
+        }
+
+        long write = writePosition.get();
+        long free = RING_CAPACITY - (write - readPosition.get());
+        if (data.length > free) {
+            droppedBytes += data.length;
+            return;
+        }
+
+        int position = (int) (write % RING_CAPACITY);
+        int first = Math.min(data.length, RING_CAPACITY - position);
+        producerView.clear();
+        producerView.position(position);
+        producerView.put(data, 0, first);
+        if (first < data.length) {
+            producerView.position(0);
+            producerView.put(data, first, data.length - first);
+        }
+        writePosition.set(write + data.length);
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Asks the writer to flush what is buffered and finalize the file. Does not wait; see {@link #awaitClosed(long)}.
+     */
+    public void close() {
+        closing = true;
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for the file to be finalized.
+     *
+     * @return {@code true} when the file is complete.
+     */
+    public boolean awaitClosed(long timeoutMs) {
+        try {
+            return closed.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    public IOException getFailure() {
+        return failure;
+    }
+
+    private void drain() {
+        long dataBytes = 0;
+        // RandomAccessFile rather than FileChannel.open(Path): java.nio.file needs API 26 and minSdk is 24.
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw"); FileChannel channel = output.getChannel()) {
+            output.setLength(0);
+            if (wav) {
+                writeFully(channel, wavHeader(0), 0);
+            }
+            long filePosition = wav ? WAV_HEADER_SIZE : 0;
+
+            while (true) {
+                long read = readPosition.get();
+                long write = writePosition.get();
+                if (read == write) {
+                    if (closing) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                int position = (int) (read % RING_CAPACITY);
+                int length = (int) Math.min(write - read, RING_CAPACITY - position);
+                consumerView.clear();
+                consumerView.position(position);
+                consumerView.limit(position + length);
+                filePosition += writeFully(channel, consumerView, filePosition);
+                dataBytes += length;
+                readPosition.set(read + length);
+            }
+
+            if (wav) {
+                writeFully(channel, wavHeader(dataBytes), 0);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            failure = ex;
+        } finally {
+            closing = true;
+            closed.countDown();
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            total += channel.write(buffer, position + total);
+        }
+        return total;
+    }
+
+    private static ByteBuffer wavHeader(long dataBytes) {
+        int channels = 1;
+        int bitsPerSample = 16;
+        int byteRate = SAMPLE_RATE * channels * bitsPerSample / 8;
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt((int) (36 + dataBytes));
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) channels);
+        header.putInt(SAMPLE_RATE);
+        header.putInt(byteRate);
+        header.putShort((short) (channels * bitsPerSample / 8));
+        header.putShort((short) bitsPerSample);
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt((int) dataBytes);
+        header.flip();
+        return header;
+    }
+}
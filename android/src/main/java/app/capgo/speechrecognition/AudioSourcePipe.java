@@ -0,0 +1,83 @@
+package app.capgo.speechrecognition;
+
+import android.os.ParcelFileDescriptor;
+import app.capgo.speechrecognition.core.AudioInput;
+import com.getcapacitor.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Feeds an {@link AudioInput} to the recognition service through a pipe passed as
+ * {@code RecognizerIntent.EXTRA_AUDIO_SOURCE}.
+ *
+ * <p>A dedicated thread copies the input into the write end. Pipe writes block while the service has not read what
+ * is buffered, so the copy runs at the speed the recognizer consumes audio and never holds more than the pipe
+ * buffer in memory. Reaching the end of the input closes the write end, which the service sees as end of audio.</p>
+ */
+public class AudioSourcePipe {
+
+    private static final String TAG = "SpeechRecognition";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final AudioInput input;
+    private final ParcelFileDescriptor source;
+    private final ParcelFileDescriptor sink;
+    private final Thread pump;
+    private volatile boolean closed;
+
+    public AudioSourcePipe(AudioInput input) throws IOException {
+        ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+        this.input = input;
+        this.source = pipe[0];
+        this.sink = pipe[1];
+        this.pump = new Thread(this::pump, "SpeechRecognition-AudioSource");
+    }
+
+    public void start() {
+        pump.start();
+    }
+
+    /**
+     * The read end, to pass as {@code EXTRA_AUDIO_SOURCE}.
+     */
+    public ParcelFileDescriptor getSource() {
+        return source;
+    }
+
+    /**
+     * Stops the copy and releases both ends of the pipe and the input. Safe to call more than once.
+     */
+    public void close() {
+        closed = true;
+        closeQuietly(sink);
+        closeQuietly(source);
+        try {
+            input.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void pump() {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream output = new ParcelFileDescriptor.AutoCloseOutputStream(sink)) {
+            int count;
+            while (!closed && (count = input.stream.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+        } catch (IOException ex) {
+            // Expected when the request is cancelled and the pipe is closed under the copy
+            if (!closed) {
+                Logger.warn(TAG, "Audio source copy failed: " + ex.getMessage());
+            }
+        } finally {
+            try {
+                input.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor descriptor) {
+        try {
+            descriptor.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -12,6 +12,37 @@ public interface Constants {
     String END_OF_SEGMENT_EVENT = "endOfSegmentedSession";
     String LISTENING_EVENT = "listeningState";
     String PARTIAL_RESULTS_EVENT = "partialResults";
+    String AUDIO_LEVEL_EVENT = "audioLevel";
+    String RESTART_EVENT = "recognitionRestarted";
+    String SESSION_METRICS_EVENT = "sessionMetrics";
+    String TRANSCRIPT_EVENT = "transcriptAppended";
+    String COMMAND_MATCHED_EVENT = "commandMatched";
+    String PROFILE_CHANGED_EVENT = "profileChanged";
+    int TRANSCRIPT_RETENTION_CHARS = 1_000_000;
+    long MAX_RESTART_DELAY_MS = 2000;
+    int AUDIO_LEVEL_FRAME_RATE = 15;
+    long RECORDING_CLOSE_TIMEOUT_MS = 2000;
+    String AUDIO_CHUNK_EVENT = "audioChunk";
+    int AUDIO_CHUNK_SIZE = 3200;
+    int AUDIO_CHUNK_WINDOW = 8;
+    int PRE_ROLL_MAX_MS = 2000;
+    int PRE_ROLL_HEADROOM_MS = 1000;
+    long PRE_ROLL_IDLE_TIMEOUT_MS = 30_000;
+    int STOP_FLUSH_TIMEOUT_MS = 1500;
     String RECORD_AUDIO_PERMISSION = Manifest.permission.RECORD_AUDIO;
     String LANGUAGE_ERROR = "Could not get list of languages";
+    String ON_DEVICE_NOT_AVAILABLE = "On-device speech recognition is not available.";
+    String RECOGNIZER_DISCARDED = "Recognizer was discarded before it was ready";
+    String UNKNOWN_ENGINE = "No recognition engine registered under the name: ";
+    String MODEL_DOWNLOAD_NOT_SUPPORTED = "Model downloads require Android 13 or newer.";
+    String MODEL_DOWNLOAD_EVENT = "modelDownloadProgress";
+    String FILE_TRANSCRIPTION_NOT_SUPPORTED = "File transcription requires Android 13 or newer.";
+    String TRANSCRIPTION_CANCELLED = "Transcription cancelled";
+    String DUPLICATE_TRANSCRIPTION = "A transcription is already queued with id: ";
+    String TRANSCRIPTION_PROGRESS_EVENT = "transcriptionProgress";
+    int FILE_SEGMENT_SILENCE_MS = 1000;
+    String CONFIG_INIT_STRATEGY = "initStrategy";
+    String CONFIG_LANGUAGE_CACHE_TTL = "languageCacheTtl";
+    int LANGUAGE_CACHE_TTL_MS = 24 * 60 * 60 * 1000;
+    String VOICE_RECOGNITION_SERVICE = "voice_recognition_service";
 }
@@ -0,0 +1,38 @@
+package app.capgo.speechrecognition;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import app.capgo.speechrecognition.core.EventDispatcher;
+
+/**
+ * Runs an {@link EventDispatcher} on the looper of {@code handler}, timed with {@link SystemClock#uptimeMillis()} as
+ * {@link Handler#postAtTime(Runnable, long)} expects.
+ */
+public class HandlerQueue implements EventDispatcher.Queue {
+
+    private final Handler handler;
+
+    public HandlerQueue(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public void post(Runnable task) {
+        handler.post(task);
+    }
+
+    @Override
+    public void postAtTime(Runnable task, long uptimeMillis) {
+        handler.postAtTime(task, uptimeMillis);
+    }
+
+    @Override
+    public void remove(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+}
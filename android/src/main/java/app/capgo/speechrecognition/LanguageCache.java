@@ -0,0 +1,72 @@
+package app.capgo.speechrecognition;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.getcapacitor.JSObject;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Persists the last supported-languages lookup so it survives process restarts.
+ *
+ * <p>Only one entry is kept. It is keyed by the recognizer package and the device locale list, so switching the
+ * recognition service or the system languages invalidates it, as does the TTL.</p>
+ */
+public class LanguageCache {
+
+    private static final String PREFERENCES_NAME = "CapgoSpeechRecognitionLanguages";
+    private static final String ENTRY = "entry";
+
+    private final SharedPreferences preferences;
+    private final long ttlMs;
+
+    /**
+     * @param ttlMs how long an entry stays valid, {@code 0} or less to disable persistence.
+     */
+    public LanguageCache(Context context, long ttlMs) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.ttlMs = ttlMs;
+    }
+
+    public static String key(String recognizerPackage, String localeTags) {
+        return recognizerPackage + "|" + localeTags;
+    }
+
+    /**
+     * @return the cached result for {@code key}, or {@code null} when missing, expired or unreadable.
+     */
+    public JSObject get(String key, long nowMs) {
+        if (ttlMs <= 0) {
+            return null;
+        }
+        String stored = preferences.getString(ENTRY, null);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            JSONObject entry = new JSONObject(stored);
+            long fetchedAt = entry.optLong("fetchedAt", 0);
+            if (!key.equals(entry.optString("key", null)) || nowMs - fetchedAt > ttlMs || nowMs < fetchedAt) {
+                return null;
+            }
+            JSONObject result = entry.optJSONObject("result");
+            return result == null ? null : JSObject.fromJSONObject(result);
+        } catch (JSONException ex) {
+            preferences.edit().remove(ENTRY).apply();
+            return null;
+        }
+    }
+
+    public void put(String key, JSObject result, long nowMs) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        try {
+            JSONObject entry = new JSONObject();
+            entry.put("key", key);
+            entry.put("fetchedAt", nowMs);
+            entry.put("result", result);
+            preferences.edit().putString(ENTRY, entry.toString()).apply();
+        } catch (JSONException ignored) {}
+    }
+}
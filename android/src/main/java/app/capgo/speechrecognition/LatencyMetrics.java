@@ -0,0 +1,93 @@
+package app.capgo.speechrecognition;
+
+import app.capgo.speechrecognition.core.LatencyHistogram;
+import app.capgo.speechrecognition.core.LatencyTimeline;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Aggregates the {@link LatencyTimeline} of every finished utterance into one histogram per span.
+ *
+ * <p>Only touched from the session actor, so no synchronization is needed.</p>
+ */
+public class LatencyMetrics {
+
+    private static final LatencyTimeline.Span[] SPANS = LatencyTimeline.Span.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[SPANS.length];
+    private long utterances;
+
+    public LatencyMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(LatencyTimeline timeline) {
+        utterances++;
+        for (LatencyTimeline.Span span : SPANS) {
+            long duration = timeline.duration(span);
+            if (duration >= 0) {
+                histograms[span.ordinal()].record(duration);
+            }
+        }
+    }
+
+    public LatencyHistogram getHistogram(LatencyTimeline.Span span) {
+        return histograms[span.ordinal()];
+    }
+
+    public void reset() {
+        utterances = 0;
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    public JSObject toJSObject() {
+        JSArray bounds = new JSArray();
+        for (long bound : LatencyHistogram.BUCKET_BOUNDS_MS) {
+            bounds.put(bound);
+        }
+        JSObject spans = new JSObject();
+        for (LatencyTimeline.Span span : SPANS) {
+            spans.put(span.getValue(), histogramToJSObject(histograms[span.ordinal()]));
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("utterances", utterances);
+        ret.put("bucketBoundsMs", bounds);
+        ret.put("latency", spans);
+        return ret;
+    }
+
+    /**
+     * Durations of a single utterance, in milliseconds. Spans that were not reached are omitted.
+     */
+    public static JSObject timelineToJSObject(LatencyTimeline timeline) {
+        JSObject ret = new JSObject();
+        for (LatencyTimeline.Span span : SPANS) {
+            long duration = timeline.duration(span);
+            if (duration >= 0) {
+                ret.put(span.getValue() + "Ms", duration / 1_000_000.0);
+            }
+        }
+        return ret;
+    }
+
+    private static JSObject histogramToJSObject(LatencyHistogram histogram) {
+        JSArray buckets = new JSArray();
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            buckets.put(histogram.getBucket(i));
+        }
+        JSObject ret = new JSObject();
+        ret.put("count", histogram.getCount());
+        ret.put("meanMs", histogram.getMeanMs());
+        ret.put("minMs", histogram.getMinMs());
+        ret.put("maxMs", histogram.getMaxMs());
+        ret.put("p50Ms", histogram.getPercentileMs(50));
+        ret.put("p95Ms", histogram.getPercentileMs(95));
+        ret.put("buckets", buckets);
+        return ret;
+    }
+}
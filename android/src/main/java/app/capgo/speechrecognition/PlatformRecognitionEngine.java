@@ -0,0 +1,303 @@
+package app.capgo.speechrecognition;
+
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioFormat;
+import android.os.Build;
+import android.os.Bundle;
+import android.speech.RecognitionListener;
+import android.speech.RecognitionSupportCallback;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import app.capgo.speechrecognition.core.AudioInput;
+import app.capgo.speechrecognition.core.RecognitionEngine;
+import app.capgo.speechrecognition.core.RecognitionRequest;
+import com.getcapacitor.Logger;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * {@link RecognitionEngine} backed by the platform {@link SpeechRecognizer}, either the default recognition service
+ * or the on-device recognizer (Android 12+).
+ *
+ * <p>{@link SpeechRecognizer} must be created and driven on the main thread, while the plugin calls engines on its
+ * session thread. Every recognizer call is therefore posted to {@code mainExecutor}, in call order, and each callback
+ * is moved back onto {@code sessionExecutor} before it reaches the {@link Listener}. The main thread only copies the
+ * hypotheses out of the callback bundles. Callbacks of a request that was cancelled or replaced in the meantime are
+ * dropped on arrival, as {@link #cancel()} promises.</p>
+ */
+public class PlatformRecognitionEngine implements RecognitionEngine {
+
+    private static final String TAG = "SpeechRecognition";
+
+    private final Executor mainExecutor;
+    private final Executor sessionExecutor;
+    private final String callingPackage;
+    private final boolean onDevice;
+    /** Only touched on the main thread; {@code null} when it could not be created or once destroyed. */
+    private SpeechRecognizer recognizer;
+    /** Request the recognizer is running, as seen on the main thread. */
+    private int mainGeneration;
+    /** Current request on the session thread; bumped by each start, cancel and destroy. */
+    private int generation;
+    private Listener listener;
+    private AudioSourcePipe audioSource;
+
+    public PlatformRecognitionEngine(
+        final Context context,
+        boolean onDevice,
+        Executor mainExecutor,
+        Executor sessionExecutor
+    ) {
+        this.onDevice = onDevice && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S;
+        this.mainExecutor = mainExecutor;
+        this.sessionExecutor = sessionExecutor;
+        this.callingPackage = context.getPackageName();
+        mainExecutor.execute(() -> {
+            try {
+                recognizer = this.onDevice
+                    ? SpeechRecognizer.createOnDeviceSpeechRecognizer(context)
+                    : SpeechRecognizer.createSpeechRecognizer(context);
+                recognizer.setRecognitionListener(new ListenerAdapter());
+            } catch (RuntimeException ex) {
+                Logger.error(TAG, "Unable to create SpeechRecognizer: " + ex.getMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Builds the recognizer intent for {@code request}, also used to launch the system recognition popup.
+     */
+    public static Intent createIntent(RecognitionRequest request, String callingPackage) {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, request.language);
+        intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, request.maxResults);
+        intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, callingPackage);
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, request.partialResults);
+        intent.putExtra("android.speech.extra.DICTATION_MODE", request.partialResults);
+
+        if (request.isSegmented()) {
+            intent.putExtra(RecognizerIntent.EXTRA_SEGMENTED_SESSION, true);
+            intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_COMPLETE_SILENCE_LENGTH_MILLIS, request.allowForSilence);
+            intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_POSSIBLY_COMPLETE_SILENCE_LENGTH_MILLIS, request.allowForSilence);
+        }
+
+        if (request.prompt != null) {
+            intent.putExtra(RecognizerIntent.EXTRA_PROMPT, request.prompt);
+        }
+
+        if (request.preferOffline) {
+            intent.putExtra(RecognizerIntent.EXTRA_PREFER_OFFLINE, true);
+        }
+        return intent;
+    }
+
+    public boolean isOnDevice() {
+        return onDevice;
+    }
+
+    /**
+     * Reports on {@code executor} whether the recognizer could be created, once the main thread has tried. Creation
+     * is posted by the constructor, so this is when the engine is ready for requests.
+     */
+    public void whenCreated(Executor executor, Consumer<Boolean> callback) {
+        mainExecutor.execute(() -> {
+            final boolean created = recognizer != null;
+            executor.execute(() -> callback.accept(created));
+        });
+    }
+
+    /**
+     * Queries the recognition service (Android 13+), which also binds it ahead of the first request. {@code callback}
+     * runs on {@code executor}; a query that cannot be sent reports {@link SpeechRecognizer#ERROR_CLIENT}.
+     */
+    public void checkRecognitionSupport(Intent intent, Executor executor, RecognitionSupportCallback callback) {
+        mainExecutor.execute(() -> {
+            try {
+                if (recognizer == null) {
+                    throw new IllegalStateException("SpeechRecognizer not available");
+                }
+                recognizer.checkRecognitionSupport(intent, executor, callback);
+            } catch (RuntimeException ex) {
+                Logger.warn(TAG, "Unable to query recognition support: " + ex.getMessage());
+                executor.execute(() -> callback.onError(SpeechRecognizer.ERROR_CLIENT));
+            }
+        });
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts a request. A request with an {@link AudioInput} is recognized from that audio instead of the microphone,
+     * which needs Android 13+.
+     */
+    @Override
+    public void startListening(RecognitionRequest request) {
+        closeAudioSource();
+        Intent intent = createIntent(request, callingPackage);
+        if (request.audioInput != null) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+                throw new UnsupportedOperationException("Audio sources require Android 13 or newer");
+            }
+            AudioInput input = request.audioInput;
+            try {
+                audioSource = new AudioSourcePipe(input);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to open audio source pipe", ex);
+            }
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE, audioSource.getSource());
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_CHANNEL_COUNT, input.channelCount);
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_ENCODING, AudioFormat.ENCODING_PCM_16BIT);
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_SAMPLING_RATE, input.sampleRate);
+            audioSource.start();
+        }
+        final int started = ++generation;
+        mainExecutor.execute(() -> {
+            mainGeneration = started;
+            try {
+                if (recognizer == null) {
+                    throw new IllegalStateException("SpeechRecognizer not available");
+                }
+                recognizer.startListening(intent);
+            } catch (RuntimeException ex) {
+                Logger.error(TAG, "Unable to start listening: " + ex.getMessage(), ex);
+                deliver(started, listener -> {
+                    closeAudioSource();
+                    listener.onError(SpeechRecognizer.ERROR_CLIENT);
+                });
+            }
+        });
+    }
+
+    @Override
+    public void stopListening() {
+        mainExecutor.execute(() -> {
+            if (recognizer != null) {
+                recognizer.stopListening();
+            }
+        });
+    }
+
+    @Override
+    public void cancel() {
+        generation++;
+        closeAudioSource();
+        mainExecutor.execute(() -> {
+            if (recognizer != null) {
+                recognizer.cancel();
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        generation++;
+        closeAudioSource();
+        mainExecutor.execute(() -> {
+            if (recognizer != null) {
+                recognizer.destroy();
+                recognizer = null;
+            }
+        });
+    }
+
+    private void closeAudioSource() {
+        if (audioSource != null) {
+            audioSource.close();
+            audioSource = null;
+        }
+    }
+
+    /**
+     * Runs {@code callback} on the session thread if the request it belongs to is still the current one.
+     */
+    private void deliver(final int requestGeneration, final Consumer<Listener> callback) {
+        sessionExecutor.execute(() -> {
+            if (requestGeneration == generation && listener != null) {
+                callback.accept(listener);
+            }
+        });
+    }
+
+    private static List<String> matches(Bundle bundle) {
+        return bundle == null ? null : bundle.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+    }
+
+    /**
+     * Registered once on the main thread; forwards each callback to the session thread, tagged with the request the
+     * recognizer was running when it fired.
+     */
+    private final class ListenerAdapter implements RecognitionListener {
+
+        @Override
+        public void onReadyForSpeech(Bundle params) {
+            deliver(mainGeneration, Listener::onReadyForSpeech);
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            deliver(mainGeneration, Listener::onBeginningOfSpeech);
+        }
+
+        @Override
+        public void onRmsChanged(final float rmsdB) {
+            deliver(mainGeneration, listener -> listener.onRmsChanged(rmsdB));
+        }
+
+        @Override
+        public void onBufferReceived(final byte[] buffer) {
+            deliver(mainGeneration, listener -> listener.onBufferReceived(buffer));
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            deliver(mainGeneration, Listener::onEndOfSpeech);
+        }
+
+        @Override
+        public void onError(final int error) {
+            deliver(mainGeneration, listener -> {
+                closeAudioSource();
+                listener.onError(error);
+            });
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            final List<String> matches = matches(results);
+            deliver(mainGeneration, listener -> {
+                closeAudioSource();
+                listener.onResults(matches);
+            });
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            final List<String> matches = matches(partialResults);
+            deliver(mainGeneration, listener -> listener.onPartialResults(matches));
+        }
+
+        @Override
+        public void onSegmentResults(Bundle results) {
+            final List<String> matches = matches(results);
+            deliver(mainGeneration, listener -> listener.onSegmentResults(matches));
+        }
+
+        @Override
+        public void onEndOfSegmentedSession() {
+            deliver(mainGeneration, listener -> {
+                closeAudioSource();
+                listener.onEndOfSegmentedSession();
+            });
+        }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) {}
+    }
+}
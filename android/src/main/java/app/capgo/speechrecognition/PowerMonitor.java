@@ -0,0 +1,117 @@
+package app.capgo.speechrecognition;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+import app.capgo.speechrecognition.core.PowerProfile;
+import java.util.concurrent.Executor;
+
+/**
+ * Watches the thermal status (Android 10+) and battery saver and reports the {@link PowerProfile} they call for.
+ *
+ * <p>The callback runs on {@code executor} and only when the profile changes. Devices without a thermal HAL report
+ * {@code THERMAL_STATUS_NONE}, so battery saver alone drives the profile there.</p>
+ */
+public class PowerMonitor {
+
+    public interface Callback {
+        void onProfileChanged(PowerProfile profile, int thermalStatus, boolean powerSave);
+    }
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final Executor executor;
+    private final Callback callback;
+    private final BroadcastReceiver powerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            update();
+        }
+    };
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+    private PowerProfile profile = PowerProfile.NORMAL;
+    private int thermalStatus;
+    private boolean powerSave;
+    private boolean started;
+
+    public PowerMonitor(Context context, Executor executor, Callback callback) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.executor = executor;
+        this.callback = callback;
+    }
+
+    /**
+     * Starts watching and returns the current profile, without invoking the callback for it.
+     */
+    public synchronized PowerProfile start() {
+        if (!started && powerManager != null) {
+            started = true;
+            context.registerReceiver(powerSaveReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                thermalListener = status -> update();
+                powerManager.addThermalStatusListener(executor, thermalListener);
+            }
+            readState();
+        }
+        return profile;
+    }
+
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        try {
+            context.unregisterReceiver(powerSaveReceiver);
+        } catch (IllegalArgumentException ignored) {}
+        if (thermalListener != null) {
+            powerManager.removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
+        profile = PowerProfile.NORMAL;
+    }
+
+    public synchronized PowerProfile getProfile() {
+        return profile;
+    }
+
+    public synchronized int getThermalStatus() {
+        return thermalStatus;
+    }
+
+    public synchronized boolean isPowerSave() {
+        return powerSave;
+    }
+
+    private void update() {
+        final PowerProfile changed;
+        final int status;
+        final boolean saver;
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            PowerProfile previous = profile;
+            readState();
+            if (profile == previous) {
+                return;
+            }
+            changed = profile;
+            status = thermalStatus;
+            saver = powerSave;
+        }
+        executor.execute(() -> callback.onProfileChanged(changed, status, saver));
+    }
+
+    private void readState() {
+        thermalStatus = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+            ? powerManager.getCurrentThermalStatus()
+            : PowerManager.THERMAL_STATUS_NONE;
+        powerSave = powerManager.isPowerSaveMode();
+        profile = PowerProfile.select(thermalStatus, powerSave);
+    }
+}
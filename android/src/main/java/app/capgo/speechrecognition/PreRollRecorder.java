@@ -0,0 +1,137 @@
+package app.capgo.speechrecognition;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Process;
+import app.capgo.speechrecognition.core.AudioInput;
+import app.capgo.speechrecognition.core.PreRollBuffer;
+import com.getcapacitor.Logger;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the microphone open between sessions and records it into a {@link PreRollBuffer}, so each session can be
+ * fed audio that starts before it was requested.
+ *
+ * <p>While it runs the plugin owns the microphone, and the recognizer hears it through
+ * {@code EXTRA_AUDIO_SOURCE} (Android 13+): {@link #openInput(int)} returns the last few hundred milliseconds
+ * followed by live audio. Capture runs on a dedicated thread reading 20 ms frames into one preallocated buffer.</p>
+ *
+ * <p>When the microphone cannot be opened or fails, capture stops but open inputs are left waiting rather than
+ * ended, since an ended input reads as the end of the utterance. The failure listener decides what becomes of the
+ * utterance and then calls {@link #stop()}.</p>
+ */
+public class PreRollRecorder {
+
+    private static final String TAG = "SpeechRecognition";
+    public static final int SAMPLE_RATE = AudioFileRecorder.SAMPLE_RATE;
+    private static final int FRAME_BYTES = SAMPLE_RATE * 20 / 1000 * 2;
+
+    private final PreRollBuffer buffer;
+    private final Thread thread;
+    private final Consumer<PreRollRecorder> onFailure;
+    private volatile boolean running;
+
+    /**
+     * @param onFailure runs on the capture thread when the microphone could not be opened or failed.
+     */
+    public PreRollRecorder(int capacityMs, Consumer<PreRollRecorder> onFailure) {
+        this.buffer = new PreRollBuffer(toBytes(capacityMs));
+        this.onFailure = onFailure;
+        this.thread = new Thread(this::run, "SpeechRecognition-PreRoll");
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Releases the microphone shortly after. Open inputs end once they have returned what was captured.
+     */
+    public void stop() {
+        running = false;
+        buffer.close();
+    }
+
+    /**
+     * Whether the microphone is being captured. Turns {@code false} when it could not be opened or failed.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Audio starting {@code preRollMs} in the past and following the microphone until closed or {@link #stop()}.
+     */
+    public AudioInput openInput(int preRollMs) {
+        return new AudioInput(buffer.openStream(toBytes(preRollMs)), SAMPLE_RATE, 1, -1);
+    }
+
+    /**
+     * Marks the end of speech of the utterance being recognized, so the audio its input still returns is kept as
+     * pre-roll for the next one.
+     */
+    public void markEndOfSpeech() {
+        buffer.markEndOfSpeech();
+    }
+
+    public long getOverrunBytes() {
+        return buffer.getOverrunBytes();
+    }
+
+    private static int toBytes(int millis) {
+        return (int) ((long) millis * SAMPLE_RATE / 1000) * 2;
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record;
+        try {
+            record = new AudioRecord(
+                MediaRecorder.AudioSource.VOICE_RECOGNITION,
+                SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(minBuffer, FRAME_BYTES * 4)
+            );
+        } catch (RuntimeException ex) {
+            fail("Unable to open the microphone: " + ex.getMessage());
+            return;
+        }
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            fail("Unable to open the microphone");
+            return;
+        }
+
+        byte[] frame = new byte[FRAME_BYTES];
+        try {
+            record.startRecording();
+            while (running) {
+                int read = record.read(frame, 0, FRAME_BYTES);
+                if (read < 0) {
+                    fail("Microphone read failed: " + read);
+                    break;
+                }
+                buffer.write(frame, 0, read);
+            }
+        } catch (RuntimeException ex) {
+            fail("Microphone capture failed: " + ex.getMessage());
+        } finally {
+            try {
+                record.stop();
+            } catch (RuntimeException ignored) {}
+            record.release();
+        }
+    }
+
+    private void fail(String message) {
+        if (running) {
+            Logger.warn(TAG, message);
+            running = false;
+            onFailure.accept(this);
+        }
+    }
+}
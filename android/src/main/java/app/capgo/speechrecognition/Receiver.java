@@ -5,20 +5,26 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.speech.RecognizerIntent;
-import com.getcapacitor.JSArray;
-import com.getcapacitor.JSObject;
-import com.getcapacitor.PluginCall;
 import java.util.List;
 
 public class Receiver extends BroadcastReceiver implements Constants {
 
+    /**
+     * Receives the outcome of one {@link RecognizerIntent#ACTION_GET_LANGUAGE_DETAILS} broadcast.
+     */
+    public interface Callback {
+        void onLanguages(List<String> languages);
+
+        void onFailure(String message);
+    }
+
     private List<String> supportedLanguagesList;
     private String languagePref;
-    private final PluginCall call;
+    private final Callback callback;
 
-    public Receiver(PluginCall call) {
+    public Receiver(Callback callback) {
         super();
-        this.call = call;
+        this.callback = callback;
     }
 
     @Override
@@ -31,13 +37,11 @@ public class Receiver extends BroadcastReceiver implements Constants {
 
         if (extras.containsKey(RecognizerIntent.EXTRA_SUPPORTED_LANGUAGES)) {
             supportedLanguagesList = extras.getStringArrayList(RecognizerIntent.EXTRA_SUPPORTED_LANGUAGES);
-
-            JSArray languagesList = new JSArray(supportedLanguagesList);
-            call.resolve(new JSObject().put("languages", languagesList));
+            callback.onLanguages(supportedLanguagesList);
             return;
         }
 
-        call.reject(LANGUAGE_ERROR);
+        callback.onFailure(LANGUAGE_ERROR);
     }
 
     public List<String> getSupportedLanguages() {
@@ -0,0 +1,175 @@
+package app.capgo.speechrecognition;
+
+import app.capgo.speechrecognition.core.EngineMode;
+import app.capgo.speechrecognition.core.RecognitionRequest;
+import app.capgo.speechrecognition.core.RestartPolicy;
+import app.capgo.speechrecognition.core.TextRewriter;
+import app.capgo.speechrecognition.core.VoiceActivityDetector;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONArray;
+
+/**
+ * Options accepted by {@code start()}, read once from the {@link PluginCall}.
+ */
+public class RecognitionOptions implements Constants {
+
+    public static final String ENCODING_FULL = "full";
+    public static final String ENCODING_DELTA = "delta";
+
+    final String language;
+    final int maxResults;
+    final String prompt;
+    final boolean partialResults;
+    final boolean popup;
+    final int allowForSilence;
+    final boolean deltaPartialResults;
+    final Map<String, Integer> eventRateLimits = new HashMap<>();
+    final boolean audioLevel;
+    final int audioLevelFrameRate;
+    final boolean recordAudio;
+    final boolean recordAudioAsWav;
+    final boolean audioChunks;
+    final int audioChunkSize;
+    final int audioChunkWindow;
+    final boolean continuous;
+    final long restartDelay;
+    final long maxRestartDelay;
+    final int maxRestarts;
+    final String engineName;
+    /** The built-in engine mode, or {@code null} when {@link #engineName} names a registered engine. */
+    final EngineMode engine;
+    final boolean sessionMetrics;
+    final boolean waitForSpeech;
+    final long waitForSpeechTimeout;
+    final float speechSensitivity;
+    final long transcriptRetention;
+    final boolean recordTrace;
+    final boolean adaptiveProfile;
+    /** Milliseconds of audio from before the session to recognize, {@code 0} to listen from the start. */
+    final int preRoll;
+    /** Compiled {@code postProcessing} rules, or {@code null} when none are set. */
+    final TextRewriter textRewriter;
+
+    private RecognitionOptions(PluginCall call) {
+        language = call.getString("language", Locale.getDefault().toString());
+        maxResults = call.getInt("maxResults", MAX_RESULTS);
+        prompt = call.getString("prompt", null);
+        partialResults = call.getBoolean("partialResults", false);
+        popup = call.getBoolean("popup", false);
+        allowForSilence = call.getInt("allowForSilence", 0);
+        deltaPartialResults = ENCODING_DELTA.equals(call.getString("partialResultsEncoding", ENCODING_FULL));
+        audioLevel = call.getBoolean("audioLevel", false);
+        audioLevelFrameRate = Math.max(1, call.getInt("audioLevelFrameRate", AUDIO_LEVEL_FRAME_RATE));
+        recordAudio = call.getBoolean("recordAudio", false);
+        recordAudioAsWav = !"raw".equals(call.getString("recordAudioFormat", "wav"));
+        audioChunks = call.getBoolean("audioChunks", false);
+        audioChunkSize = Math.max(2, call.getInt("audioChunkSize", AUDIO_CHUNK_SIZE));
+        audioChunkWindow = Math.max(1, call.getInt("audioChunkWindow", AUDIO_CHUNK_WINDOW));
+        continuous = call.getBoolean("continuous", false) && !popup;
+        restartDelay = Math.max(0, call.getInt("restartDelay", 0));
+        maxRestartDelay = Math.max(restartDelay, call.getInt("maxRestartDelay", (int) MAX_RESTART_DELAY_MS));
+        maxRestarts = call.getInt("maxRestarts", 0);
+        engineName = call.getString("engine", EngineMode.DEFAULT.getValue());
+        engine = EngineMode.find(engineName);
+        sessionMetrics = call.getBoolean("sessionMetrics", false);
+        waitForSpeech = call.getBoolean("waitForSpeech", false) && !popup;
+        waitForSpeechTimeout = Math.max(0, call.getInt("waitForSpeechTimeout", 0));
+        speechSensitivity = call.getFloat("speechSensitivity", VoiceActivityDetector.DEFAULT_SENSITIVITY);
+        transcriptRetention = call.getInt("transcriptRetention", TRANSCRIPT_RETENTION_CHARS);
+        recordTrace = call.getBoolean("recordTrace", false) && !popup;
+        adaptiveProfile = call.getBoolean("adaptiveProfile", false) && !popup;
+        preRoll = Math.max(0, Math.min(PRE_ROLL_MAX_MS, call.getInt("preRoll", 0)));
+        textRewriter = compileRewriter(call.getObject("postProcessing", null));
+
+        JSObject rateLimits = call.getObject("eventRateLimits", null);
+        if (rateLimits != null) {
+            Iterator<String> events = rateLimits.keys();
+            while (events.hasNext()) {
+                String event = events.next();
+                eventRateLimits.put(event, rateLimits.getInteger(event, 0));
+            }
+        }
+    }
+
+    private static TextRewriter compileRewriter(JSObject config) {
+        if (config == null) {
+            return null;
+        }
+        TextRewriter.Builder builder = new TextRewriter.Builder()
+            .setCaseSensitive(config.getBoolean("caseSensitive", false))
+            .setNormalizeNumbers(config.getBoolean("normalizeNumbers", false));
+        String maskCharacter = config.getString("maskCharacter", null);
+        if (maskCharacter != null && !maskCharacter.isEmpty()) {
+            builder.setMaskChar(maskCharacter.charAt(0));
+        }
+        JSObject replacements = config.getJSObject("replacements");
+        if (replacements != null) {
+            Iterator<String> patterns = replacements.keys();
+            while (patterns.hasNext()) {
+                String pattern = patterns.next();
+                builder.replace(pattern, replacements.optString(pattern, ""));
+            }
+        }
+        JSONArray mask = config.optJSONArray("mask");
+        if (mask != null) {
+            for (int i = 0; i < mask.length(); i++) {
+                builder.mask(mask.optString(i, null));
+            }
+        }
+        TextRewriter rewriter = builder.build();
+        return rewriter.getPatternCount() > 0 ? rewriter : null;
+    }
+
+    /**
+     * Whether {@code start()} resolves as soon as listening begins, with results streamed through events.
+     */
+    boolean resolvesImmediately() {
+        return partialResults || continuous;
+    }
+
+    RestartPolicy createRestartPolicy() {
+        return continuous ? new RestartPolicy(restartDelay, maxRestartDelay, maxRestarts) : null;
+    }
+
+    RecognitionRequest toRequest(boolean preferOffline) {
+        return new RecognitionRequest.Builder()
+            .setLanguage(language)
+            .setMaxResults(maxResults)
+            .setPartialResults(partialResults)
+            .setPrompt(prompt)
+            .setAllowForSilence(allowForSilence)
+            .setPreferOffline(preferOffline)
+            .build();
+    }
+
+    static RecognitionOptions fromCall(PluginCall call) {
+        return new RecognitionOptions(call);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "lang=%s maxResults=%d partial=%s encoding=%s popup=%s allowForSilence=%d rateLimits=%s audioLevel=%s recordAudio=%s audioChunks=%s continuous=%s engine=%s waitForSpeech=%s adaptive=%s preRoll=%d",
+            language,
+            maxResults,
+            partialResults,
+            deltaPartialResults ? ENCODING_DELTA : ENCODING_FULL,
+            popup,
+            allowForSilence,
+            eventRateLimits,
+            audioLevel ? audioLevelFrameRate + "fps" : "off",
+            recordAudio ? (recordAudioAsWav ? "wav" : "raw") : "off",
+            audioChunks ? audioChunkSize + "x" + audioChunkWindow : "off",
+            continuous,
+            engineName,
+            waitForSpeech,
+            adaptiveProfile,
+            preRoll
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package app.capgo.speechrecognition;
+
+import app.capgo.speechrecognition.core.ErrorRecovery;
+import com.getcapacitor.JSObject;
+
+/**
+ * Counts how recognizer errors were recovered and how long recreating the recognizer took afterwards.
+ *
+ * <p>Only touched from the session actor, so no synchronization is needed.</p>
+ */
+public class RecoveryStats {
+
+    private final int[] counts = new int[ErrorRecovery.values().length];
+    private int recreations;
+    private long totalRecreateNanos;
+    private long maxRecreateNanos;
+    private long lastRecreateNanos;
+
+    public void recordError(ErrorRecovery recovery) {
+        counts[recovery.ordinal()]++;
+    }
+
+    /**
+     * Records the time from creating a replacement recognizer to it being usable again.
+     */
+    public void recordRecreation(long nanos) {
+        recreations++;
+        totalRecreateNanos += nanos;
+        lastRecreateNanos = nanos;
+        maxRecreateNanos = Math.max(maxRecreateNanos, nanos);
+    }
+
+    public int getCount(ErrorRecovery recovery) {
+        return counts[recovery.ordinal()];
+    }
+
+    public int getRecreations() {
+        return recreations;
+    }
+
+    public JSObject toJSObject() {
+        JSObject ret = new JSObject();
+        for (ErrorRecovery recovery : ErrorRecovery.values()) {
+            ret.put(recovery.getValue(), counts[recovery.ordinal()]);
+        }
+        ret.put("recreations", recreations);
+        ret.put("lastRecreateMs", lastRecreateNanos / 1_000_000.0);
+        ret.put("averageRecreateMs", recreations == 0 ? 0 : totalRecreateNanos / (double) recreations / 1_000_000.0);
+        ret.put("maxRecreateMs", maxRecreateNanos / 1_000_000.0);
+        return ret;
+    }
+}
@@ -0,0 +1,91 @@
+package app.capgo.speechrecognition;
+
+import android.os.Handler;
+import android.os.Looper;
+import app.capgo.speechrecognition.core.SessionCalls;
+import app.capgo.speechrecognition.core.SessionState;
+import com.getcapacitor.Logger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serializes every session operation onto a single looper (an actor) and publishes the current
+ * {@link SessionState} atomically so any thread can read it without locking.
+ *
+ * <p>The actor runs on the plugin's own session thread, so result handling never competes with the UI. Plugin calls
+ * hop onto it through {@link #execute(Runnable)}; {@link PlatformRecognitionEngine} posts its
+ * {@link android.speech.SpeechRecognizer} calls to the main thread, as the platform requires, and moves the callbacks
+ * back here. Only code running on the actor may call {@link #moveTo(SessionState)}.</p>
+ */
+public class SessionStateMachine implements SessionCalls.Scheduler {
+
+    private static final String TAG = "SpeechRecognition";
+
+    private final Handler handler;
+    private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.IDLE);
+    private Runnable idleListener;
+
+    public SessionStateMachine(Looper looper) {
+        this.handler = new Handler(looper);
+    }
+
+    /**
+     * Queues {@code listener} on the actor each time the session becomes {@link SessionState#IDLE}, so it runs after
+     * the action that ended the session.
+     */
+    public void setIdleListener(Runnable listener) {
+        this.idleListener = listener;
+    }
+
+    public SessionState getState() {
+        return state.get();
+    }
+
+    public boolean isListening() {
+        return state.get().isListening();
+    }
+
+    /**
+     * Queues {@code action} on the actor. Actions run one at a time in submission order.
+     */
+    public void execute(Runnable action) {
+        handler.post(action);
+    }
+
+    /**
+     * Queues {@code action} on the actor after {@code delayMs}.
+     */
+    @Override
+    public void executeDelayed(Runnable action, long delayMs) {
+        handler.postDelayed(action, delayMs);
+    }
+
+    /**
+     * Removes {@code action} if it has not run yet.
+     */
+    @Override
+    public void cancel(Runnable action) {
+        handler.removeCallbacks(action);
+    }
+
+    /**
+     * Moves to {@code next} if the transition is allowed.
+     *
+     * @return {@code false} when the transition was rejected and the state is unchanged.
+     */
+    public boolean moveTo(SessionState next) {
+        SessionState current = state.get();
+        if (current == next) {
+            return true;
+        }
+        if (!current.canTransitionTo(next)) {
+            Logger.debug(TAG, "Ignoring session transition " + current.getValue() + " -> " + next.getValue());
+            return false;
+        }
+        state.set(next);
+        Logger.debug(TAG, "Session " + current.getValue() + " -> " + next.getValue());
+        if (next == SessionState.IDLE && idleListener != null) {
+            handler.post(idleListener);
+        }
+        return true;
+    }
+}
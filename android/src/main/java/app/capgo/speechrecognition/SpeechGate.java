@@ -0,0 +1,128 @@
+package app.capgo.speechrecognition;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Process;
+import android.os.SystemClock;
+import app.capgo.speechrecognition.core.VoiceActivityDetector;
+
+/**
+ * Listens to the microphone with a {@link VoiceActivityDetector} until someone speaks, so a recognizer session is
+ * only opened when there is speech to recognize.
+ *
+ * <p>Capture runs on a dedicated thread reading 20 ms frames into one preallocated buffer; the loop allocates
+ * nothing. The microphone is released before the {@link Callback} fires, so the recognizer can open it right away.
+ * The callback runs on the capture thread.</p>
+ */
+public class SpeechGate {
+
+    public interface Callback {
+        void onSpeech(SpeechGate gate);
+
+        void onTimeout(SpeechGate gate);
+
+        void onFailure(SpeechGate gate, String message);
+    }
+
+    private static final int SAMPLE_RATE = AudioFileRecorder.SAMPLE_RATE;
+    private static final int FRAME_MILLIS = 20;
+    private static final int FRAME_SAMPLES = SAMPLE_RATE * FRAME_MILLIS / 1000;
+
+    private final VoiceActivityDetector detector;
+    private final long timeoutMs;
+    private final Callback callback;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * @param timeoutMs how long to wait for speech before {@link Callback#onTimeout(SpeechGate)}; {@code 0} waits until
+     *     {@link #stop()}.
+     */
+    public SpeechGate(float sensitivity, long timeoutMs, Callback callback) {
+        this.detector = new VoiceActivityDetector(FRAME_MILLIS, sensitivity);
+        this.timeoutMs = timeoutMs;
+        this.callback = callback;
+        this.thread = new Thread(this::run, "SpeechRecognition-SpeechGate");
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops waiting without invoking the callback and releases the microphone shortly after.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record;
+        try {
+            record = new AudioRecord(
+                MediaRecorder.AudioSource.VOICE_RECOGNITION,
+                SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(minBuffer, FRAME_SAMPLES * 2 * 4)
+            );
+        } catch (RuntimeException ex) {
+            fail("Unable to open the microphone: " + ex.getMessage());
+            return;
+        }
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            fail("Unable to open the microphone");
+            return;
+        }
+
+        short[] frame = new short[FRAME_SAMPLES];
+        long deadline = timeoutMs > 0 ? SystemClock.elapsedRealtime() + timeoutMs : Long.MAX_VALUE;
+        boolean speech = false;
+        String failure = null;
+        try {
+            record.startRecording();
+            while (!stopped) {
+                int read = record.read(frame, 0, FRAME_SAMPLES);
+                if (read < 0) {
+                    failure = "Microphone read failed: " + read;
+                    break;
+                }
+                if (detector.process(frame, 0, read)) {
+                    speech = true;
+                    break;
+                }
+                if (SystemClock.elapsedRealtime() >= deadline) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            failure = "Microphone capture failed: " + ex.getMessage();
+        } finally {
+            try {
+                record.stop();
+            } catch (RuntimeException ignored) {}
+            record.release();
+        }
+
+        if (stopped) {
+            return;
+        }
+        if (failure != null) {
+            fail(failure);
+        } else if (speech) {
+            callback.onSpeech(this);
+        } else {
+            callback.onTimeout(this);
+        }
+    }
+
+    private void fail(String message) {
+        if (!stopped) {
+            callback.onFailure(this, message);
+        }
+    }
+}
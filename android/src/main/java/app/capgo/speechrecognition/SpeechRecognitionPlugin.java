@@ -3,12 +3,46 @@ package app.capgo.speechrecognition;
 import android.Manifest;
 import android.app.Activity;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Build;
-import android.os.Bundle;
-import android.speech.RecognitionListener;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.LocaleList;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.speech.ModelDownloadListener;
+import android.speech.RecognitionSupport;
+import android.speech.RecognitionSupportCallback;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
+import android.util.Base64;
 import androidx.activity.result.ActivityResult;
+import androidx.core.content.ContextCompat;
+import app.capgo.speechrecognition.core.AudioChunker;
+import app.capgo.speechrecognition.core.AudioInput;
+import app.capgo.speechrecognition.core.AudioLevelMeter;
+import app.capgo.speechrecognition.core.CommandMatcher;
+import app.capgo.speechrecognition.core.EngineMode;
+import app.capgo.speechrecognition.core.ErrorRecovery;
+import app.capgo.speechrecognition.core.EventDispatcher;
+import app.capgo.speechrecognition.core.InitStrategy;
+import app.capgo.speechrecognition.core.LatencyTimeline;
+import app.capgo.speechrecognition.core.PartialResultsEncoder;
+import app.capgo.speechrecognition.core.PowerProfile;
+import app.capgo.speechrecognition.core.ProgressInputStream;
+import app.capgo.speechrecognition.core.RecognitionEngine;
+import app.capgo.speechrecognition.core.RecognitionErrors;
+import app.capgo.speechrecognition.core.RecognitionRequest;
+import app.capgo.speechrecognition.core.RecognitionTrace;
+import app.capgo.speechrecognition.core.RestartPolicy;
+import app.capgo.speechrecognition.core.SessionCalls;
+import app.capgo.speechrecognition.core.SessionController;
+import app.capgo.speechrecognition.core.SessionState;
+import app.capgo.speechrecognition.core.TextRewriter;
+import app.capgo.speechrecognition.core.TranscriptAssembler;
+import app.capgo.speechrecognition.core.TranscriptionQueue;
+import app.capgo.speechrecognition.core.WavHeader;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Logger;
@@ -20,10 +54,29 @@ import com.getcapacitor.annotation.ActivityCallback;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.json.JSONArray;
 
 @CapacitorPlugin(
@@ -35,24 +88,179 @@ public class SpeechRecognitionPlugin extends Plugin implements Constants {
     public static final String SPEECH_RECOGNITION = "speechRecognition";
     private static final String TAG = "SpeechRecognition";
     private static final String PLUGIN_VERSION = "7.0.0";
+    private static final Map<String, RecognitionEngine.Factory> ENGINE_FACTORIES = new ConcurrentHashMap<>();
 
-    private Receiver languageReceiver;
-    private SpeechRecognizer speechRecognizer;
-    private final ReentrantLock lock = new ReentrantLock();
-    private boolean listening = false;
-    private JSONArray previousPartialResults = new JSONArray();
+    /**
+     * Makes a custom engine available as {@code start({ engine: name })}, e.g. an embedded offline recognizer or a
+     * {@code FakeRecognitionEngine} for tests. Call before the plugin loads, typically from the app's
+     * {@code MainActivity}.
+     *
+     * <p>Engines are created and driven on the plugin's session thread and must deliver their callbacks there too; a
+     * fake engine should be given a scheduler that posts to a {@link Handler} on {@link #getSessionLooper()}.</p>
+     */
+    public static void registerEngine(String name, RecognitionEngine.Factory factory) {
+        if (EngineMode.find(name) != null) {
+            throw new IllegalArgumentException("Engine name is reserved: " + name);
+        }
+        ENGINE_FACTORIES.put(name, factory);
+    }
+
+    public static void unregisterEngine(String name) {
+        ENGINE_FACTORIES.remove(name);
+    }
+
+    /**
+     * Registers an engine that replays a trace written with {@code start({ recordTrace: true })}, so a session seen
+     * in the field can be reproduced with {@code start({ engine: name })}. {@code speed} divides the recorded gaps
+     * between callbacks: {@code 1} replays in real time, {@code 0} as fast as possible. The file is read each time
+     * the engine is created.
+     */
+    public static void registerTraceReplay(String name, final File trace, final float speed) {
+        registerEngine(name, () -> {
+            final Handler handler = new Handler(getSessionLooper());
+            try (Reader reader = new FileReader(trace)) {
+                return RecognitionTrace.replay(reader, speed, handler::postDelayed);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to read trace " + trace + ": " + ex.getMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Looper of the session thread, where engines are driven, or {@code null} before the plugin has loaded.
+     */
+    public static Looper getSessionLooper() {
+        return sessionLooper;
+    }
+
+    private static volatile Looper sessionLooper;
+    private LanguageCache languageCache;
+    private final List<PluginCall> pendingLanguageCalls = new ArrayList<>();
+    private final Set<String> installedOnDeviceLanguages = new HashSet<>();
+    private boolean onDeviceLanguagesKnown = false;
+    private boolean languageLookupInFlight = false;
+    /** Only touched on the main thread. */
+    private SpeechRecognizer modelDownloadRecognizer;
+    private SessionStateMachine session;
+    private final SessionController<SpeechRecognitionListener> controller = new SessionController<>(
+        new SessionController.Host() {
+            @Override
+            public RecognitionEngine createEngine(String key) {
+                return SpeechRecognitionPlugin.this.createEngine(key);
+            }
+
+            @Override
+            public RecognitionEngine.Listener createIdleListener() {
+                return new SpeechRecognitionListener();
+            }
+
+            @Override
+            public void onEngineDiscarded(RecognitionEngine engine) {
+                rejectPrepareCalls();
+            }
+        },
+        EngineMode.DEFAULT.getValue()
+    );
+    private final PartialResultsEncoder partialResultsEncoder = new PartialResultsEncoder();
+    private InitStrategy initStrategy = InitStrategy.EAGER;
+    private long recognizerCreatedAt;
+    private long timeToReadyNanos = -1;
+    /** Set while the engine is being created or bound; {@code prepare()} calls wait in {@link #pendingPrepareCalls}. */
+    private boolean recognizerPending = false;
+    private final List<PluginCall> pendingPrepareCalls = new ArrayList<>();
+    private HandlerThread sessionThread;
+    private HandlerThread dispatchThread;
+    private EventDispatcher<JSObject> eventDispatcher;
+    private volatile AudioFileRecorder audioRecorder;
+    private volatile AudioChunker audioChunker;
+    private RecognitionTrace.Recorder traceRecorder;
+    private CommandMatcher commandMatcher;
+    private TextRewriter textRewriter;
+    // Owned by the plugin rather than a session, so getMetrics() still reports them once the session ended. Swapped
+    // on the session actor; results capture the current one when they are produced and rewrite with it on the
+    // dispatch thread, which is also where their statistics are read.
+    private TextRewriter.Matcher finalRewriter;
+    private TextRewriter.Matcher partialRewriter;
+    private boolean cancelOnCommand;
+    private File traceFile;
+    private final RecoveryStats recoveryStats = new RecoveryStats();
+    private final LatencyTimeline timeline = new LatencyTimeline();
+    private final LatencyMetrics latencyMetrics = new LatencyMetrics();
+    private boolean sessionMetricsEnabled = false;
+    /** Only touched on the dispatch thread. */
+    private TranscriptAssembler transcript = new TranscriptAssembler(TRANSCRIPT_RETENTION_CHARS);
+    private boolean recreatePending = false;
+    private long recreateStartedAt = -1;
+    private final TranscriptionQueue<TranscriptionJob> transcriptionQueue = new TranscriptionQueue<>();
+    private final TranscriptionStats transcriptionStats = new TranscriptionStats();
+    private final ExecutorService transcriptionExecutor = Executors.newSingleThreadExecutor();
+    private TranscriptionQueue.Job<TranscriptionJob> runningJob;
+    private SpeechGate speechGate;
+    private PowerMonitor powerMonitor;
+    private PowerProfile powerProfile = PowerProfile.NORMAL;
+    /** Options of the running session when {@code adaptiveProfile} is on, {@code null} otherwise. */
+    private RecognitionOptions adaptiveOptions;
+    private PreRollRecorder preRollRecorder;
+    /** Pre-roll of the running session in milliseconds, {@code 0} when it listens to the microphone directly. */
+    private int preRollMs;
+    /** Audio the current utterance is recognized from, while {@link #preRollMs} is set. */
+    private AudioInput preRollInput;
+    private final Runnable preRollIdleTask = this::releaseIdlePreRoll;
+    private volatile boolean paused;
 
     @Override
     public void load() {
         super.load();
-        bridge
-            .getWebView()
-            .post(() -> {
-                speechRecognizer = SpeechRecognizer.createSpeechRecognizer(bridge.getActivity());
-                SpeechRecognitionListener listener = new SpeechRecognitionListener();
-                speechRecognizer.setRecognitionListener(listener);
-                Logger.info(getLogTag(), "Instantiated SpeechRecognizer in load()");
-            });
+        sessionThread = new HandlerThread("SpeechRecognition-Session");
+        sessionThread.start();
+        sessionLooper = sessionThread.getLooper();
+        session = new SessionStateMachine(sessionLooper);
+        session.setIdleListener(() -> {
+            // The listener is posted; a session may have started since
+            if (session.getState() == SessionState.IDLE) {
+                closeTrace();
+                stopAdaptiveProfile();
+                if (paused) {
+                    stopPreRoll();
+                } else if (preRollRecorder != null) {
+                    session.cancel(preRollIdleTask);
+                    session.executeDelayed(preRollIdleTask, PRE_ROLL_IDLE_TIMEOUT_MS);
+                }
+            }
+            runNextTranscription();
+        });
+        dispatchThread = new HandlerThread("SpeechRecognition-Dispatch");
+        dispatchThread.start();
+        eventDispatcher = new EventDispatcher<>(
+            new HandlerQueue(new Handler(dispatchThread.getLooper())),
+            new EventDispatcher.Sink<JSObject>() {
+                @Override
+                public void dispatch(String eventName, JSObject data) {
+                    notifyListeners(eventName, data);
+                }
+
+                @Override
+                public void onBuildFailed(String eventName, RuntimeException error) {
+                    Logger.error(getLogTag(), "Unable to build " + eventName + " event: " + error.getMessage(), error);
+                }
+            }
+        );
+        powerMonitor = new PowerMonitor(getContext(), session::execute, this::onPowerProfileChanged);
+        initStrategy = InitStrategy.fromValue(getConfig().getString(CONFIG_INIT_STRATEGY, null));
+        languageCache = new LanguageCache(getContext(), getConfig().getInt(CONFIG_LANGUAGE_CACHE_TTL, LANGUAGE_CACHE_TTL_MS));
+        Logger.info(getLogTag(), "Recognizer init strategy: " + initStrategy.getValue());
+        if (initStrategy == InitStrategy.LAZY) {
+            return;
+        }
+        session.execute(() -> {
+            try {
+                if (controller.ensureEngine()) {
+                    Logger.info(getLogTag(), "Instantiated SpeechRecognizer in load()");
+                }
+            } catch (Exception ex) {
+                Logger.error(getLogTag(), "Unable to instantiate SpeechRecognizer in load(): " + ex.getMessage(), ex);
+            }
+        });
     }
 
     @PluginMethod
@@ -62,8 +270,38 @@ public class SpeechRecognitionPlugin extends Plugin implements Constants {
     }
 
     @PluginMethod
-    public void start(PluginCall call) {
+    public void prepare(PluginCall call) {
         if (!SpeechRecognizer.isRecognitionAvailable(bridge.getContext())) {
+            call.unavailable(NOT_AVAILABLE);
+            return;
+        }
+
+        session.execute(() -> {
+            boolean created;
+            try {
+                created = controller.ensureEngine();
+            } catch (Exception ex) {
+                Logger.error(getLogTag(), "Error preparing recognizer: " + ex.getMessage(), ex);
+                call.reject(ex.getMessage());
+                return;
+            }
+            if (recognizerPending) {
+                pendingPrepareCalls.add(call);
+                return;
+            }
+            call.resolve(buildPrepareResult(!created));
+        });
+    }
+
+    @PluginMethod
+    public void start(PluginCall call) {
+        RecognitionOptions options = RecognitionOptions.fromCall(call);
+        if (options.engine == null && !ENGINE_FACTORIES.containsKey(options.engineName)) {
+            call.reject(UNKNOWN_ENGINE + options.engineName);
+            return;
+        }
+
+        if (options.engine != null && !SpeechRecognizer.isRecognitionAvailable(bridge.getContext())) {
             Logger.warn(TAG, "start() called but speech recognizer unavailable");
             call.unavailable(NOT_AVAILABLE);
             return;
@@ -75,61 +313,263 @@ public class SpeechRecognitionPlugin extends Plugin implements Constants {
             return;
         }
 
-        String language = call.getString("language", Locale.getDefault().toString());
-        int maxResults = call.getInt("maxResults", MAX_RESULTS);
-        String prompt = call.getString("prompt", null);
-        boolean partialResults = call.getBoolean("partialResults", false);
-        boolean popup = call.getBoolean("popup", false);
-        int allowForSilence = call.getInt("allowForSilence", 0);
-        Logger.info(
-            TAG,
-            String.format(
-                "Starting recognition | lang=%s maxResults=%d partial=%s popup=%s allowForSilence=%d",
-                language,
-                maxResults,
-                partialResults,
-                popup,
-                allowForSilence
-            )
-        );
-        beginListening(language, maxResults, prompt, partialResults, popup, call, allowForSilence);
+        if (options.engine == EngineMode.ON_DEVICE && !isOnDeviceRecognitionAvailable()) {
+            Logger.warn(TAG, "start() requested the on-device engine but it is unavailable");
+            call.unavailable(ON_DEVICE_NOT_AVAILABLE);
+            return;
+        }
+        if (Logger.shouldLog()) {
+            Logger.info(TAG, "Starting recognition | " + options);
+        }
+        beginListening(options, call);
     }
 
     @PluginMethod
     public void stop(final PluginCall call) {
         Logger.info(TAG, "stop() requested");
-        try {
-            stopListening();
-        } catch (Exception ex) {
-            call.reject(ex.getLocalizedMessage());
+        if (call.getBoolean("flush", false)) {
+            final long requestedAt = SystemClock.elapsedRealtimeNanos();
+            final long timeoutMs = Math.max(0, call.getInt("flushTimeout", STOP_FLUSH_TIMEOUT_MS));
+            session.execute(() -> flushSession(call, requestedAt, timeoutMs));
             return;
         }
-        call.resolve();
+
+        session.execute(() -> {
+            try {
+                stopSession();
+            } catch (Exception ex) {
+                call.reject(ex.getLocalizedMessage());
+                return;
+            }
+            // The trace is closed here rather than by the idle listener, which runs later, so JS never opens a
+            // truncated file
+            final File trace = takeTrace();
+            eventDispatcher.execute(() -> call.resolve(finishStopResult(new JSObject(), trace)));
+        });
+    }
+
+    /**
+     * Finalizes the session recording, if any, and adds its path and the path of {@code trace} to {@code ret}.
+     * Blocks for up to {@link #RECORDING_CLOSE_TIMEOUT_MS}, so it must not run on the session actor.
+     */
+    private JSObject finishStopResult(JSObject ret, File trace) {
+        AudioFileRecorder recorder = audioRecorder;
+        audioRecorder = null;
+        if (recorder != null) {
+            recorder.close();
+            if (!recorder.awaitClosed(RECORDING_CLOSE_TIMEOUT_MS)) {
+                Logger.warn(TAG, "Audio recording was not finalized in time: " + recorder.getFile());
+            } else if (recorder.getFailure() != null) {
+                Logger.error(TAG, "Audio recording failed: " + recorder.getFailure().getMessage(), recorder.getFailure());
+            }
+            if (recorder.getDroppedBytes() > 0) {
+                Logger.warn(TAG, "Audio recording dropped " + recorder.getDroppedBytes() + " bytes");
+            }
+            ret.put("audioFilePath", recorder.getFile().getAbsolutePath());
+        }
+        if (trace != null) {
+            ret.put("traceFilePath", trace.getAbsolutePath());
+        }
+        return ret;
     }
 
     @PluginMethod
     public void getSupportedLanguages(PluginCall call) {
-        if (languageReceiver == null) {
-            languageReceiver = new Receiver(call);
+        final boolean refresh = call.getBoolean("refresh", false);
+        session.execute(() -> {
+            String key = LanguageCache.key(getRecognizerPackage(), LocaleList.getDefault().toLanguageTags());
+            if (!refresh) {
+                JSObject cached = languageCache.get(key, System.currentTimeMillis());
+                if (cached != null) {
+                    updateOnDeviceLanguages(cached);
+                    call.resolve(cached.put("cached", true));
+                    return;
+                }
+            }
+
+            // Callers arriving while a lookup is in flight share its result
+            pendingLanguageCalls.add(call);
+            if (!languageLookupInFlight) {
+                lookupSupportedLanguages(key);
+            }
+        });
+    }
+
+    @PluginMethod
+    public void downloadModel(PluginCall call) {
+        final String language = call.getString("language", Locale.getDefault().toString());
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+            call.unavailable(MODEL_DOWNLOAD_NOT_SUPPORTED);
+            return;
+        }
+        if (!isOnDeviceRecognitionAvailable()) {
+            call.unavailable(ON_DEVICE_NOT_AVAILABLE);
+            return;
+        }
+        bridge.executeOnMainThread(() -> startModelDownload(call, language));
+    }
+
+    @PluginMethod
+    public void getTranscript(PluginCall call) {
+        final Long from = call.getLong("from", null);
+        final Long to = call.getLong("to", null);
+        // The transcript belongs to the dispatch thread, which also appends to it
+        eventDispatcher.execute(() -> {
+            long start = from != null ? Math.max(from, transcript.getStartOffset()) : transcript.getStartOffset();
+            long end = to != null ? Math.min(to, transcript.getEndOffset()) : transcript.getEndOffset();
+            JSObject ret = new JSObject();
+            ret.put("text", transcript.read(start, end));
+            ret.put("from", start);
+            ret.put("to", Math.max(start, end));
+            ret.put("startOffset", transcript.getStartOffset());
+            ret.put("endOffset", transcript.getEndOffset());
+            ret.put("segments", transcript.getSegmentCount());
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        final boolean reset = call.getBoolean("reset", false);
+        session.execute(() -> {
+            final JSObject ret = latencyMetrics.toJSObject();
+            ret.put("recovery", recoveryStats.toJSObject());
+            if (reset) {
+                latencyMetrics.reset();
+            }
+            final TextRewriter rewriter = textRewriter;
+            if (rewriter == null) {
+                call.resolve(ret);
+                return;
+            }
+            // Rewriting statistics are updated on the dispatch thread; read them there, once the results emitted so
+            // far have been rewritten
+            final TextRewriter.Matcher partialMatcher = partialRewriter;
+            final TextRewriter.Matcher finalMatcher = finalRewriter;
+            eventDispatcher.execute(() -> {
+                ret.put("postProcessing", postProcessingToJSObject(rewriter, partialMatcher, finalMatcher));
+                call.resolve(ret);
+            });
+        });
+    }
+
+    @PluginMethod
+    public void getRecoveryStats(PluginCall call) {
+        session.execute(() -> call.resolve(recoveryStats.toJSObject()));
+    }
+
+    @PluginMethod
+    public void transcribeFile(PluginCall call) {
+        final String path = call.getString("path");
+        if (path == null || path.isEmpty()) {
+            call.reject("path is required");
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+            call.unavailable(FILE_TRANSCRIPTION_NOT_SUPPORTED);
+            return;
+        }
+        if (!SpeechRecognizer.isRecognitionAvailable(bridge.getContext())) {
+            call.unavailable(NOT_AVAILABLE);
+            return;
+        }
+        final EngineMode engineMode = EngineMode.fromValue(call.getString("engine", null));
+        if (engineMode == EngineMode.ON_DEVICE && !isOnDeviceRecognitionAvailable()) {
+            call.unavailable(ON_DEVICE_NOT_AVAILABLE);
+            return;
         }
 
-        List<String> supportedLanguages = languageReceiver.getSupportedLanguages();
-        if (supportedLanguages != null) {
-            JSONArray languages = new JSONArray(supportedLanguages);
-            call.resolve(new JSObject().put("languages", languages));
+        final String id = call.getString("id", UUID.randomUUID().toString());
+        final String language = call.getString("language", Locale.getDefault().toString());
+        final int priority = call.getInt("priority", 0);
+        session.execute(() -> {
+            if (transcriptionQueue.contains(id) || (runningJob != null && runningJob.id.equals(id))) {
+                call.reject(DUPLICATE_TRANSCRIPTION + id);
+                return;
+            }
+            boolean onDevice = useOnDeviceRecognizer(engineMode, language);
+            TranscriptionJob job = new TranscriptionJob(id, path, language, onDevice, call);
+            transcriptionQueue.add(id, priority, job);
+            Logger.info(getLogTag(), "Queued transcription " + id + " (" + transcriptionQueue.size() + " waiting)");
+            emitTranscriptionState(job, "queued");
+            runNextTranscription();
+        });
+    }
+
+    @PluginMethod
+    public void cancelTranscription(PluginCall call) {
+        final String id = call.getString("id");
+        if (id == null) {
+            call.reject("id is required");
             return;
         }
+        session.execute(() -> {
+            TranscriptionQueue.Job<TranscriptionJob> job = transcriptionQueue.remove(id);
+            if (job == null && runningJob != null && runningJob.id.equals(id)) {
+                job = runningJob;
+                runningJob = null;
+                if (job.payload.startedAt >= 0) {
+                    cancelEngine();
+                }
+                closeTranscriptionInput(job.payload);
+                session.execute(this::runNextTranscription);
+            }
+            if (job == null) {
+                call.resolve(new JSObject().put("cancelled", false));
+                return;
+            }
+            transcriptionStats.recordCancelled();
+            emitTranscriptionState(job.payload, "cancelled");
+            job.payload.call.reject(TRANSCRIPTION_CANCELLED);
+            call.resolve(new JSObject().put("cancelled", true));
+        });
+    }
 
-        Intent detailsIntent = new Intent(RecognizerIntent.ACTION_GET_LANGUAGE_DETAILS);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            detailsIntent.setPackage("com.google.android.googlequicksearchbox");
+    @PluginMethod
+    public void getTranscriptionStats(PluginCall call) {
+        session.execute(() -> {
+            JSObject ret = transcriptionStats.toJSObject();
+            ret.put("queued", transcriptionQueue.size());
+            ret.put("running", runningJob != null ? runningJob.id : null);
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void ackAudioChunks(PluginCall call) {
+        AudioChunker chunker = audioChunker;
+        if (chunker == null) {
+            call.resolve(new JSObject().put("credits", 0).put("dropped", 0));
+            return;
+        }
+        emitAudioChunks(chunker, chunker.grant(call.getInt("count", 1)));
+        call.resolve(new JSObject().put("credits", chunker.getCredits()).put("dropped", chunker.getDropped()));
+    }
+
+    @PluginMethod
+    public void registerCommands(PluginCall call) {
+        JSArray array = call.getArray("phrases", new JSArray());
+        List<String> phrases = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            String phrase = array.optString(i, null);
+            if (phrase != null) {
+                phrases.add(phrase);
+            }
         }
-        bridge.getActivity().sendOrderedBroadcast(detailsIntent, null, languageReceiver, null, Activity.RESULT_OK, null, null);
+        final CommandMatcher matcher = phrases.isEmpty() ? null : new CommandMatcher(phrases);
+        final boolean cancel = call.getBoolean("cancelOnMatch", false);
+        // Applied on the session actor, so a running session picks the commands up from its next partial result
+        session.execute(() -> {
+            commandMatcher = matcher;
+            cancelOnCommand = cancel;
+            call.resolve(new JSObject().put("count", phrases.size()));
+        });
     }
 
     @PluginMethod
     public void isListening(PluginCall call) {
-        call.resolve(new JSObject().put("listening", listening));
+        SessionState state = session.getState();
+        call.resolve(new JSObject().put("listening", state.isListening()).put("state", state.getValue()));
     }
 
     @PluginMethod
@@ -178,353 +618,1951 @@ public class SpeechRecognitionPlugin extends Plugin implements Constants {
             call.reject(Integer.toString(resultCode));
         }
 
-        lock.lock();
-        listening(false);
-        lock.unlock();
+        session.execute(() -> session.moveTo(SessionState.IDLE));
     }
 
-    private void beginListening(
-        String language,
-        int maxResults,
-        String prompt,
-        final boolean partialResults,
-        boolean showPopup,
-        PluginCall call,
-        int allowForSilence
-    ) {
-        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, language);
-        intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, maxResults);
-        intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, bridge.getActivity().getPackageName());
-        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, partialResults);
-        intent.putExtra("android.speech.extra.DICTATION_MODE", partialResults);
+    private void beginListening(final RecognitionOptions options, PluginCall call) {
+        final long requestedAt = SystemClock.elapsedRealtimeNanos();
+        session.execute(() -> startSession(options, call, requestedAt));
+    }
 
-        if (allowForSilence > 0) {
-            intent.putExtra(RecognizerIntent.EXTRA_SEGMENTED_SESSION, true);
-            intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_COMPLETE_SILENCE_LENGTH_MILLIS, allowForSilence);
-            intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_POSSIBLY_COMPLETE_SILENCE_LENGTH_MILLIS, allowForSilence);
+    /**
+     * Runs on the session actor.
+     */
+    private void startSession(RecognitionOptions options, PluginCall call, long requestedAt) {
+        if (session.getState() != SessionState.IDLE && session.getState() != SessionState.ERROR) {
+            Logger.info(getLogTag(), "start() while " + session.getState().getValue() + ", aborting the current session");
+            abortSession("Recognition restarted");
         }
-
-        if (prompt != null) {
-            intent.putExtra(RecognizerIntent.EXTRA_PROMPT, prompt);
+        preemptTranscription();
+        session.moveTo(SessionState.STARTING);
+        resetPartialResultsCache();
+        timeline.reset();
+        sessionMetricsEnabled = options.sessionMetrics;
+        final long transcriptRetention = options.transcriptRetention;
+        eventDispatcher.execute(() -> transcript = new TranscriptAssembler(transcriptRetention));
+        if (options.adaptiveProfile) {
+            adaptiveOptions = options;
+            powerProfile = powerMonitor.start();
+        } else {
+            stopAdaptiveProfile();
         }
-
-        try {
-            lock.lock();
-            resetPartialResultsCache();
-        } finally {
-            lock.unlock();
+        eventDispatcher.setRateLimits(profileRateLimits(options));
+        startPreRoll(options);
+        startAudioRecording(options);
+        audioChunker = options.audioChunks && !options.popup
+            ? new AudioChunker(options.audioChunkSize, options.audioChunkWindow)
+            : null;
+        closeTrace();
+        if (options.recordTrace) {
+            startTrace();
         }
 
-        if (showPopup) {
-            bridge
-                .getActivity()
-                .runOnUiThread(() -> {
+        boolean onDevice = useSessionOnDevice(options);
+        RecognitionRequest request = sessionRequest(options, onDevice);
+
+        if (options.popup) {
+            try {
+                session.moveTo(SessionState.LISTENING);
+                Intent intent = PlatformRecognitionEngine.createIntent(request, bridge.getActivity().getPackageName());
+                bridge.executeOnMainThread(() -> {
                     try {
-                        SpeechRecognitionPlugin.this.lock.lock();
-                        SpeechRecognitionPlugin.this.listening(true);
-                        SpeechRecognitionPlugin.this.lock.unlock();
-                        SpeechRecognitionPlugin.this.startActivityForResult(call, intent, "listeningResult");
+                        startActivityForResult(call, intent, "listeningResult");
                     } catch (Exception ex) {
-                        SpeechRecognitionPlugin.this.lock.lock();
-                        SpeechRecognitionPlugin.this.listening(false);
-                        SpeechRecognitionPlugin.this.lock.unlock();
+                        session.execute(this::failSession);
                         call.reject(ex.getMessage());
                     }
                 });
+            } catch (Exception ex) {
+                failSession();
+                call.reject(ex.getMessage());
+            }
             return;
         }
 
-        bridge
-            .getWebView()
-            .post(() -> {
-                try {
-                    SpeechRecognitionPlugin.this.lock.lock();
-                    Logger.info(getLogTag(), "Rebuilding and starting recognizer");
-                    rebuildRecognizerLocked(call, partialResults);
-                    speechRecognizer.startListening(intent);
-                    SpeechRecognitionPlugin.this.listening(true);
-                    if (partialResults) {
-                        call.resolve();
-                    }
-                } catch (Exception ex) {
-                    Logger.error(getLogTag(), "Error starting listening: " + ex.getMessage(), ex);
-                    call.reject(ex.getMessage());
-                } finally {
-                    SpeechRecognitionPlugin.this.lock.unlock();
-                }
-            });
+        timeline.mark(LatencyTimeline.Mark.START_REQUESTED, requestedAt);
+        timeline.mark(LatencyTimeline.Mark.SESSION_STARTED, SystemClock.elapsedRealtimeNanos());
+        try {
+            Logger.info(getLogTag(), "Rebuilding and starting recognizer");
+            SpeechRecognitionListener listener = rebuildRecognizer(
+                call,
+                options,
+                request,
+                sessionEngineKey(options, onDevice)
+            );
+            if (options.waitForSpeech) {
+                // Timing starts once speech is detected; waiting for it is not recognizer latency
+                timeline.reset();
+                listener.waitForSpeech();
+            } else {
+                recordTraceStart(request);
+                controller.getEngine().startListening(withPreRoll(request));
+                timeline.mark(LatencyTimeline.Mark.LISTEN_REQUESTED, SystemClock.elapsedRealtimeNanos());
+            }
+            if (options.resolvesImmediately()) {
+                listener.resolveCall(null);
+            }
+        } catch (Exception ex) {
+            Logger.error(getLogTag(), "Error starting listening: " + ex.getMessage(), ex);
+            failSession();
+            call.reject(ex.getMessage());
+        }
     }
 
-    private void stopListening() {
-        bridge
-            .getWebView()
-            .post(() -> {
-                try {
-                    SpeechRecognitionPlugin.this.lock.lock();
-                    Logger.info(getLogTag(), "Stopping listening");
-                    if (speechRecognizer != null) {
-                        try {
-                            speechRecognizer.stopListening();
-                        } catch (Exception ignored) {}
-                        try {
-                            speechRecognizer.cancel();
-                        } catch (Exception ignored) {}
-                        // Don't destroy here - let rebuildRecognizerLocked handle cleanup
-                    }
-                    resetPartialResultsCache();
-                    SpeechRecognitionPlugin.this.listening(false);
-                } finally {
-                    SpeechRecognitionPlugin.this.lock.unlock();
-                }
-            });
+    /**
+     * Keeps the microphone in the pre-roll ring for sessions that ask for it, and releases it for the recognizer
+     * otherwise. Runs on the session actor.
+     */
+    private void startPreRoll(RecognitionOptions options) {
+        session.cancel(preRollIdleTask);
+        closePreRollInput();
+        preRollMs = 0;
+        if (options.preRoll <= 0) {
+            stopPreRoll();
+            return;
+        }
+        // Audio sources need Android 13, and registered engines and the speech gate read audio on their own
+        String unsupported = null;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+            unsupported = "Android 13";
+        } else if (options.engine == null) {
+            unsupported = "a built-in engine, not " + options.engineName;
+        } else if (options.popup) {
+            unsupported = "inline recognition, not popup";
+        } else if (options.waitForSpeech) {
+            unsupported = "waitForSpeech to be off";
+        }
+        if (unsupported != null) {
+            Logger.warn(getLogTag(), "preRoll needs " + unsupported + "; listening without it");
+            stopPreRoll();
+            return;
+        }
+        if (preRollRecorder == null || !preRollRecorder.isRunning()) {
+            preRollRecorder = new PreRollRecorder(PRE_ROLL_MAX_MS + PRE_ROLL_HEADROOM_MS, failed ->
+                session.execute(() -> onPreRollFailed(failed))
+            );
+            preRollRecorder.start();
+        }
+        preRollMs = options.preRoll;
     }
 
-    private void destroyRecognizer() {
-        bridge.getWebView().post(() -> {
+    /**
+     * Feeds {@code request} from the pre-roll ring when the session uses one. Each utterance gets a fresh input,
+     * since the engine closes it when the utterance ends. Runs on the session actor.
+     */
+    private RecognitionRequest withPreRoll(RecognitionRequest request) {
+        closePreRollInput();
+        if (preRollMs <= 0 || preRollRecorder == null || !preRollRecorder.isRunning()) {
+            return request;
+        }
+        preRollInput = preRollRecorder.openInput(preRollMs);
+        return request.toBuilder().setAudioInput(preRollInput).build();
+    }
+
+    /**
+     * Ends the audio of the current utterance, which the recognizer takes as the end of speech.
+     */
+    private void closePreRollInput() {
+        if (preRollInput != null) {
             try {
-                SpeechRecognitionPlugin.this.lock.lock();
-                if (speechRecognizer != null) {
-                    speechRecognizer.destroy();
-                    speechRecognizer = null;
-                }
-            } finally {
-                SpeechRecognitionPlugin.this.lock.unlock();
-            }
-        });
+                preRollInput.close();
+            } catch (IOException ignored) {}
+            preRollInput = null;
+        }
     }
 
-    @Override
-    protected void handleOnDestroy() {
-        super.handleOnDestroy();
-        destroyRecognizer();
+    /**
+     * Handles a pre-roll microphone that failed. An utterance being fed from it would otherwise end early with what
+     * was captured so far, so it is restarted on the recognizer's own microphone; sessions started later listen
+     * without pre-roll, and the next {@code start()} with {@code preRoll} tries the microphone again. Runs on the
+     * session actor.
+     */
+    private void onPreRollFailed(PreRollRecorder failed) {
+        if (failed != preRollRecorder) {
+            failed.stop();
+            return;
+        }
+        SpeechRecognitionListener listener = controller.getActive();
+        boolean feeding =
+            preRollInput != null &&
+            listener != null &&
+            !listener.isRestartPending() &&
+            session.getState().isListening();
+        if (feeding) {
+            // Drop the request before its input ends, so the truncated audio is not taken as a finished utterance
+            if (traceRecorder != null) {
+                traceRecorder.recordCancel();
+            }
+            cancelEngine();
+        }
+        stopPreRoll();
+        if (feeding) {
+            Logger.warn(
+                getLogTag(),
+                "Pre-roll microphone failed mid-utterance, restarting it on the recognizer's microphone"
+            );
+            session.moveTo(SessionState.STARTING);
+            listener.restartListening();
+        } else {
+            Logger.warn(getLogTag(), "Pre-roll microphone failed, sessions listen without preRoll");
+        }
     }
 
-    private void listening(boolean value) {
-        this.listening = value;
+    /**
+     * Gives the microphone back once no session has used the pre-roll ring for {@link #PRE_ROLL_IDLE_TIMEOUT_MS}.
+     * The next session with {@code preRoll} reopens it, with no audio from before its start. Runs on the session
+     * actor.
+     */
+    private void releaseIdlePreRoll() {
+        if (session.getState() == SessionState.IDLE && preRollRecorder != null) {
+            Logger.info(getLogTag(), "Releasing the pre-roll microphone after " + PRE_ROLL_IDLE_TIMEOUT_MS + "ms idle");
+            stopPreRoll();
+        }
     }
 
-    private void resetPartialResultsCache() {
-        previousPartialResults = new JSONArray();
+    private void stopPreRoll() {
+        session.cancel(preRollIdleTask);
+        closePreRollInput();
+        preRollMs = 0;
+        if (preRollRecorder != null) {
+            long overrun = preRollRecorder.getOverrunBytes();
+            if (overrun > 0) {
+                Logger.warn(getLogTag(), "Pre-roll reader fell behind and skipped " + overrun + " bytes");
+            }
+            preRollRecorder.stop();
+            preRollRecorder = null;
+        }
     }
 
-    private void rebuildRecognizerLocked(PluginCall call, boolean partialResults) {
-        // Reuse the existing recognizer if available - destroying/recreating causes ERROR_SERVER_DISCONNECTED (11)
-        // Only create new if null (first time or after an error destroyed it)
-        if (speechRecognizer == null) {
-            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(bridge.getActivity());
-            Logger.info(getLogTag(), "Created new SpeechRecognizer instance");
-        } else {
-            // Cancel any pending recognition before starting a new one
-            try {
-                speechRecognizer.cancel();
-            } catch (Exception ignored) {}
-            Logger.info(getLogTag(), "Reusing existing SpeechRecognizer instance");
+    private boolean useSessionOnDevice(RecognitionOptions options) {
+        if (options.engine == null) {
+            return false;
+        }
+        if (useOnDeviceRecognizer(options.engine, options.language)) {
+            return true;
         }
+        // Under stress, AUTO's choice is taken for DEFAULT sessions too: it only picks installed models
+        return powerProfile.prefersOnDevice() && useOnDeviceRecognizer(EngineMode.AUTO, options.language);
+    }
 
-        SpeechRecognitionListener listener = new SpeechRecognitionListener();
-        listener.setCall(call);
-        listener.setPartialResults(partialResults);
-        speechRecognizer.setRecognitionListener(listener);
+    private RecognitionRequest sessionRequest(RecognitionOptions options, boolean onDevice) {
+        return powerProfile.adapt(options.toRequest(onDevice || options.engine == EngineMode.ON_DEVICE));
     }
 
-    private String permissionStateValue(PermissionState state) {
-        switch (state) {
-            case GRANTED:
-                return "granted";
-            case DENIED:
-                return "denied";
-            case PROMPT:
-            case PROMPT_WITH_RATIONALE:
-            default:
-                return "prompt";
-        }
+    private static String sessionEngineKey(RecognitionOptions options, boolean onDevice) {
+        return options.engine == null
+            ? options.engineName
+            : (onDevice ? EngineMode.ON_DEVICE : EngineMode.DEFAULT).getValue();
     }
 
-    private class SpeechRecognitionListener implements RecognitionListener {
+    /**
+     * Rate limits of {@code options} with the throttled event types capped by {@link #powerProfile}.
+     */
+    private Map<String, Integer> profileRateLimits(RecognitionOptions options) {
+        return powerProfile.limitRates(options.eventRateLimits, PARTIAL_RESULTS_EVENT, AUDIO_LEVEL_EVENT);
+    }
 
-        private PluginCall call;
-        private boolean partialResults;
+    /**
+     * Applies a new power profile to the running adaptive session. Event rates change at once; the request and
+     * engine change from the next utterance of a continuous session, or the next {@code start()} otherwise. Runs on
+     * the session actor.
+     */
+    private void onPowerProfileChanged(final PowerProfile profile, final int thermalStatus, final boolean powerSave) {
+        final RecognitionOptions options = adaptiveOptions;
+        if (options == null || profile == powerProfile) {
+            return;
+        }
+        final PowerProfile previous = powerProfile;
+        powerProfile = profile;
+        // A partial result waiting under the old limit is rescheduled, so it never lands after a newer one
+        eventDispatcher.setRateLimits(profileRateLimits(options));
+        boolean onDevice = useSessionOnDevice(options);
+        final RecognitionRequest request = sessionRequest(options, onDevice);
+        final String key = sessionEngineKey(options, onDevice);
+        SpeechRecognitionListener listener = controller.getActive();
+        if (listener != null) {
+            listener.setRestartRequest(request, key);
+        }
+        Logger.info(getLogTag(), "Power profile " + previous.getValue() + " -> " + profile.getValue());
+        eventDispatcher.emitImmediately(PROFILE_CHANGED_EVENT, () ->
+            new JSObject()
+                .put("profile", profile.getValue())
+                .put("previous", previous.getValue())
+                .put("thermalStatus", thermalStatus)
+                .put("powerSave", powerSave)
+                .put("maxResults", request.maxResults)
+                .put("allowForSilence", request.allowForSilence)
+                .put("engine", key)
+        );
+    }
 
-        public void setCall(PluginCall call) {
-            this.call = call;
+    private void stopAdaptiveProfile() {
+        adaptiveOptions = null;
+        powerProfile = PowerProfile.NORMAL;
+        powerMonitor.stop();
+    }
+
+    /**
+     * Cancels the current session and rejects its pending call, if any. Runs on the session actor.
+     */
+    private void abortSession(String reason) {
+        session.moveTo(SessionState.STOPPING);
+        if (traceRecorder != null) {
+            traceRecorder.recordCancel();
         }
+        cancelEngine();
+        SpeechRecognitionListener listener = controller.getActive();
+        if (listener != null) {
+            listener.cancelRestart();
+            listener.rejectCall(reason);
+            listener.completeFlush(null, "aborted");
+        }
+        finishTimeline("aborted");
+        resetPartialResultsCache();
+        session.moveTo(SessionState.IDLE);
+    }
 
-        public void setPartialResults(boolean partialResults) {
-            this.partialResults = partialResults;
+    private void failSession() {
+        finishTimeline("error");
+        session.moveTo(SessionState.ERROR);
+        resetPartialResultsCache();
+        session.moveTo(SessionState.IDLE);
+    }
+
+    private void startAudioRecording(RecognitionOptions options) {
+        AudioFileRecorder previous = audioRecorder;
+        audioRecorder = null;
+        if (previous != null) {
+            previous.close();
+        }
+        if (!options.recordAudio || options.popup) {
+            return;
         }
 
-        @Override
-        public void onReadyForSpeech(Bundle params) {}
+        String extension = options.recordAudioAsWav ? ".wav" : ".pcm";
+        File file = new File(getContext().getCacheDir(), "speech-recognition-" + System.currentTimeMillis() + extension);
+        AudioFileRecorder recorder = new AudioFileRecorder(file, options.recordAudioAsWav);
+        recorder.start();
+        audioRecorder = recorder;
+    }
 
-        @Override
-        public void onBeginningOfSpeech() {
+    private void emitAudioChunks(AudioChunker chunker, int count) {
+        for (int i = 0; i < count; i++) {
+            emitAudioChunk(chunker);
+        }
+    }
+
+    /**
+     * Queues a payload that takes the oldest sendable frame of {@code chunker} when it is built. The frame goes back
+     * to the pool as soon as it is encoded; when another payload got there first, the dispatch is cancelled.
+     */
+    private void emitAudioChunk(final AudioChunker chunker) {
+        eventDispatcher.emitImmediately(AUDIO_CHUNK_EVENT, () -> {
+            AudioChunker.Frame frame = chunker.take();
+            if (frame == null) {
+                return null;
+            }
             try {
-                lock.lock();
-                JSObject ret = new JSObject();
-                ret.put("status", "started");
-                notifyListeners(LISTENING_EVENT, ret);
-                Logger.debug(TAG, "Listening started");
+                return new JSObject()
+                    .put("data", Base64.encodeToString(frame.data, 0, frame.length, Base64.NO_WRAP))
+                    .put("sequence", frame.sequence)
+                    .put("sampleRate", AudioFileRecorder.SAMPLE_RATE)
+                    .put("dropped", chunker.getDropped())
+                    .put("credits", chunker.getCredits());
             } finally {
-                lock.unlock();
+                chunker.release(frame);
             }
-        }
+        });
+    }
 
-        @Override
-        public void onRmsChanged(float rmsdB) {}
+    /**
+     * Opens a trace of the engine callbacks for the session starting. Runs on the session actor.
+     */
+    private void startTrace() {
+        File file = new File(getContext().getCacheDir(), "speech-recognition-" + System.currentTimeMillis() + ".ndjson");
+        try {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            traceRecorder = new RecognitionTrace.Recorder(writer, SystemClock::elapsedRealtimeNanos);
+            traceFile = file;
+        } catch (IOException ex) {
+            Logger.warn(getLogTag(), "Unable to record trace: " + ex.getMessage());
+        }
+    }
 
-        @Override
-        public void onBufferReceived(byte[] buffer) {}
+    private void recordTraceStart(RecognitionRequest request) {
+        if (traceRecorder != null) {
+            traceRecorder.recordStart(request);
+        }
+    }
 
-        @Override
-        public void onEndOfSpeech() {
-            bridge
-                .getWebView()
-                .post(() -> {
-                    try {
-                        lock.lock();
-                        listening(false);
-
-                        JSObject ret = new JSObject();
-                        ret.put("status", "stopped");
-                        notifyListeners(LISTENING_EVENT, ret);
-                    } finally {
-                        lock.unlock();
+    /**
+     * Flushes the trace once the session has ended, keeping its path for {@code stop()}. Runs on the session actor.
+     */
+    private void closeTrace() {
+        RecognitionTrace.Recorder recorder = traceRecorder;
+        traceRecorder = null;
+        if (recorder == null) {
+            return;
+        }
+        recorder.close();
+        if (recorder.getFailure() != null) {
+            Logger.warn(getLogTag(), "Trace recording failed: " + recorder.getFailure().getMessage());
+        } else {
+            Logger.debug(getLogTag(), "Trace recorded " + recorder.getEventCount() + " events");
+        }
+    }
+
+    /**
+     * Closes the trace of the session that just ended and hands over its file, or {@code null} when none was
+     * recorded. Runs on the session actor.
+     */
+    private File takeTrace() {
+        closeTrace();
+        File file = traceFile;
+        traceFile = null;
+        return file;
+    }
+
+    /**
+     * Stops feeding the current recording without forgetting it, so {@code stop()} can still report its path.
+     */
+    private void finishAudioRecording() {
+        AudioFileRecorder recorder = audioRecorder;
+        if (recorder != null) {
+            recorder.close();
+        }
+    }
+
+    /**
+     * Ends the session at once, dropping any result still in flight. Runs on the session actor.
+     */
+    private void stopSession() {
+        Logger.info(getLogTag(), "Stopping listening");
+        session.moveTo(SessionState.STOPPING);
+        if (traceRecorder != null) {
+            traceRecorder.recordStop();
+        }
+        SpeechRecognitionListener listener = controller.getActive();
+        if (listener != null) {
+            listener.cancelRestart();
+            // The engine is cancelled below, so no result will settle start(); release the call rather than keep it
+            // until the next session
+            listener.resolveCall(SpeechRecognitionPlugin::emptyMatches);
+        }
+        // A file transcription owns the engine while no session is open
+        RecognitionEngine engine = controller.getEngine();
+        if (engine != null && runningJob == null) {
+            closePreRollInput();
+            try {
+                engine.stopListening();
+            } catch (Exception ignored) {}
+            try {
+                engine.cancel();
+            } catch (Exception ignored) {}
+            // Don't destroy here - let rebuildRecognizer handle cleanup
+        }
+        finishTimeline("stopped");
+        resetPartialResultsCache();
+        session.moveTo(SessionState.IDLE);
+    }
+
+    /**
+     * Asks the engine to finish the current utterance and resolves {@code call} once its final result arrives, or
+     * after {@code timeoutMs}. Runs on the session actor.
+     */
+    private void flushSession(PluginCall call, long requestedAt, long timeoutMs) {
+        SpeechRecognitionListener listener = controller.getActive();
+        boolean inFlight =
+            listener != null && speechGate == null && !listener.isRestartPending() && session.getState() != SessionState.IDLE;
+        if (!inFlight || controller.getEngine() == null) {
+            Logger.info(getLogTag(), "stop({ flush }) with no utterance in flight");
+            stopSession();
+            if (listener != null) {
+                listener.resolveCall(SpeechRecognitionPlugin::emptyMatches);
+            }
+            resolveStop(call, requestedAt, null, "idle", true);
+            return;
+        }
+        listener.flush(call, requestedAt, timeoutMs);
+    }
+
+    /**
+     * Resolves a flushed {@code stop()} on the dispatch thread, after the final result events and off the session
+     * actor, since finalizing the recording can block. When {@code sessionEnded} the trace is closed first, so its
+     * path only reaches JS once the file is complete.
+     */
+    private void resolveStop(
+        final PluginCall call,
+        long requestedAt,
+        final FinalResults matches,
+        String outcome,
+        boolean sessionEnded
+    ) {
+        final JSObject ret = new JSObject();
+        ret.put("outcome", outcome);
+        ret.put("stopMs", (SystemClock.elapsedRealtimeNanos() - requestedAt) / 1_000_000.0);
+        final File trace = sessionEnded ? takeTrace() : null;
+        eventDispatcher.execute(() -> {
+            if (matches != null) {
+                ret.put("matches", new JSArray(matches.get()));
+            }
+            call.resolve(finishStopResult(ret, trace));
+        });
+    }
+
+    /**
+     * Aggregates the current utterance into the latency histograms and reports it when {@code sessionMetrics} is on.
+     * Runs on the session actor; a no-op when no utterance is being timed.
+     */
+    private void finishTimeline(String outcome) {
+        if (!timeline.isStarted()) {
+            return;
+        }
+        latencyMetrics.record(timeline);
+        if (sessionMetricsEnabled) {
+            final JSObject payload = LatencyMetrics.timelineToJSObject(timeline).put("outcome", outcome);
+            eventDispatcher.emitImmediately(SESSION_METRICS_EVENT, () -> payload);
+        }
+        timeline.reset();
+    }
+
+    private void destroyRecognizer() {
+        session.execute(() -> {
+            controller.discardEngine();
+            bridge.executeOnMainThread(() -> {
+                if (modelDownloadRecognizer != null) {
+                    modelDownloadRecognizer.destroy();
+                    modelDownloadRecognizer = null;
+                }
+            });
+            closeSpeechGate();
+            controller.deactivate();
+            rejectTranscriptions();
+        });
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        paused = true;
+        // Background capture is silenced by the system; give the microphone back once no session needs it
+        session.execute(() -> {
+            if (session.getState() == SessionState.IDLE) {
+                stopPreRoll();
+            }
+        });
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        paused = false;
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        eventDispatcher.clear();
+        finishAudioRecording();
+        audioChunker = null;
+        closeTrace();
+        powerMonitor.stop();
+        session.execute(this::stopPreRoll);
+        destroyRecognizer();
+        transcriptionExecutor.shutdown();
+        sessionThread.quitSafely();
+        dispatchThread.quitSafely();
+    }
+
+    /**
+     * Stops a pending wait for speech. Runs on the session actor.
+     */
+    private void closeSpeechGate() {
+        if (speechGate != null) {
+            speechGate.stop();
+            speechGate = null;
+        }
+    }
+
+    /**
+     * The encoder is only used by partial result payloads, so it is reset on the dispatch thread, in order with them.
+     * A partial result still held back by the rate limit belongs to the utterance that ended and is dropped in the same
+     * task, or it would reach JS after the reset, diffed against nothing.
+     */
+    private void resetPartialResultsCache() {
+        eventDispatcher.execute(() -> {
+            eventDispatcher.discard(PARTIAL_RESULTS_EVENT);
+            partialResultsEncoder.reset();
+        });
+    }
+
+    private static JSObject emptyMatches() {
+        return new JSObject().put("status", "success").put("matches", new JSArray());
+    }
+
+    /**
+     * Creates an engine of kind {@code key} for {@link #controller}, timing how long it takes to become ready. A
+     * platform recognizer is created on the main thread, so {@code prepare()} calls wait until it exists, and with
+     * {@code prewarm} until its service is bound as well. Runs on the session actor.
+     */
+    private RecognitionEngine createEngine(String key) {
+        recognizerCreatedAt = SystemClock.elapsedRealtimeNanos();
+        RecognitionEngine created = instantiateEngine(key);
+        if (recreatePending) {
+            recreatePending = false;
+            recreateStartedAt = recognizerCreatedAt;
+        }
+
+        if (created instanceof PlatformRecognitionEngine) {
+            final PlatformRecognitionEngine platformEngine = (PlatformRecognitionEngine) created;
+            final long createdAt = recognizerCreatedAt;
+            recognizerPending = true;
+            platformEngine.whenCreated(session::execute, ok -> onRecognizerCreated(platformEngine, createdAt, ok));
+        } else {
+            timeToReadyNanos = SystemClock.elapsedRealtimeNanos() - recognizerCreatedAt;
+        }
+        return created;
+    }
+
+    private void onRecognizerCreated(PlatformRecognitionEngine created, long createdAt, boolean ok) {
+        if (created != controller.getEngine()) {
+            return;
+        }
+        if (!ok) {
+            // Waiting prepare() calls are rejected with the engine
+            controller.discardEngine();
+            return;
+        }
+        if (initStrategy == InitStrategy.PREWARM && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            bindRecognizerService(created, createdAt);
+            return;
+        }
+        onRecognizerReady(created, createdAt, "SpeechRecognizer created");
+    }
+
+    private RecognitionEngine instantiateEngine(String key) {
+        EngineMode mode = EngineMode.find(key);
+        if (mode != null) {
+            return new PlatformRecognitionEngine(
+                bridge.getActivity(),
+                mode == EngineMode.ON_DEVICE,
+                ContextCompat.getMainExecutor(bridge.getContext()),
+                session::execute
+            );
+        }
+        RecognitionEngine.Factory factory = ENGINE_FACTORIES.get(key);
+        if (factory == null) {
+            throw new IllegalStateException(UNKNOWN_ENGINE + key);
+        }
+        return factory.create();
+    }
+
+    /**
+     * {@link SpeechRecognizer#createSpeechRecognizer} only binds the recognition service on the first request.
+     * Issuing a support query forces the bind ahead of time so the first {@code startListening} skips it.
+     */
+    private void bindRecognizerService(final PlatformRecognitionEngine platformEngine, final long createdAt) {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        platformEngine.checkRecognitionSupport(
+            intent,
+            session::execute,
+            new RecognitionSupportCallback() {
+                @Override
+                public void onSupportResult(RecognitionSupport recognitionSupport) {
+                    onRecognizerReady(platformEngine, createdAt, "Recognition service bound");
+                }
+
+                @Override
+                public void onError(int error) {
+                    // Either the service answered, so the connection is established even if the query itself
+                    // failed, or the query could not be sent; prepare() callers must not wait on it either way.
+                    onRecognizerReady(platformEngine, createdAt, "Recognition service bound");
+                }
+            }
+        );
+    }
+
+    /**
+     * Resolves the {@code prepare()} calls waiting for {@code ready}. Runs on the session actor.
+     */
+    private void onRecognizerReady(RecognitionEngine ready, long createdAt, String what) {
+        if (ready != controller.getEngine()) {
+            return;
+        }
+        recognizerPending = false;
+        timeToReadyNanos = SystemClock.elapsedRealtimeNanos() - createdAt;
+        recordRecreation();
+        List<PluginCall> calls = new ArrayList<>(pendingPrepareCalls);
+        pendingPrepareCalls.clear();
+
+        Logger.info(getLogTag(), what + " in " + (timeToReadyNanos / 1_000_000) + "ms");
+        for (PluginCall call : calls) {
+            call.resolve(buildPrepareResult(false));
+        }
+    }
+
+    /**
+     * Completes the recreation timing started when a recognizer destroyed by an error is replaced, once the
+     * replacement is bound or ready for speech, whichever comes first.
+     */
+    private void recordRecreation() {
+        if (recreateStartedAt < 0) {
+            return;
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - recreateStartedAt;
+        recreateStartedAt = -1;
+        recoveryStats.recordRecreation(elapsed);
+        Logger.debug(getLogTag(), "Recognizer recreated in " + (elapsed / 1_000_000) + "ms");
+    }
+
+    private JSObject buildPrepareResult(boolean reused) {
+        JSObject ret = new JSObject();
+        ret.put("ready", true);
+        ret.put("reused", reused);
+        ret.put("initStrategy", initStrategy.getValue());
+        ret.put("timeToReadyMs", timeToReadyNanos / 1_000_000.0);
+        return ret;
+    }
+
+    private void prewarmRecognizer() {
+        session.execute(() -> {
+            try {
+                if (controller.ensureEngine()) {
+                    Logger.info(getLogTag(), "Prewarmed replacement SpeechRecognizer");
+                }
+            } catch (Exception ex) {
+                Logger.warn(getLogTag(), "Unable to prewarm SpeechRecognizer: " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Readies the engine for a new session and activates its listener. Runs on the session actor.
+     */
+    private SpeechRecognitionListener rebuildRecognizer(
+        PluginCall call,
+        RecognitionOptions options,
+        RecognitionRequest request,
+        String key
+    ) {
+        useEngine(key);
+        setTextRewriter(options.textRewriter);
+
+        SpeechRecognitionListener listener = new SpeechRecognitionListener();
+        listener.setCall(call);
+        listener.setPartialResults(options.partialResults);
+        listener.setDeltaEncoding(options.deltaPartialResults);
+        listener.setAudioLevelMeter(options.audioLevel ? new AudioLevelMeter(options.audioLevelFrameRate) : null);
+        listener.setRestartPolicy(options.createRestartPolicy(), request);
+        listener.setWaitForSpeech(options.waitForSpeech, options.speechSensitivity, options.waitForSpeechTimeout);
+        controller.activate(listener, traceRecorder != null ? traceRecorder.wrap(listener) : listener);
+        return listener;
+    }
+
+    /**
+     * Runs once the controller destroyed its engine. {@code prepare()} calls still waiting for it to bind are
+     * rejected, since the bind they wait for will never be reported. Runs on the session actor.
+     */
+    private void rejectPrepareCalls() {
+        recognizerPending = false;
+        if (!pendingPrepareCalls.isEmpty()) {
+            List<PluginCall> calls = new ArrayList<>(pendingPrepareCalls);
+            pendingPrepareCalls.clear();
+            for (PluginCall call : calls) {
+                call.reject(RECOGNIZER_DISCARDED);
+            }
+        }
+    }
+
+    /**
+     * Makes the engine an idle engine of kind {@code key}, switching engines when the kind changed. Runs on the
+     * session actor.
+     */
+    private void useEngine(String key) {
+        String previous = controller.getEngineKey();
+        if (controller.getEngine() != null && !previous.equals(key)) {
+            Logger.info(getLogTag(), "Switching recognition engine from " + previous + " to " + key);
+        }
+        // Reuse the existing recognizer if available - destroying/recreating causes ERROR_SERVER_DISCONNECTED (11)
+        // Only create new if null (first time or after an error destroyed it); a reused one has its request cancelled
+        if (controller.useEngine(key)) {
+            Logger.info(getLogTag(), "Created new SpeechRecognizer instance");
+        } else {
+            Logger.info(getLogTag(), "Reusing existing SpeechRecognizer instance");
+        }
+    }
+
+    /**
+     * Cancels whatever request the engine is running, if one is alive. Runs on the session actor.
+     */
+    private void cancelEngine() {
+        RecognitionEngine engine = controller.getEngine();
+        if (engine != null) {
+            try {
+                engine.cancel();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    /**
+     * Queries the recognition service for its languages. Runs on the session actor.
+     *
+     * <p>Android 13+ answers {@link SpeechRecognizer#checkRecognitionSupport}, which also reports on-device models.
+     * Older devices, or a failed support query, fall back to the language details broadcast. The query runs on its
+     * own short-lived recognizer so a session error or engine switch cannot drop its callback.</p>
+     */
+    private void lookupSupportedLanguages(final String key) {
+        languageLookupInFlight = true;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+            requestLanguageDetails(key);
+            return;
+        }
+
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        // The probe lives on the main thread, as every SpeechRecognizer must; its answers come back to the actor
+        bridge.executeOnMainThread(() -> {
+            final SpeechRecognizer probe;
+            try {
+                probe = SpeechRecognizer.createSpeechRecognizer(bridge.getActivity());
+            } catch (Exception ex) {
+                Logger.warn(getLogTag(), "Unable to query recognition support: " + ex.getMessage());
+                session.execute(() -> requestLanguageDetails(key));
+                return;
+            }
+            try {
+                probe.checkRecognitionSupport(
+                    intent,
+                    session::execute,
+                    new RecognitionSupportCallback() {
+                        @Override
+                        public void onSupportResult(RecognitionSupport recognitionSupport) {
+                            bridge.executeOnMainThread(probe::destroy);
+                            completeLanguageLookup(key, buildLanguageSupport(recognitionSupport), null);
+                        }
+
+                        @Override
+                        public void onError(int error) {
+                            bridge.executeOnMainThread(probe::destroy);
+                            Logger.warn(getLogTag(), "Recognition support query failed: " + getErrorText(error));
+                            requestLanguageDetails(key);
+                        }
+                    }
+                );
+            } catch (Exception ex) {
+                probe.destroy();
+                Logger.warn(getLogTag(), "Unable to query recognition support: " + ex.getMessage());
+                session.execute(() -> requestLanguageDetails(key));
+            }
+        });
+    }
+
+    private void requestLanguageDetails(final String key) {
+        Receiver receiver = new Receiver(
+            new Receiver.Callback() {
+                @Override
+                public void onLanguages(List<String> languages) {
+                    JSObject result = new JSObject().put("languages", new JSONArray(languages));
+                    session.execute(() -> completeLanguageLookup(key, result, null));
+                }
+
+                @Override
+                public void onFailure(String message) {
+                    session.execute(() -> completeLanguageLookup(key, null, message));
+                }
+            }
+        );
+
+        Intent detailsIntent = new Intent(RecognizerIntent.ACTION_GET_LANGUAGE_DETAILS);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            detailsIntent.setPackage("com.google.android.googlequicksearchbox");
+        }
+        try {
+            bridge.getActivity().sendOrderedBroadcast(detailsIntent, null, receiver, null, Activity.RESULT_OK, null, null);
+        } catch (Exception ex) {
+            completeLanguageLookup(key, null, LANGUAGE_ERROR);
+        }
+    }
+
+    private JSObject buildLanguageSupport(RecognitionSupport support) {
+        Set<String> languages = new TreeSet<>();
+        addAll(languages, support.getOnlineLanguages());
+        addAll(languages, support.getSupportedOnDeviceLanguages());
+        addAll(languages, support.getInstalledOnDeviceLanguages());
+        addAll(languages, support.getPendingOnDeviceLanguages());
+
+        JSObject ret = new JSObject();
+        ret.put("languages", new JSONArray(languages));
+        ret.put("installedOnDeviceLanguages", new JSONArray(nonNull(support.getInstalledOnDeviceLanguages())));
+        ret.put("pendingOnDeviceLanguages", new JSONArray(nonNull(support.getPendingOnDeviceLanguages())));
+        return ret;
+    }
+
+    private static void addAll(Set<String> target, List<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+
+    private static List<String> nonNull(List<String> list) {
+        return list != null ? list : new ArrayList<>();
+    }
+
+    private void completeLanguageLookup(String key, JSObject result, String error) {
+        List<PluginCall> calls = new ArrayList<>(pendingLanguageCalls);
+        pendingLanguageCalls.clear();
+        languageLookupInFlight = false;
+        if (result != null) {
+            updateOnDeviceLanguages(result);
+            languageCache.put(key, result, System.currentTimeMillis());
+            result.put("cached", false);
+        }
+        for (PluginCall call : calls) {
+            if (result != null) {
+                call.resolve(result);
+            } else {
+                call.reject(error);
+            }
+        }
+    }
+
+    private void updateOnDeviceLanguages(JSObject languageSupport) {
+        JSONArray installed = languageSupport.optJSONArray("installedOnDeviceLanguages");
+        if (installed == null) {
+            return;
+        }
+        installedOnDeviceLanguages.clear();
+        for (int i = 0; i < installed.length(); i++) {
+            installedOnDeviceLanguages.add(normalizeLanguageTag(installed.optString(i)));
+        }
+        onDeviceLanguagesKnown = true;
+    }
+
+    private static String normalizeLanguageTag(String language) {
+        return language == null ? "" : language.replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isOnDeviceRecognitionAvailable() {
+        return (
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && SpeechRecognizer.isOnDeviceRecognitionAvailable(bridge.getContext())
+        );
+    }
+
+    /**
+     * Resolves the engine option to the recognizer kind for this session. Runs on the session actor.
+     *
+     * <p>{@code auto} relies on the installed models reported by the last language lookup. When none has run yet,
+     * one is started in the background so later sessions can pick the on-device recognizer.</p>
+     */
+    private boolean useOnDeviceRecognizer(EngineMode engineMode, String language) {
+        switch (engineMode) {
+            case ON_DEVICE:
+                return true;
+            case AUTO:
+                if (!isOnDeviceRecognitionAvailable()) {
+                    return false;
+                }
+                if (!onDeviceLanguagesKnown) {
+                    String key = LanguageCache.key(getRecognizerPackage(), LocaleList.getDefault().toLanguageTags());
+                    JSObject cached = languageCache.get(key, System.currentTimeMillis());
+                    if (cached != null) {
+                        updateOnDeviceLanguages(cached);
+                    } else if (!languageLookupInFlight && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                        lookupSupportedLanguages(key);
+                    }
+                }
+                return installedOnDeviceLanguages.contains(normalizeLanguageTag(language));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Asks the on-device recognizer to fetch the model for {@code language}. Runs on the main thread, where the
+     * recognizer lives; its download callbacks run on the session actor.
+     *
+     * <p>Android 14+ reports progress and completion; Android 13 only accepts the request, so the call resolves with
+     * {@code requested} as soon as it is sent.</p>
+     */
+    private void startModelDownload(final PluginCall call, final String language) {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, language);
+        try {
+            // Kept for the plugin lifetime: destroying it right after the request can drop it before the service binds
+            if (modelDownloadRecognizer == null) {
+                modelDownloadRecognizer = SpeechRecognizer.createOnDeviceSpeechRecognizer(bridge.getActivity());
+            }
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                modelDownloadRecognizer.triggerModelDownload(intent);
+                call.resolve(new JSObject().put("status", "requested"));
+                return;
+            }
+            modelDownloadRecognizer.triggerModelDownload(
+                intent,
+                session::execute,
+                new ModelDownloadListener() {
+                    @Override
+                    public void onProgress(int completedPercent) {
+                        eventDispatcher.emit(MODEL_DOWNLOAD_EVENT, () ->
+                            new JSObject().put("language", language).put("progress", completedPercent)
+                        );
+                    }
+
+                    @Override
+                    public void onSuccess() {
+                        installedOnDeviceLanguages.add(normalizeLanguageTag(language));
+                        call.resolve(new JSObject().put("status", "installed"));
+                    }
+
+                    @Override
+                    public void onScheduled() {
+                        call.resolve(new JSObject().put("status", "scheduled"));
+                    }
+
+                    @Override
+                    public void onError(int error) {
+                        call.reject(getErrorText(error));
+                    }
+                }
+            );
+        } catch (Exception ex) {
+            Logger.error(getLogTag(), "Unable to request model download: " + ex.getMessage(), ex);
+            call.reject(ex.getMessage());
+        }
+    }
+
+    /**
+     * Starts the next queued file transcription when the engine is free. Runs on the session actor.
+     *
+     * <p>Jobs share the session engine, so they only run while no live session is open and one at a time; the
+     * recognizer never sees overlapping requests. The file is opened off the actor, then the job starts back
+     * on the actor.</p>
+     */
+    private void runNextTranscription() {
+        if (runningJob != null || session.getState() != SessionState.IDLE || transcriptionQueue.isEmpty()) {
+            return;
+        }
+        final TranscriptionQueue.Job<TranscriptionJob> job = transcriptionQueue.poll();
+        runningJob = job;
+        transcriptionExecutor.execute(() -> {
+            AudioInput input;
+            try {
+                input = openAudioFile(job);
+            } catch (Exception ex) {
+                Logger.error(getLogTag(), "Unable to open " + job.payload.path + ": " + ex.getMessage(), ex);
+                session.execute(() -> {
+                    if (runningJob == job) {
+                        finishTranscription(job, "Unable to open audio file: " + ex.getMessage());
                     }
                 });
+                return;
+            }
+            session.execute(() -> startTranscription(job, input));
+        });
+    }
+
+    private AudioInput openAudioFile(final TranscriptionQueue.Job<TranscriptionJob> job) throws IOException {
+        String path = job.payload.path;
+        InputStream stream;
+        if (path.startsWith("content://")) {
+            stream = getContext().getContentResolver().openInputStream(Uri.parse(path));
+            if (stream == null) {
+                throw new FileNotFoundException(path);
+            }
+        } else {
+            stream = new FileInputStream(path.startsWith("file://") ? Uri.parse(path).getPath() : path);
+        }
+        stream = new BufferedInputStream(stream);
+        try {
+            WavHeader header = WavHeader.read(stream);
+            final long bytesPerSecond = (long) header.sampleRate * header.channelCount * 2;
+            ProgressInputStream counted = new ProgressInputStream(stream, bytesPerSecond, (bytesRead, finished) -> {
+                final long processedMillis = bytesRead * 1000 / bytesPerSecond;
+                session.execute(() -> onTranscriptionProgress(job, processedMillis));
+            });
+            return header.toAudioInput(counted);
+        } catch (IOException ex) {
+            stream.close();
+            throw ex;
+        }
+    }
+
+    private void startTranscription(TranscriptionQueue.Job<TranscriptionJob> job, AudioInput input) {
+        if (runningJob != job) {
+            // Cancelled or preempted while the file was being opened
+            try {
+                input.close();
+            } catch (IOException ignored) {}
+            return;
+        }
+        TranscriptionJob transcription = job.payload;
+        transcription.input = input;
+        transcription.startedAt = SystemClock.elapsedRealtimeNanos();
+        RecognitionRequest request = new RecognitionRequest.Builder()
+            .setLanguage(transcription.language)
+            .setMaxResults(1)
+            .setAllowForSilence(FILE_SEGMENT_SILENCE_MS)
+            .setPreferOffline(transcription.onDevice)
+            .setAudioInput(input)
+            .build();
+        try {
+            useEngine((transcription.onDevice ? EngineMode.ON_DEVICE : EngineMode.DEFAULT).getValue());
+            RecognitionEngine engine = controller.getEngine();
+            engine.setListener(new TranscriptionListener(job));
+            engine.startListening(request);
+            Logger.info(getLogTag(), "Transcribing " + transcription.path + " as " + job.id);
+            emitTranscriptionState(transcription, "running");
+        } catch (Exception ex) {
+            Logger.error(getLogTag(), "Unable to start transcription: " + ex.getMessage(), ex);
+            finishTranscription(job, ex.getMessage());
+        }
+    }
+
+    private void onTranscriptionProgress(TranscriptionQueue.Job<TranscriptionJob> job, long processedMillis) {
+        if (runningJob != job) {
+            return;
+        }
+        job.payload.processedMillis = processedMillis;
+        eventDispatcher.emit(TRANSCRIPTION_PROGRESS_EVENT, transcriptionState(job.payload, "running"));
+    }
+
+    /**
+     * Settles the running job and moves on to the next one. {@code error} is {@code null} on success. Runs on the
+     * session actor.
+     */
+    private void finishTranscription(TranscriptionQueue.Job<TranscriptionJob> job, String error) {
+        runningJob = null;
+        TranscriptionJob transcription = job.payload;
+        closeTranscriptionInput(transcription);
+        long wallNanos = transcription.startedAt < 0 ? 0 : SystemClock.elapsedRealtimeNanos() - transcription.startedAt;
+        if (error == null) {
+            if (transcription.input != null && transcription.input.length >= 0) {
+                transcription.processedMillis = transcription.input.getDurationMillis();
+            }
+            transcriptionStats.recordCompleted(transcription.processedMillis, wallNanos);
+            emitTranscriptionState(transcription, "completed");
+            JSObject ret = new JSObject();
+            ret.put("id", transcription.id);
+            ret.put("text", transcription.getText());
+            ret.put("segments", new JSArray(transcription.segments));
+            ret.put("durationMs", transcription.processedMillis);
+            ret.put("elapsedMs", wallNanos / 1_000_000.0);
+            transcription.call.resolve(ret);
+        } else {
+            transcriptionStats.recordFailed(transcription.processedMillis, wallNanos);
+            emitTranscriptionState(transcription, "failed");
+            transcription.call.reject(error);
+        }
+        session.execute(this::runNextTranscription);
+    }
+
+    /**
+     * Gives the engine back to a live session: the running job is cancelled and queued again at its original place,
+     * to start over once the session ends. Runs on the session actor.
+     */
+    private void preemptTranscription() {
+        TranscriptionQueue.Job<TranscriptionJob> job = runningJob;
+        if (job == null) {
+            return;
+        }
+        runningJob = null;
+        if (job.payload.startedAt >= 0) {
+            cancelEngine();
+        }
+        closeTranscriptionInput(job.payload);
+        job.payload.reset();
+        transcriptionQueue.requeue(job);
+        Logger.info(getLogTag(), "Transcription " + job.id + " preempted by a live session");
+        emitTranscriptionState(job.payload, "queued");
+    }
+
+    private void rejectTranscriptions() {
+        preemptTranscription();
+        TranscriptionQueue.Job<TranscriptionJob> job;
+        while ((job = transcriptionQueue.poll()) != null) {
+            job.payload.call.reject(TRANSCRIPTION_CANCELLED);
+        }
+    }
+
+    private static void closeTranscriptionInput(TranscriptionJob transcription) {
+        if (transcription.input != null) {
+            try {
+                transcription.input.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private void emitTranscriptionState(TranscriptionJob transcription, String state) {
+        eventDispatcher.emitImmediately(TRANSCRIPTION_PROGRESS_EVENT, transcriptionState(transcription, state));
+    }
+
+    /**
+     * Captures the job's progress now and builds the event on the dispatch thread.
+     */
+    private static EventDispatcher.Payload<JSObject> transcriptionState(TranscriptionJob transcription, final String state) {
+        final String id = transcription.id;
+        final long processedMillis = transcription.processedMillis;
+        final long durationMillis = transcription.input != null ? transcription.input.getDurationMillis() : -1;
+        return () -> {
+            JSObject ret = new JSObject();
+            ret.put("id", id);
+            ret.put("state", state);
+            ret.put("processedMs", processedMillis);
+            if (durationMillis >= 0) {
+                ret.put("durationMs", durationMillis);
+            }
+            return ret;
+        };
+    }
+
+    /**
+     * Collects the segments of one file transcription. The whole file is a single segmented request that ends when
+     * the audio source reaches its end.
+     */
+    private class TranscriptionListener implements RecognitionEngine.Listener {
+
+        private final TranscriptionQueue.Job<TranscriptionJob> job;
+
+        TranscriptionListener(TranscriptionQueue.Job<TranscriptionJob> job) {
+            this.job = job;
+        }
+
+        private boolean isCurrent() {
+            return runningJob == job;
         }
 
+        @Override
+        public void onReadyForSpeech() {}
+
+        @Override
+        public void onBeginningOfSpeech() {}
+
+        @Override
+        public void onRmsChanged(float rmsdB) {}
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {}
+
+        @Override
+        public void onEndOfSpeech() {}
+
         @Override
         public void onError(int error) {
-            String errorMssg = getErrorText(error);
+            if (!isCurrent()) {
+                return;
+            }
+            // Trailing silence or a file without speech ends the request with no match; what was heard still counts
+            if (error == RecognitionErrors.ERROR_NO_MATCH || error == RecognitionErrors.ERROR_SPEECH_TIMEOUT) {
+                finishTranscription(job, null);
+                return;
+            }
+            ErrorRecovery recovery = ErrorRecovery.forError(error);
+            recoveryStats.recordError(recovery);
+            if (recovery == ErrorRecovery.DESTROY_AND_RECREATE) {
+                controller.discardEngine();
+            }
+            finishTranscription(job, getErrorText(error));
+        }
 
-            // Reset state synchronously on the same thread with proper synchronization
-            try {
-                lock.lock();
-                resetPartialResultsCache();
-                SpeechRecognitionPlugin.this.listening(false);
+        @Override
+        public void onResults(List<String> matches) {
+            if (!isCurrent()) {
+                return;
+            }
+            addSegment(matches);
+            finishTranscription(job, null);
+        }
 
-                // Destroy the recognizer to ensure clean state for next attempt
-                if (speechRecognizer != null) {
-                    try {
-                        speechRecognizer.cancel();
-                    } catch (Exception ignored) {}
-                    try {
-                        speechRecognizer.destroy();
-                    } catch (Exception ignored) {}
-                    speechRecognizer = null;
+        @Override
+        public void onPartialResults(List<String> matches) {}
+
+        @Override
+        public void onSegmentResults(List<String> matches) {
+            if (isCurrent()) {
+                addSegment(matches);
+            }
+        }
+
+        @Override
+        public void onEndOfSegmentedSession() {
+            if (isCurrent()) {
+                finishTranscription(job, null);
+            }
+        }
+
+        private void addSegment(List<String> matches) {
+            if (matches != null && !matches.isEmpty() && matches.get(0) != null) {
+                job.payload.segments.add(matches.get(0));
+            }
+        }
+    }
+
+    /**
+     * Package of the default recognition service, which determines the languages on offer.
+     */
+    private String getRecognizerPackage() {
+        String service = Settings.Secure.getString(getContext().getContentResolver(), VOICE_RECOGNITION_SERVICE);
+        if (service == null || service.isEmpty()) {
+            return "default";
+        }
+        int slash = service.indexOf('/');
+        return slash > 0 ? service.substring(0, slash) : service;
+    }
+
+    private String permissionStateValue(PermissionState state) {
+        switch (state) {
+            case GRANTED:
+                return "granted";
+            case DENIED:
+                return "denied";
+            case PROMPT:
+            case PROMPT_WITH_RATIONALE:
+            default:
+                return "prompt";
+        }
+    }
+
+    private class SpeechRecognitionListener implements RecognitionEngine.Listener {
+
+        private final SessionCalls<PluginCall> calls = new SessionCalls<>(session, this::onFlushTimeout);
+        private boolean partialResults;
+        private boolean deltaEncoding;
+        private AudioLevelMeter audioLevelMeter;
+        private RestartPolicy restartPolicy;
+        private RecognitionRequest restartRequest;
+        /** Engine the next utterance runs on, when it differs from the current one. */
+        private String restartEngineKey;
+        private long utteranceEndedAt = -1;
+        private String restartReason;
+        private boolean waitForSpeech;
+        private float speechSensitivity;
+        private long waitForSpeechTimeout;
+        private final Runnable restartTask = this::restartListening;
+        private final Runnable waitForSpeechTask = this::waitForSpeech;
+        private FinalResults flushedSegment;
+        private boolean commandFired;
+
+        public void setCall(PluginCall call) {
+            calls.setStart(call);
+        }
+
+        /**
+         * Resolves the pending {@code start()} call once and releases it. The result is built and sent from the
+         * dispatch thread, after the events emitted before it.
+         */
+        void resolveCall(final EventDispatcher.Payload<JSObject> data) {
+            final PluginCall pending = calls.takeStart();
+            if (pending == null) {
+                return;
+            }
+            eventDispatcher.execute(() -> {
+                JSObject ret;
+                try {
+                    ret = data == null ? null : data.build();
+                } catch (RuntimeException ex) {
+                    pending.reject(ex.getMessage());
+                    return;
                 }
-            } finally {
-                lock.unlock();
+                if (ret == null) {
+                    pending.resolve();
+                } else {
+                    pending.resolve(ret);
+                }
+            });
+        }
+
+        /**
+         * Rejects the pending {@code start()} call once and releases it.
+         */
+        void rejectCall(final String message) {
+            final PluginCall pending = calls.takeStart();
+            if (pending != null) {
+                eventDispatcher.execute(() -> pending.reject(message));
             }
+        }
+
+        public void setPartialResults(boolean partialResults) {
+            this.partialResults = partialResults;
+        }
+
+        public void setDeltaEncoding(boolean deltaEncoding) {
+            this.deltaEncoding = deltaEncoding;
+        }
 
-            Logger.error(TAG, "Recognizer error: " + errorMssg, null);
+        public void setAudioLevelMeter(AudioLevelMeter audioLevelMeter) {
+            this.audioLevelMeter = audioLevelMeter;
+        }
+
+        /**
+         * Enables continuous mode: {@code request} is replayed on the same engine after each utterance.
+         */
+        public void setRestartPolicy(RestartPolicy restartPolicy, RecognitionRequest request) {
+            this.restartPolicy = restartPolicy;
+            this.restartRequest = request;
+        }
+
+        /**
+         * Replaces the request, and the engine, used from the next utterance on.
+         */
+        void setRestartRequest(RecognitionRequest request, String engineKey) {
+            this.restartRequest = request;
+            this.restartEngineKey = engineKey;
+        }
+
+        /**
+         * Starts the engine only once the speech gate hears someone, for the first utterance and for continuous
+         * restarts after an utterance without speech.
+         */
+        public void setWaitForSpeech(boolean waitForSpeech, float sensitivity, long timeoutMs) {
+            this.waitForSpeech = waitForSpeech;
+            this.speechSensitivity = sensitivity;
+            this.waitForSpeechTimeout = timeoutMs;
+        }
 
-            if (call != null) {
-                call.reject(errorMssg);
+        /**
+         * Schedules the next utterance of a continuous session.
+         *
+         * @return {@code false} when the session is not continuous or has used all its restarts.
+         */
+        private boolean scheduleRestart(String reason, boolean productive) {
+            if (
+                restartPolicy == null ||
+                !restartPolicy.canRestart() ||
+                controller.getEngine() == null ||
+                calls.isFlushing()
+            ) {
+                return false;
             }
+            long delay = restartPolicy.nextDelay(productive);
+            utteranceEndedAt = SystemClock.elapsedRealtime();
+            restartReason = reason;
+            resetPartialResultsCache();
+            session.moveTo(SessionState.STARTING);
+            // After silence, wait for speech rather than reopening the recognizer straight away
+            session.executeDelayed(waitForSpeech && !productive ? waitForSpeechTask : restartTask, delay);
+            if (Logger.shouldLog()) {
+                Logger.debug(TAG, "Restarting continuous session in " + delay + "ms (" + reason + ")");
+            }
+            return true;
         }
 
-        @Override
-        public void onResults(Bundle results) {
-            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+        boolean isRestartPending() {
+            return utteranceEndedAt >= 0;
+        }
 
+        /**
+         * Stops capturing but lets the engine deliver the result of what it heard; a continuous session does not
+         * restart afterwards.
+         */
+        void flush(PluginCall stopCall, long requestedAt, long timeoutMs) {
+            // A repeated stop({ flush }) takes over the utterance, and the trace stays open for it
+            completeFlush(null, "aborted", false);
+            calls.setFlush(stopCall, requestedAt);
+            flushedSegment = null;
+            session.moveTo(SessionState.STOPPING);
+            // A recognizer fed from the pre-roll ring only finishes once its audio ends
+            closePreRollInput();
             try {
-                JSArray jsArray = new JSArray(matches);
-                Logger.debug(TAG, "Received final results count=" + (matches == null ? 0 : matches.size()));
-
-                if (call != null) {
-                    if (!partialResults) {
-                        call.resolve(new JSObject().put("status", "success").put("matches", jsArray));
-                    } else {
-                        JSObject ret = new JSObject();
-                        ret.put("matches", jsArray);
-                        notifyListeners(PARTIAL_RESULTS_EVENT, ret);
+                controller.getEngine().stopListening();
+            } catch (Exception ex) {
+                Logger.warn(TAG, "Unable to stop listening: " + ex.getMessage());
+                onFlushTimeout();
+                return;
+            }
+            calls.scheduleFlushTimeout(timeoutMs);
+        }
+
+        /**
+         * Resolves the pending flushed {@code stop()}, if any.
+         */
+        void completeFlush(FinalResults matches, String outcome) {
+            completeFlush(matches, outcome, true);
+        }
+
+        private void completeFlush(FinalResults matches, String outcome, boolean sessionEnded) {
+            long requestedAt = calls.getFlushRequestedAt();
+            PluginCall pending = calls.takeFlush();
+            if (pending != null) {
+                resolveStop(pending, requestedAt, matches, outcome, sessionEnded);
+            }
+        }
+
+        private void onFlushTimeout() {
+            if (!calls.isFlushing()) {
+                return;
+            }
+            Logger.warn(TAG, "No final result before the stop timeout");
+            if (controller.isActive(this)) {
+                stopSession();
+                finishAudioRecording();
+                resolveCall(SpeechRecognitionPlugin::emptyMatches);
+            }
+            completeFlush(null, "timeout");
+        }
+
+        void cancelRestart() {
+            session.cancel(restartTask);
+            session.cancel(waitForSpeechTask);
+            closeSpeechGate();
+            utteranceEndedAt = -1;
+        }
+
+        /**
+         * Listens for speech with the {@link SpeechGate} and starts the engine once it is heard. Runs on the session
+         * actor while the session is {@link SessionState#STARTING}.
+         *
+         * <p>Not hearing speech within {@code waitForSpeechTimeout} is reported like a recognizer speech timeout. If
+         * the microphone cannot be opened, the engine starts without waiting.</p>
+         */
+        void waitForSpeech() {
+            if (!controller.isActive(this) || session.getState() != SessionState.STARTING) {
+                return;
+            }
+            closeSpeechGate();
+            speechGate = new SpeechGate(
+                speechSensitivity,
+                waitForSpeechTimeout,
+                new SpeechGate.Callback() {
+                    @Override
+                    public void onSpeech(SpeechGate gate) {
+                        session.execute(() -> {
+                            if (releaseGate(gate)) {
+                                Logger.debug(TAG, "Speech detected, starting recognizer");
+                                restartListening();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onTimeout(SpeechGate gate) {
+                        session.execute(() -> {
+                            if (releaseGate(gate)) {
+                                onError(RecognitionErrors.ERROR_SPEECH_TIMEOUT);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(SpeechGate gate, String message) {
+                        session.execute(() -> {
+                            if (releaseGate(gate)) {
+                                Logger.warn(TAG, message + "; starting recognizer without waiting for speech");
+                                restartListening();
+                            }
+                        });
                     }
                 }
+            );
+            speechGate.start();
+            eventDispatcher.emit(LISTENING_EVENT, () -> new JSObject().put("status", "waiting"));
+        }
+
+        private boolean releaseGate(SpeechGate gate) {
+            if (speechGate != gate || !controller.isActive(this)) {
+                return false;
+            }
+            speechGate = null;
+            return true;
+        }
+
+        private void restartListening() {
+            if (
+                !controller.isActive(this) ||
+                session.getState() != SessionState.STARTING ||
+                controller.getEngine() == null
+            ) {
+                return;
+            }
+            long now = SystemClock.elapsedRealtimeNanos();
+            timeline.mark(LatencyTimeline.Mark.START_REQUESTED, now);
+            timeline.mark(LatencyTimeline.Mark.SESSION_STARTED, now);
+            try {
+                if (restartEngineKey != null && !restartEngineKey.equals(controller.getEngineKey())) {
+                    useEngine(restartEngineKey);
+                    controller.activate(this, traceRecorder != null ? traceRecorder.wrap(this) : this);
+                }
+                restartEngineKey = null;
+                recordTraceStart(restartRequest);
+                controller.getEngine().startListening(withPreRoll(restartRequest));
+                timeline.mark(LatencyTimeline.Mark.LISTEN_REQUESTED, SystemClock.elapsedRealtimeNanos());
             } catch (Exception ex) {
-                if (call != null) {
-                    call.resolve(new JSObject().put("status", "error").put("message", ex.getMessage()));
+                Logger.error(TAG, "Error starting recognizer: " + ex.getMessage(), ex);
+                utteranceEndedAt = -1;
+                finishAudioRecording();
+                failSession();
+                rejectCall(ex.getMessage());
+            }
+        }
+
+        @Override
+        public void onReadyForSpeech() {
+            timeline.mark(LatencyTimeline.Mark.READY_FOR_SPEECH, SystemClock.elapsedRealtimeNanos());
+            // Each utterance may fire one command
+            commandFired = false;
+            session.moveTo(SessionState.LISTENING);
+            recordRecreation();
+            if (utteranceEndedAt >= 0) {
+                final long gapMs = SystemClock.elapsedRealtime() - utteranceEndedAt;
+                final int restartCount = restartPolicy.getRestartCount();
+                final String reason = restartReason;
+                utteranceEndedAt = -1;
+                eventDispatcher.emit(RESTART_EVENT, () ->
+                    new JSObject().put("restartCount", restartCount).put("gapMs", gapMs).put("reason", reason)
+                );
+            }
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            timeline.mark(LatencyTimeline.Mark.BEGINNING_OF_SPEECH, SystemClock.elapsedRealtimeNanos());
+            eventDispatcher.emit(LISTENING_EVENT, () -> new JSObject().put("status", "started"));
+            Logger.debug(TAG, "Listening started");
+        }
+
+        @Override
+        public void onRmsChanged(float rmsdB) {
+            if (audioLevelMeter == null || !audioLevelMeter.add(rmsdB, SystemClock.uptimeMillis())) {
+                return;
+            }
+            final float peak = audioLevelMeter.getPeak();
+            final float average = audioLevelMeter.getAverage();
+            eventDispatcher.emit(AUDIO_LEVEL_EVENT, () -> new JSObject().put("peak", peak).put("average", average));
+        }
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {
+            AudioFileRecorder recorder = audioRecorder;
+            if (recorder != null) {
+                recorder.write(buffer);
+            }
+            AudioChunker chunker = audioChunker;
+            if (chunker != null) {
+                // A large buffer may complete several frames at once
+                emitAudioChunks(chunker, chunker.write(buffer));
+            }
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            timeline.mark(LatencyTimeline.Mark.END_OF_SPEECH, SystemClock.elapsedRealtimeNanos());
+            session.moveTo(SessionState.STOPPING);
+            if (preRollInput != null) {
+                // The recognizer drains its input until the result; that audio opens the next utterance
+                preRollRecorder.markEndOfSpeech();
+            }
+            AudioChunker chunker = audioChunker;
+            if (chunker != null) {
+                emitAudioChunks(chunker, chunker.flush());
+            }
+            eventDispatcher.emit(LISTENING_EVENT, () -> new JSObject().put("status", "stopped"));
+        }
+
+        @Override
+        public void onError(int error) {
+            String errorMssg = getErrorText(error);
+            ErrorRecovery recovery = ErrorRecovery.forError(error);
+            recoveryStats.recordError(recovery);
+            finishTimeline("error");
+
+            if (error == RecognitionErrors.ERROR_NO_MATCH && scheduleRestart("noMatch", false)) {
+                return;
+            }
+            if (error == RecognitionErrors.ERROR_SPEECH_TIMEOUT && scheduleRestart("speechTimeout", false)) {
+                return;
+            }
+
+            // Callbacks run on the session actor, so state can be reset in place
+            session.moveTo(SessionState.ERROR);
+            resetPartialResultsCache();
+
+            // Only tear the recognizer down when its connection is suspect; recreating it costs a service rebind
+            if (controller.getEngine() != null && recovery != ErrorRecovery.KEEP) {
+                cancelEngine();
+                if (recovery == ErrorRecovery.DESTROY_AND_RECREATE) {
+                    controller.discardEngine();
+                    recreatePending = true;
+                }
+            }
+            controller.deactivate();
+            session.moveTo(SessionState.IDLE);
+
+            Logger.error(TAG, "Recognizer error: " + errorMssg + " (recovery: " + recovery.getValue() + ")", null);
+            finishAudioRecording();
+            if (error == RecognitionErrors.ERROR_NO_MATCH || error == RecognitionErrors.ERROR_SPEECH_TIMEOUT) {
+                completeFlush(new FinalResults(new ArrayList<>(), false), "noMatch");
+            } else {
+                completeFlush(null, "error");
+            }
+
+            if (controller.getEngine() == null && initStrategy == InitStrategy.PREWARM) {
+                prewarmRecognizer();
+            }
+
+            rejectCall(errorMssg);
+        }
+
+        @Override
+        public void onResults(List<String> results) {
+            timeline.mark(LatencyTimeline.Mark.RESULTS, SystemClock.elapsedRealtimeNanos());
+            matchCommand(results, true);
+            final FinalResults matches = new FinalResults(results, true);
+            boolean restarting = false;
+
+            try {
+                if (Logger.shouldLog()) {
+                    Logger.debug(TAG, "Received final results count=" + (results == null ? 0 : results.size()));
                 }
+
+                if (!partialResults && restartPolicy == null) {
+                    resolveCall(() ->
+                        new JSObject().put("status", "success").put("matches", new JSArray(matches.get()))
+                    );
+                } else {
+                    eventDispatcher.emitImmediately(PARTIAL_RESULTS_EVENT, () ->
+                        new JSObject().put("matches", new JSArray(matches.get()))
+                    );
+                }
+                if (restartPolicy != null) {
+                    appendTranscript(matches);
+                }
+                finishTimeline("result");
+                restarting = scheduleRestart("result", results != null && !results.isEmpty());
+            } catch (Exception ex) {
+                final String message = ex.getMessage();
+                resolveCall(() -> new JSObject().put("status", "error").put("message", message));
             } finally {
-                try {
-                    lock.lock();
+                if (!restarting) {
+                    finishAudioRecording();
                     resetPartialResultsCache();
-                } finally {
-                    lock.unlock();
+                    session.moveTo(SessionState.IDLE);
+                    completeFlush(matches, "result");
                 }
             }
         }
 
         @Override
-        public void onPartialResults(Bundle partialResultsBundle) {
-            ArrayList<String> matches = partialResultsBundle.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-            JSArray matchesJSON = new JSArray(matches);
+        public void onPartialResults(final List<String> matches) {
+            if (matches == null || matches.isEmpty()) {
+                return;
+            }
+            timeline.mark(LatencyTimeline.Mark.FIRST_PARTIAL_RESULT, SystemClock.elapsedRealtimeNanos());
+            // Built at dispatch time so a rate-limited update superseded by a newer one is never serialized
+            // and deltas are always relative to the last update JavaScript actually received. The rewriter is the
+            // one of the session that heard it, even if another session replaced it before the dispatch.
+            final TextRewriter.Matcher rewriter = partialRewriter;
+            eventDispatcher.emit(PARTIAL_RESULTS_EVENT, () -> buildPartialResults(matches, rewriter));
+            if (matchCommand(matches, false) && cancelOnCommand) {
+                endUtteranceOnCommand(matches.get(0));
+            }
+        }
+
+        /**
+         * Matches the recognizer's words, before post-processing, against the registered commands and reports the
+         * first command of the utterance. Partial results are matched on their top hypothesis, final results on
+         * every hypothesis in order.
+         *
+         * @return whether a command fired.
+         */
+        private boolean matchCommand(List<String> hypotheses, final boolean isFinal) {
+            CommandMatcher commands = commandMatcher;
+            if (commands == null || commandFired || hypotheses == null) {
+                return false;
+            }
+            int candidates = isFinal ? hypotheses.size() : Math.min(1, hypotheses.size());
+            for (int i = 0; i < candidates; i++) {
+                final String transcript = hypotheses.get(i);
+                final int index = commands.match(transcript, isFinal);
+                if (index == CommandMatcher.NO_MATCH) {
+                    continue;
+                }
+                commandFired = true;
+                final String phrase = commands.getPhrase(index);
+                eventDispatcher.emitImmediately(COMMAND_MATCHED_EVENT, () ->
+                    new JSObject()
+                        .put("phrase", phrase)
+                        .put("index", index)
+                        .put("transcript", transcript)
+                        .put("final", isFinal)
+                );
+                if (Logger.shouldLog()) {
+                    Logger.debug(TAG, "Command matched: " + phrase + (isFinal ? " (final)" : " (partial)"));
+                }
+                return true;
+            }
+            return false;
+        }
 
+        /**
+         * Drops the rest of an utterance whose command already fired. A continuous session listens for the next
+         * command; otherwise the session ends and {@code start()} resolves with the hypothesis that matched.
+         */
+        private void endUtteranceOnCommand(String transcript) {
+            final List<String> matches = Collections.singletonList(transcript);
+            if (traceRecorder != null) {
+                traceRecorder.recordCancel();
+            }
+            cancelEngine();
+            finishTimeline("command");
+            if (scheduleRestart("command", true)) {
+                return;
+            }
+            resolveCall(() -> new JSObject().put("status", "success").put("matches", new JSArray(matches)));
+            finishAudioRecording();
+            resetPartialResultsCache();
+            session.moveTo(SessionState.IDLE);
+            completeFlush(new FinalResults(matches, false), "command");
+        }
+
+        private JSObject buildPartialResults(List<String> results, TextRewriter.Matcher rewriter) {
             try {
-                lock.lock();
-                if (matches != null && matches.size() > 0 && !previousPartialResults.equals(matchesJSON)) {
-                    previousPartialResults = matchesJSON;
-                    JSObject ret = new JSObject();
-                    ret.put("matches", previousPartialResults);
-                    notifyListeners(PARTIAL_RESULTS_EVENT, ret);
-                    Logger.debug(TAG, "Partial results updated");
+                List<String> matches = rewriter == null ? results : rewriter.rewriteAll(results);
+                if (!partialResultsEncoder.update(matches)) {
+                    return null;
+                }
+                JSObject ret = new JSObject();
+                if (deltaEncoding) {
+                    ret.put("deltas", buildDeltas(partialResultsEncoder.encode(matches)));
+                } else {
+                    partialResultsEncoder.replace(matches);
+                    ret.put("matches", new JSArray(matches));
                 }
+                Logger.debug(TAG, "Partial results updated");
+                return ret;
             } catch (Exception ex) {
-            } finally {
-                lock.unlock();
+                return null;
+            }
+        }
+
+        private JSArray buildDeltas(List<PartialResultsEncoder.Delta> deltas) {
+            JSArray array = new JSArray();
+            for (PartialResultsEncoder.Delta delta : deltas) {
+                JSObject item = new JSObject();
+                item.put("prefixLength", delta.prefixLength);
+                item.put("text", delta.text);
+                array.put(item);
             }
+            return array;
         }
 
         @Override
-        public void onSegmentResults(Bundle results) {
-            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-            if (matches == null) {
+        public void onSegmentResults(List<String> results) {
+            if (results == null) {
                 return;
             }
+            final FinalResults matches = new FinalResults(results, true);
             try {
-                JSObject ret = new JSObject();
-                ret.put("matches", new JSArray(matches));
-                notifyListeners(SEGMENT_RESULTS_EVENT, ret);
+                eventDispatcher.emit(SEGMENT_RESULTS_EVENT, () ->
+                    new JSObject().put("matches", new JSArray(matches.get()))
+                );
+                appendTranscript(matches);
+                if (calls.isFlushing()) {
+                    flushedSegment = matches;
+                }
                 Logger.debug(TAG, "Segment results emitted");
             } catch (Exception ignored) {}
         }
 
         @Override
         public void onEndOfSegmentedSession() {
-            notifyListeners(END_OF_SEGMENT_EVENT, new JSObject());
+            finishAudioRecording();
+            session.moveTo(SessionState.IDLE);
+            eventDispatcher.emit(END_OF_SEGMENT_EVENT, JSObject::new);
+            completeFlush(
+                flushedSegment != null ? flushedSegment : new FinalResults(new ArrayList<>(), false),
+                "result"
+            );
             Logger.debug(TAG, "Segmented session ended");
         }
+    }
 
-        @Override
-        public void onEvent(int eventType, Bundle params) {}
+    /**
+     * Appends the top hypothesis of a finished segment to the native transcript. The transcript is only touched on the
+     * dispatch thread, after the result events that came before it.
+     */
+    private void appendTranscript(final FinalResults results) {
+        eventDispatcher.execute(() -> {
+            List<String> matches = results.get();
+            if (matches == null || matches.isEmpty()) {
+                return;
+            }
+            long offset = transcript.append(matches.get(0));
+            if (offset < 0) {
+                return;
+            }
+            // Never rate limited: JavaScript mirrors the transcript from these events and cannot miss one
+            final String text = transcript.read(offset, transcript.getEndOffset());
+            eventDispatcher.emitImmediately(TRANSCRIPT_EVENT, () ->
+                new JSObject().put("offset", offset).put("text", text)
+            );
+        });
     }
 
-    private String getErrorText(int errorCode) {
-        switch (errorCode) {
-            case SpeechRecognizer.ERROR_AUDIO:
-                return "Audio recording error";
-            case SpeechRecognizer.ERROR_CLIENT:
-                return "Client side error";
-            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS:
-                return "Insufficient permissions";
-            case SpeechRecognizer.ERROR_NETWORK:
-                return "Network error";
-            case SpeechRecognizer.ERROR_NETWORK_TIMEOUT:
-                return "Network timeout";
-            case SpeechRecognizer.ERROR_NO_MATCH:
-                return "No match";
-            case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
-                return "RecognitionService busy";
-            case SpeechRecognizer.ERROR_SERVER:
-                return "Error from server";
-            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT:
-                return "No speech input";
-            case SpeechRecognizer.ERROR_SERVER_DISCONNECTED:
-                return "Server disconnected";
-            default:
-                return "Didn't understand, please try again. Error code: " + errorCode;
+    /**
+     * Final hypotheses of an utterance, rewritten on first use. Every consumer runs on the dispatch thread, so
+     * post-processing stays off the session actor and runs once however many events and calls report the result.
+     * Created on the session actor, it keeps the rewriter current at that time.
+     */
+    private final class FinalResults {
+
+        private final List<String> results;
+        private final TextRewriter.Matcher rewriter;
+        private List<String> rewritten;
+
+        /**
+         * @param rewrite whether {@code postProcessing} applies; command hypotheses are reported as heard.
+         */
+        FinalResults(List<String> results, boolean rewrite) {
+            this.results = results;
+            this.rewriter = rewrite ? finalRewriter : null;
+        }
+
+        List<String> get() {
+            if (rewriter == null) {
+                return results;
+            }
+            if (rewritten == null) {
+                rewritten = rewriter.rewriteAll(results);
+            }
+            return rewritten;
         }
     }
+
+    /**
+     * Rewrites every hypothesis of the sessions started from now on with {@code rewriter}, or leaves them as is when
+     * {@code null}. Runs on the session actor.
+     */
+    private void setTextRewriter(TextRewriter rewriter) {
+        textRewriter = rewriter;
+        finalRewriter = rewriter == null ? null : rewriter.newMatcher();
+        partialRewriter = rewriter == null ? null : rewriter.newMatcher();
+    }
+
+    /**
+     * Rewriting statistics of the last session that used a rewriter, kept after it ended. Runs on the dispatch thread,
+     * which updates them; the rewriters are captured on the session actor.
+     */
+    private static JSObject postProcessingToJSObject(
+        TextRewriter rewriter,
+        TextRewriter.Matcher partialMatcher,
+        TextRewriter.Matcher finalMatcher
+    ) {
+        JSObject stages = new JSObject()
+            .put("partial", rewriterStatsToJSObject(partialMatcher))
+            .put("final", rewriterStatsToJSObject(finalMatcher));
+        return new JSObject().put("patterns", rewriter.getPatternCount()).put("stages", stages);
+    }
+
+    private static JSObject rewriterStatsToJSObject(TextRewriter.Matcher matcher) {
+        long count = matcher.getCount();
+        return new JSObject()
+            .put("hypotheses", count)
+            .put("meanUs", count == 0 ? 0 : matcher.getTotalNanos() / 1000.0 / count)
+            .put("maxUs", matcher.getMaxNanos() / 1000.0);
+    }
+
+    private String getErrorText(int errorCode) {
+        return RecognitionErrors.getMessage(errorCode);
+    }
 }
@@ -0,0 +1,54 @@
+package app.capgo.speechrecognition;
+
+import app.capgo.speechrecognition.core.AudioInput;
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One {@code transcribeFile()} request. Owned by the session actor from submission to completion.
+ */
+class TranscriptionJob {
+
+    final String id;
+    final String path;
+    final String language;
+    final boolean onDevice;
+    final PluginCall call;
+    final List<String> segments = new ArrayList<>();
+    AudioInput input;
+    long startedAt = -1;
+    long processedMillis;
+
+    TranscriptionJob(String id, String path, String language, boolean onDevice, PluginCall call) {
+        this.id = id;
+        this.path = path;
+        this.language = language;
+        this.onDevice = onDevice;
+        this.call = call;
+    }
+
+    /**
+     * Resets the progress of a job that was preempted before it finished, so it starts over from the beginning.
+     */
+    void reset() {
+        segments.clear();
+        input = null;
+        startedAt = -1;
+        processedMillis = 0;
+    }
+
+    String getText() {
+        StringBuilder text = new StringBuilder();
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(segment);
+        }
+        return text.toString();
+    }
+}
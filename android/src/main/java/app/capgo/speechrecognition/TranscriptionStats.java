@@ -0,0 +1,58 @@
+package app.capgo.speechrecognition;
+
+import com.getcapacitor.JSObject;
+
+/**
+ * Counts finished file transcriptions and how fast they ran, as seconds of audio recognized per second of wall
+ * time.
+ *
+ * <p>Only touched from the session actor, so no synchronization is needed.</p>
+ */
+public class TranscriptionStats {
+
+    private int completed;
+    private int failed;
+    private int cancelled;
+    private long audioMillis;
+    private long wallNanos;
+
+    /**
+     * Records a job that ran to the end of its audio.
+     */
+    public void recordCompleted(long jobAudioMillis, long jobWallNanos) {
+        completed++;
+        audioMillis += jobAudioMillis;
+        wallNanos += jobWallNanos;
+    }
+
+    /**
+     * Records a job that failed; the audio it processed before failing still counts towards throughput.
+     */
+    public void recordFailed(long jobAudioMillis, long jobWallNanos) {
+        failed++;
+        audioMillis += jobAudioMillis;
+        wallNanos += jobWallNanos;
+    }
+
+    public void recordCancelled() {
+        cancelled++;
+    }
+
+    /**
+     * Audio seconds recognized per wall-clock second, {@code 0} before the first job finishes.
+     */
+    public double getThroughput() {
+        return wallNanos == 0 ? 0 : (audioMillis / 1000.0) / (wallNanos / 1_000_000_000.0);
+    }
+
+    public JSObject toJSObject() {
+        JSObject ret = new JSObject();
+        ret.put("completed", completed);
+        ret.put("failed", failed);
+        ret.put("cancelled", cancelled);
+        ret.put("audioSeconds", audioMillis / 1000.0);
+        ret.put("wallSeconds", wallNanos / 1_000_000_000.0);
+        ret.put("throughput", getThroughput());
+        return ret;
+    }
+}
@@ -0,0 +1,108 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of one partial-result update as the recognizer delivers it: a dictated sentence growing word by word, with
+ * {@code nBest} alternative hypotheses that share most of their prefix.
+ *
+ * <p>Run with the {@code gc} profiler (enabled in {@code build.gradle}) to read the allocation per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartialResultsEncoderBenchmark {
+
+    private static final String[] WORDS = (
+        "the quick brown fox jumps over the lazy dog while the recognizer keeps streaming partial hypotheses " +
+        "for every word the user says until the utterance ends and the final result arrives"
+    ).split(" ");
+
+    @Param({ "1", "5", "20" })
+    public int nBest;
+
+    private List<List<String>> updates;
+    private PartialResultsEncoder encoder;
+    private PartialResultsEncoder settled;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void buildUpdates() {
+        updates = new ArrayList<>();
+        StringBuilder sentence = new StringBuilder();
+        for (String word : WORDS) {
+            if (sentence.length() > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(word);
+            List<String> hypotheses = new ArrayList<>(nBest);
+            for (int i = 0; i < nBest; i++) {
+                // Alternatives differ near the tail, as real n-best lists do
+                hypotheses.add(i == 0 ? sentence.toString() : sentence + " " + WORDS[i % WORDS.length]);
+            }
+            updates.add(hypotheses);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetEncoder() {
+        encoder = new PartialResultsEncoder();
+        index = 0;
+        settled = new PartialResultsEncoder();
+        settled.replace(updates.get(updates.size() - 1));
+    }
+
+    private List<String> nextUpdate() {
+        List<String> update = updates.get(index);
+        index++;
+        if (index == updates.size()) {
+            // A new utterance starts from empty hypotheses
+            index = 0;
+            encoder.reset();
+        }
+        return update;
+    }
+
+    @Benchmark
+    public void fullSnapshot(Blackhole blackhole) {
+        List<String> update = nextUpdate();
+        if (encoder.update(update)) {
+            encoder.replace(update);
+            blackhole.consume(update);
+        }
+    }
+
+    @Benchmark
+    public void deltaEncoding(Blackhole blackhole) {
+        List<String> update = nextUpdate();
+        if (encoder.update(update)) {
+            blackhole.consume(encoder.encode(update));
+        }
+    }
+
+    /**
+     * Recognizers often repeat the previous hypotheses verbatim; those updates must be rejected without allocating.
+     */
+    @Benchmark
+    public boolean duplicateUpdate() {
+        return settled.update(updates.get(updates.size() - 1));
+    }
+}
@@ -0,0 +1,61 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of rewriting one n-best result as the rule set grows: the automaton scans each hypothesis once, so time per
+ * result should stay flat from a handful of rules to thousands.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextRewriterBenchmark {
+
+    // The plugin's default maxResults
+    private static final int N_BEST = 5;
+
+    @Param({ "10", "1000", "10000" })
+    public int rules;
+
+    private List<String> hypotheses;
+    private TextRewriter.Matcher matcher;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        TextRewriter.Builder builder = new TextRewriter.Builder().setNormalizeNumbers(true).replace("cap go", "Capgo");
+        for (int i = 0; i < rules; i++) {
+            if (i % 10 == 0) {
+                builder.mask("blocked" + i);
+            } else {
+                builder.replace("term" + i, "Term" + i);
+            }
+        }
+        matcher = builder.build().newMatcher();
+        hypotheses = new ArrayList<>();
+        for (int i = 0; i < N_BEST; i++) {
+            hypotheses.add("please send twenty five dollars to the cap go account by friday term7 and term" + i);
+        }
+    }
+
+    @Benchmark
+    public List<String> rewriteNBest() {
+        return matcher.rewriteAll(hypotheses);
+    }
+}
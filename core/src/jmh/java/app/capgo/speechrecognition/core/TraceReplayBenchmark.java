@@ -0,0 +1,236 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replays a recorded continuous session as fast as possible through the same per-callback work the plugin does on
+ * the JVM side: events go through the {@link EventDispatcher} with the session's rate limit, partial results are
+ * delta-encoded when dispatched, and final results are appended to the transcript on the dispatch queue.
+ *
+ * <p>The dispatch queue is drained on the benchmark thread after each callback, on a virtual clock that advances by
+ * the recorded 20 ms between callbacks, so {@code partialRateLimit} drops and delays events as it would on a device.
+ * The bridge itself is not included: dispatched payloads go to a {@link Blackhole}.</p>
+ *
+ * <p>The trace is recorded from a {@link FakeRecognitionEngine} at setup, so the benchmark exercises both halves of
+ * {@link RecognitionTrace}. To profile a trace pulled from a device, replace {@link #trace} with its contents.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceReplayBenchmark {
+
+    private static final String[] WORDS = (
+        "the quick brown fox jumps over the lazy dog while the recognizer keeps streaming partial hypotheses"
+    ).split(" ");
+
+    private static final long CALLBACK_INTERVAL_MS = 20;
+
+    @Param({ "10", "100" })
+    public int utterances;
+
+    /** Partial result events per second, {@code 0} for unlimited. */
+    @Param({ "0", "10" })
+    public int partialRateLimit;
+
+    private String trace;
+    private List<FakeRecognitionEngine.Script> scripts;
+
+    /**
+     * Single-threaded dispatch queue on a virtual clock.
+     */
+    private static final class ManualQueue implements EventDispatcher.Queue {
+
+        private static final class Delayed {
+
+            final Runnable task;
+            final long at;
+            final long order;
+
+            Delayed(Runnable task, long at, long order) {
+                this.task = task;
+                this.at = at;
+                this.order = order;
+            }
+        }
+
+        private final ArrayDeque<Runnable> ready = new ArrayDeque<>();
+        private final PriorityQueue<Delayed> delayed = new PriorityQueue<>((a, b) ->
+            a.at != b.at ? Long.compare(a.at, b.at) : Long.compare(a.order, b.order)
+        );
+        private long now;
+        private long posted;
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void post(Runnable task) {
+            ready.add(task);
+        }
+
+        @Override
+        public void postAtTime(Runnable task, long uptimeMillis) {
+            delayed.add(new Delayed(task, uptimeMillis, posted++));
+        }
+
+        @Override
+        public void remove(Runnable task) {
+            ready.remove(task);
+            delayed.removeIf(entry -> entry.task == task);
+        }
+
+        void advance(long millis) {
+            now += millis;
+            drain();
+        }
+
+        void drain() {
+            while (true) {
+                while (!delayed.isEmpty() && delayed.peek().at <= now) {
+                    ready.add(delayed.poll().task);
+                }
+                Runnable task = ready.poll();
+                if (task == null) {
+                    return;
+                }
+                task.run();
+            }
+        }
+    }
+
+    private static final class PluginWork implements RecognitionEngine.Listener {
+
+        private final Blackhole blackhole;
+        private final ManualQueue queue = new ManualQueue();
+        private final EventDispatcher<Object> dispatcher;
+        private final PartialResultsEncoder encoder = new PartialResultsEncoder();
+        private final TranscriptAssembler transcript = new TranscriptAssembler(1_000_000);
+
+        PluginWork(Blackhole blackhole, int partialRateLimit) {
+            this.blackhole = blackhole;
+            this.dispatcher = new EventDispatcher<>(queue, (eventName, data) -> blackhole.consume(data));
+            dispatcher.setRateLimits(Collections.singletonMap("partialResults", partialRateLimit));
+        }
+
+        @Override
+        public void onReadyForSpeech() {
+            dispatcher.emit("listeningState", () -> "started");
+            queue.advance(CALLBACK_INTERVAL_MS);
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {}
+
+        @Override
+        public void onRmsChanged(final float rmsdB) {
+            dispatcher.emit("audioLevel", () -> rmsdB);
+            queue.advance(CALLBACK_INTERVAL_MS);
+        }
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {
+            blackhole.consume(buffer);
+        }
+
+        @Override
+        public void onEndOfSpeech() {}
+
+        @Override
+        public void onError(int error) {
+            blackhole.consume(error);
+        }
+
+        @Override
+        public void onResults(final List<String> matches) {
+            dispatcher.emitImmediately("partialResults", () -> matches);
+            dispatcher.execute(() -> {
+                encoder.reset();
+                blackhole.consume(transcript.append(matches.get(0)));
+            });
+            queue.advance(CALLBACK_INTERVAL_MS);
+        }
+
+        @Override
+        public void onPartialResults(final List<String> matches) {
+            dispatcher.emit("partialResults", () -> encoder.update(matches) ? encoder.encode(matches) : null);
+            queue.advance(CALLBACK_INTERVAL_MS);
+        }
+
+        @Override
+        public void onSegmentResults(final List<String> matches) {
+            dispatcher.execute(() -> blackhole.consume(transcript.append(matches.get(0))));
+            queue.advance(CALLBACK_INTERVAL_MS);
+        }
+
+        @Override
+        public void onEndOfSegmentedSession() {}
+    }
+
+    @Setup(Level.Trial)
+    public void recordTrace(Blackhole blackhole) throws IOException {
+        FakeRecognitionEngine.Script.Builder builder = new FakeRecognitionEngine.Script.Builder().ready(0);
+        StringBuilder text = new StringBuilder();
+        for (String word : WORDS) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(word);
+            builder.rms(0, 4f).partialResults(0, text.toString(), text + " alt");
+        }
+        FakeRecognitionEngine.Script script = builder.endOfSpeech(0).results(0, text.toString()).build();
+
+        StringWriter out = new StringWriter();
+        long[] clock = { 0 };
+        RecognitionTrace.Recorder recorder = new RecognitionTrace.Recorder(out, () -> clock[0] += 20_000_000);
+        FakeRecognitionEngine engine = new FakeRecognitionEngine(script, FakeRecognitionEngine.IMMEDIATE);
+        engine.setListener(recorder.wrap(new PluginWork(blackhole, partialRateLimit)));
+        RecognitionRequest request = new RecognitionRequest.Builder().setPartialResults(true).build();
+        for (int i = 0; i < utterances; i++) {
+            recorder.recordStart(request);
+            engine.startListening(request);
+        }
+        recorder.close();
+        trace = out.toString();
+        scripts = RecognitionTrace.read(new StringReader(trace), 0);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        blackhole.consume(RecognitionTrace.read(new StringReader(trace), 0));
+    }
+
+    @Benchmark
+    public void replay(Blackhole blackhole) {
+        FakeRecognitionEngine engine = new FakeRecognitionEngine(scripts, FakeRecognitionEngine.IMMEDIATE);
+        engine.setListener(new PluginWork(blackhole, partialRateLimit));
+        RecognitionRequest request = new RecognitionRequest.Builder().setPartialResults(true).build();
+        for (int i = 0; i < scripts.size(); i++) {
+            engine.startListening(request);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Cuts a PCM stream into fixed-size frames and releases them under credit-based flow control.
+ *
+ * <p>All frames come from a pool allocated up front, so memory stays at {@code window * frameSize} however long the
+ * session runs. A frame can only be taken while the consumer holds a credit; each taken frame costs one and the
+ * consumer returns credits with {@link #grant(int)} once it has processed frames. When the consumer falls behind and
+ * every pooled frame is waiting, the oldest waiting frame is dropped to make room and the drop is counted, so the
+ * producer never blocks and never allocates.</p>
+ *
+ * <p>The producer, the consumer and credit grants may run on different threads; every method is synchronized.</p>
+ */
+public class AudioChunker {
+
+    public static final class Frame {
+
+        public final byte[] data;
+        public int length;
+        /**
+         * Position of this frame in the stream, counting dropped frames, so gaps are visible to the consumer.
+         */
+        public long sequence;
+
+        Frame(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    private final int frameSize;
+    private final int window;
+    private final ArrayDeque<Frame> free = new ArrayDeque<>();
+    private final ArrayDeque<Frame> ready = new ArrayDeque<>();
+    private Frame filling;
+    private int credits;
+    private long nextSequence;
+    private long dropped;
+
+    /**
+     * @param window number of frames that may be outstanding: the initial credits and the pool size.
+     */
+    public AudioChunker(int frameSize, int window) {
+        this.frameSize = Math.max(2, frameSize & ~1);
+        this.window = Math.max(1, window);
+        this.credits = this.window;
+        // One extra frame is being filled while the window is queued
+        for (int i = 0; i <= this.window; i++) {
+            free.add(new Frame(this.frameSize));
+        }
+    }
+
+    /**
+     * Copies {@code data} into frames. One write may complete several frames.
+     *
+     * @return the number of frames that can be taken now.
+     */
+    public synchronized int write(byte[] data) {
+        int offset = 0;
+        while (offset < data.length) {
+            if (filling == null) {
+                filling = obtainFrame();
+            }
+            int count = Math.min(data.length - offset, frameSize - filling.length);
+            System.arraycopy(data, offset, filling.data, filling.length, count);
+            filling.length += count;
+            offset += count;
+            if (filling.length == frameSize) {
+                ready.add(filling);
+                filling = null;
+            }
+        }
+        return sendable();
+    }
+
+    /**
+     * Queues the partly filled frame, e.g. at the end of an utterance.
+     *
+     * @return the number of frames that can be taken now.
+     */
+    public synchronized int flush() {
+        if (filling != null && filling.length > 0) {
+            ready.add(filling);
+            filling = null;
+        }
+        return sendable();
+    }
+
+    /**
+     * Takes the oldest waiting frame, spending one credit. The frame must be handed back with {@link #release}.
+     *
+     * @return {@code null} when no frame is waiting or no credit is left.
+     */
+    public synchronized Frame take() {
+        if (credits == 0 || ready.isEmpty()) {
+            return null;
+        }
+        credits--;
+        return ready.poll();
+    }
+
+    public synchronized void release(Frame frame) {
+        frame.length = 0;
+        free.add(frame);
+    }
+
+    /**
+     * Returns {@code count} credits, never holding more than the window.
+     *
+     * @return the number of frames that can be taken now.
+     */
+    public synchronized int grant(int count) {
+        credits = Math.min(window, credits + Math.max(0, count));
+        return sendable();
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized int getCredits() {
+        return credits;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    private int sendable() {
+        return Math.min(credits, ready.size());
+    }
+
+    private Frame obtainFrame() {
+        Frame frame = free.poll();
+        if (frame == null) {
+            // Every frame is waiting for credit: sacrifice the oldest rather than grow the pool
+            frame = ready.poll();
+            if (frame == null) {
+                // Frames are only missing while taken; keep the stream moving with a fresh one
+                frame = new Frame(frameSize);
+            } else {
+                dropped++;
+            }
+        }
+        frame.length = 0;
+        frame.sequence = nextSequence++;
+        return frame;
+    }
+}
@@ -0,0 +1,52 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 16-bit little-endian PCM fed to an engine instead of the microphone.
+ *
+ * <p>The engine reads {@link #stream} until it ends and owns it from {@code startListening} on: it closes the
+ * stream when the request finishes or is cancelled.</p>
+ */
+public final class AudioInput implements Closeable {
+
+    public final InputStream stream;
+    public final int sampleRate;
+    public final int channelCount;
+    /**
+     * Number of PCM bytes in {@link #stream}, or {@code -1} when unknown.
+     */
+    public final long length;
+
+    public AudioInput(InputStream stream, int sampleRate, int channelCount, long length) {
+        this.stream = stream;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.length = length;
+    }
+
+    public int getBytesPerSecond() {
+        return sampleRate * channelCount * 2;
+    }
+
+    /**
+     * Audio duration of {@code bytes} of this input in milliseconds.
+     */
+    public long toMillis(long bytes) {
+        return bytes * 1000 / getBytesPerSecond();
+    }
+
+    /**
+     * Total audio duration in milliseconds, or {@code -1} when the length is unknown.
+     */
+    public long getDurationMillis() {
+        return length < 0 ? -1 : toMillis(length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
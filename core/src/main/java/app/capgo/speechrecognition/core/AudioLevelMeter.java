@@ -0,0 +1,66 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Decimates the recognizer's RMS callbacks into fixed-length windows and aggregates each window into a peak and an
+ * average level, so the bridge sees a fixed frame rate instead of the platform callback rate.
+ *
+ * <p>Allocation-free: {@link #add(float, long)} only updates primitive fields.</p>
+ */
+public class AudioLevelMeter {
+
+    private final long windowMs;
+    private long windowStart = -1;
+    private float windowPeak;
+    private double windowSum;
+    private int windowCount;
+
+    private float framePeak;
+    private float frameAverage;
+
+    public AudioLevelMeter(int frameRate) {
+        this.windowMs = Math.max(1, 1000L / Math.max(1, frameRate));
+    }
+
+    /**
+     * Adds one RMS sample taken at {@code nowMs}.
+     *
+     * @return {@code true} when {@code rmsdB} closed a window; read it with {@link #getPeak()} and
+     * {@link #getAverage()}.
+     */
+    public boolean add(float rmsdB, long nowMs) {
+        if (windowStart < 0) {
+            windowStart = nowMs;
+        }
+
+        if (windowCount == 0 || rmsdB > windowPeak) {
+            windowPeak = rmsdB;
+        }
+        windowSum += rmsdB;
+        windowCount++;
+
+        if (nowMs - windowStart < windowMs) {
+            return false;
+        }
+
+        framePeak = windowPeak;
+        frameAverage = (float) (windowSum / windowCount);
+        windowStart = nowMs;
+        windowSum = 0;
+        windowCount = 0;
+        return true;
+    }
+
+    public float getPeak() {
+        return framePeak;
+    }
+
+    public float getAverage() {
+        return frameAverage;
+    }
+
+    public void reset() {
+        windowStart = -1;
+        windowSum = 0;
+        windowCount = 0;
+    }
+}
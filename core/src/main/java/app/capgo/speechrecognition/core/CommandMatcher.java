@@ -0,0 +1,127 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds registered command phrases in recognizer hypotheses, early enough to act on partial results.
+ *
+ * <p>Phrases are indexed in a word trie. Words are compared lower-cased, with punctuation ignored, and a phrase may
+ * start anywhere in the hypothesis. A complete phrase is reported as soon as no longer registered phrase could still
+ * extend it: "lights on" fires at once when it is the only phrase starting that way. With "lights on full" also
+ * registered it waits for the next word, or for the final result. Immutable, so it can be swapped while sessions
+ * run.</p>
+ */
+public final class CommandMatcher {
+
+    /**
+     * Returned by {@link #match} when nothing matched yet.
+     */
+    public static final int NO_MATCH = -1;
+
+    private static final class Node {
+
+        final Map<String, Node> children = new HashMap<>();
+        /** Index of the phrase ending here, or {@link #NO_MATCH}. */
+        int command = NO_MATCH;
+    }
+
+    private final Node root = new Node();
+    private final List<String> phrases;
+
+    public CommandMatcher(List<String> phrases) {
+        this.phrases = new ArrayList<>(phrases);
+        for (int i = 0; i < this.phrases.size(); i++) {
+            List<String> words = tokenize(this.phrases.get(i));
+            if (words.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (String word : words) {
+                Node next = node.children.get(word);
+                if (next == null) {
+                    next = new Node();
+                    node.children.put(word, next);
+                }
+                node = next;
+            }
+            // The first registration of a phrase wins
+            if (node.command == NO_MATCH) {
+                node.command = i;
+            }
+        }
+    }
+
+    public int size() {
+        return phrases.size();
+    }
+
+    public String getPhrase(int index) {
+        return phrases.get(index);
+    }
+
+    /**
+     * Looks for a command spoken in {@code text}, taking the earliest one.
+     *
+     * @param isFinal whether {@code text} is a final result, which settles phrases a longer phrase could have
+     *     extended.
+     * @return the index of the phrase, or {@link #NO_MATCH} when none is complete or the earliest is still ambiguous.
+     */
+    public int match(String text, boolean isFinal) {
+        if (text == null || root.children.isEmpty()) {
+            return NO_MATCH;
+        }
+        List<String> words = tokenize(text);
+        for (int start = 0; start < words.size(); start++) {
+            Node node = root.children.get(words.get(start));
+            if (node == null) {
+                continue;
+            }
+            int candidate = node.command;
+            int position = start + 1;
+            while (!node.children.isEmpty()) {
+                if (position == words.size()) {
+                    // The speaker may still be saying a longer command
+                    if (isFinal) {
+                        break;
+                    }
+                    return NO_MATCH;
+                }
+                Node next = node.children.get(words.get(position));
+                if (next == null) {
+                    break;
+                }
+                node = next;
+                position++;
+                if (node.command != NO_MATCH) {
+                    candidate = node.command;
+                }
+            }
+            if (candidate != NO_MATCH) {
+                return candidate;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Splits {@code text} into lower-case words, dropping everything but letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
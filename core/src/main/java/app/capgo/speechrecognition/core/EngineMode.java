@@ -0,0 +1,49 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Selects which {@code android.speech.SpeechRecognizer} a session runs on.
+ *
+ * <ul>
+ *     <li>{@link #DEFAULT} uses the system recognition service, which may stream audio to a server.</li>
+ *     <li>{@link #ON_DEVICE} requires the on-device recognizer (Android 12+) and fails when it is unavailable.</li>
+ *     <li>{@link #AUTO} uses the on-device recognizer when a model for the requested language is known to be
+ *     installed and falls back to {@link #DEFAULT} otherwise.</li>
+ * </ul>
+ *
+ * <p>Any other name refers to an engine registered with the plugin at runtime.</p>
+ */
+public enum EngineMode {
+    DEFAULT("default"),
+    ON_DEVICE("onDevice"),
+    AUTO("auto");
+
+    private final String value;
+
+    EngineMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static EngineMode fromValue(String value) {
+        EngineMode mode = find(value);
+        return mode != null ? mode : DEFAULT;
+    }
+
+    /**
+     * Returns the built-in mode named {@code value}, or {@code null} when it names a custom
+     * {@link RecognitionEngine}.
+     */
+    public static EngineMode find(String value) {
+        if (value != null) {
+            for (EngineMode mode : values()) {
+                if (mode.value.equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * How the plugin recovers its {@code SpeechRecognizer} after {@code onError}.
+ *
+ * <ul>
+ *     <li>{@link #KEEP} leaves the recognizer as is: the utterance simply ended without a usable result.</li>
+ *     <li>{@link #CANCEL_AND_REUSE} cancels the current request but keeps the bound service for the next start.</li>
+ *     <li>{@link #DESTROY_AND_RECREATE} tears the recognizer down because its connection or client state is no
+ *     longer trustworthy. The next start pays the full create and bind cost.</li>
+ * </ul>
+ */
+public enum ErrorRecovery {
+    KEEP("keep"),
+    CANCEL_AND_REUSE("cancelAndReuse"),
+    DESTROY_AND_RECREATE("destroyAndRecreate");
+
+    private final String value;
+
+    ErrorRecovery(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static ErrorRecovery forError(int errorCode) {
+        switch (errorCode) {
+            case RecognitionErrors.ERROR_NO_MATCH:
+            case RecognitionErrors.ERROR_SPEECH_TIMEOUT:
+                return KEEP;
+            case RecognitionErrors.ERROR_AUDIO:
+            case RecognitionErrors.ERROR_INSUFFICIENT_PERMISSIONS:
+            case RecognitionErrors.ERROR_NETWORK:
+            case RecognitionErrors.ERROR_NETWORK_TIMEOUT:
+            case RecognitionErrors.ERROR_RECOGNIZER_BUSY:
+            case RecognitionErrors.ERROR_SERVER:
+            case RecognitionErrors.ERROR_LANGUAGE_NOT_SUPPORTED:
+            case RecognitionErrors.ERROR_LANGUAGE_UNAVAILABLE:
+                return CANCEL_AND_REUSE;
+            case RecognitionErrors.ERROR_CLIENT:
+            case RecognitionErrors.ERROR_SERVER_DISCONNECTED:
+            default:
+                return DESTROY_AND_RECREATE;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sits between the recognition callbacks and the bridge and caps how often each event type reaches it.
+ *
+ * <p>Everything is delivered on the dispatch {@link Queue}, a background thread of its own, in emission order:
+ * payloads are built and serialized there so the recognizer thread only hands over the raw results. Event types
+ * without a rate limit are queued straight away. For a limited type at most one event is dispatched per interval;
+ * when a newer event arrives while an older one is still waiting, the older one is dropped (latest wins). Payloads are
+ * built lazily at dispatch time so dropped events never pay for JSON serialization.</p>
+ *
+ * @param <T> the event data handed to the {@link Sink}, a {@code JSObject} in the plugin.
+ */
+public class EventDispatcher<T> {
+
+    /**
+     * Builds the event data at dispatch time. Returning {@code null} cancels the dispatch.
+     */
+    public interface Payload<T> {
+        T build();
+    }
+
+    public interface Sink<T> {
+        void dispatch(String eventName, T data);
+
+        /**
+         * Called on the dispatch thread when a payload throws; the event is skipped.
+         */
+        default void onBuildFailed(String eventName, RuntimeException error) {}
+    }
+
+    /**
+     * The task queue of the dispatch thread, such as an Android {@code Handler}. Tasks run one at a time in posting
+     * order, delayed ones once {@link #uptimeMillis()} reaches their time.
+     */
+    public interface Queue {
+        long uptimeMillis();
+
+        void post(Runnable task);
+
+        void postAtTime(Runnable task, long uptimeMillis);
+
+        void remove(Runnable task);
+    }
+
+    private final class Channel implements Runnable {
+
+        private final String eventName;
+        private long minIntervalMs;
+        private long lastDispatchAt = Long.MIN_VALUE / 2;
+        private Payload<T> pending;
+        private long dropped;
+
+        Channel(String eventName) {
+            this.eventName = eventName;
+        }
+
+        @Override
+        public void run() {
+            Payload<T> payload;
+            synchronized (EventDispatcher.this) {
+                payload = pending;
+                pending = null;
+                lastDispatchAt = queue.uptimeMillis();
+            }
+            deliver(eventName, payload);
+        }
+    }
+
+    private final Queue queue;
+    private final Sink<T> sink;
+    private final Map<String, Channel> channels = new HashMap<>();
+
+    public EventDispatcher(Queue queue, Sink<T> sink) {
+        this.queue = queue;
+        this.sink = sink;
+    }
+
+    /**
+     * Replaces the per-event rate limits. Event types missing from {@code maxPerSecond} become unlimited. An event
+     * already waiting is rescheduled under its type's new limit, and sent straight away when the type became
+     * unlimited, so it still reaches the sink before any event emitted after the change.
+     */
+    public synchronized void setRateLimits(Map<String, Integer> maxPerSecond) {
+        Map<Channel, Long> previous = new HashMap<>();
+        for (Channel channel : channels.values()) {
+            previous.put(channel, channel.minIntervalMs);
+            channel.minIntervalMs = 0;
+        }
+        for (Map.Entry<String, Integer> entry : maxPerSecond.entrySet()) {
+            Integer rate = entry.getValue();
+            if (rate == null || rate <= 0) {
+                continue;
+            }
+            channelLocked(entry.getKey()).minIntervalMs = Math.max(1, 1000L / rate);
+        }
+        for (Map.Entry<Channel, Long> entry : previous.entrySet()) {
+            Channel channel = entry.getKey();
+            if (channel.pending != null && channel.minIntervalMs != entry.getValue()) {
+                queue.remove(channel);
+                scheduleLocked(channel);
+            }
+        }
+    }
+
+    /**
+     * Emits an event, subject to the rate limit of its type.
+     */
+    public void emit(final String eventName, final Payload<T> payload) {
+        synchronized (this) {
+            Channel channel = channels.get(eventName);
+            if (channel != null && channel.minIntervalMs > 0) {
+                if (channel.pending != null) {
+                    channel.pending = payload;
+                    channel.dropped++;
+                    return;
+                }
+                channel.pending = payload;
+                scheduleLocked(channel);
+                return;
+            }
+        }
+        queue.post(() -> deliver(eventName, payload));
+    }
+
+    /**
+     * Emits an event right away regardless of the rate limit, superseding any event of the same type still waiting.
+     * Used for events that must never be dropped, such as final results.
+     */
+    public void emitImmediately(final String eventName, final Payload<T> payload) {
+        synchronized (this) {
+            Channel channel = channels.get(eventName);
+            if (channel != null) {
+                if (channel.pending != null) {
+                    queue.remove(channel);
+                    channel.pending = null;
+                    channel.dropped++;
+                }
+                channel.lastDispatchAt = queue.uptimeMillis();
+            }
+        }
+        queue.post(() -> deliver(eventName, payload));
+    }
+
+    /**
+     * Runs {@code task} on the dispatch thread after every event emitted so far, e.g. to settle a plugin call in
+     * order with the events that preceded it or to touch state only payload builders use.
+     */
+    public void execute(Runnable task) {
+        queue.post(task);
+    }
+
+    /**
+     * Number of events of {@code eventName} dropped because a newer one superseded them.
+     */
+    public synchronized long getDroppedCount(String eventName) {
+        Channel channel = channels.get(eventName);
+        return channel == null ? 0 : channel.dropped;
+    }
+
+    /**
+     * Discards the event of {@code eventName} waiting for its rate limit, if any. It is not counted as dropped.
+     */
+    public synchronized void discard(String eventName) {
+        Channel channel = channels.get(eventName);
+        if (channel != null && channel.pending != null) {
+            queue.remove(channel);
+            channel.pending = null;
+        }
+    }
+
+    /**
+     * Discards every waiting event.
+     */
+    public synchronized void clear() {
+        for (Channel channel : channels.values()) {
+            queue.remove(channel);
+            channel.pending = null;
+        }
+    }
+
+    /**
+     * Posts the waiting event of {@code channel} for when its interval since the last dispatch has passed.
+     */
+    private void scheduleLocked(Channel channel) {
+        long next = channel.lastDispatchAt + channel.minIntervalMs;
+        if (queue.uptimeMillis() < next) {
+            queue.postAtTime(channel, next);
+        } else {
+            queue.post(channel);
+        }
+    }
+
+    private Channel channelLocked(String eventName) {
+        Channel channel = channels.get(eventName);
+        if (channel == null) {
+            channel = new Channel(eventName);
+            channels.put(eventName, channel);
+        }
+        return channel;
+    }
+
+    private void deliver(String eventName, Payload<T> payload) {
+        if (payload == null) {
+            return;
+        }
+        T data;
+        try {
+            data = payload.build();
+        } catch (RuntimeException ex) {
+            sink.onBuildFailed(eventName, ex);
+            return;
+        }
+        if (data != null) {
+            sink.dispatch(eventName, data);
+        }
+    }
+}
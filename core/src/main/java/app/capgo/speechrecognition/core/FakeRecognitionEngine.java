@@ -0,0 +1,325 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * In-process {@link RecognitionEngine} that replays a fixed {@link Script} for every request, so the plugin can be
+ * driven without a microphone, network or recognition service. Given several scripts, requests play them in turn and
+ * start over after the last one, which is how {@link RecognitionTrace} replays a recorded session.
+ *
+ * <p>Each step is delivered after its delay through the {@link Scheduler}. Inside the plugin the scheduler must post
+ * to the session thread; on a plain JVM {@link #IMMEDIATE} runs the script synchronously, ignoring delays.
+ * {@link #stopListening()} delivers the remaining end-of-speech and result steps at once, as a real recognizer
+ * finishes what it heard; {@link #cancel()} drops them.</p>
+ */
+public class FakeRecognitionEngine implements RecognitionEngine {
+
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    public static final Scheduler IMMEDIATE = (task, delayMs) -> task.run();
+
+    enum Kind {
+        READY,
+        BEGINNING_OF_SPEECH,
+        RMS,
+        BUFFER,
+        PARTIAL_RESULTS,
+        END_OF_SPEECH,
+        RESULTS,
+        SEGMENT_RESULTS,
+        END_OF_SEGMENTED_SESSION,
+        ERROR
+    }
+
+    static final class Step {
+
+        final Kind kind;
+        final long delayMs;
+        final List<String> matches;
+        final float rmsdB;
+        final byte[] buffer;
+        final int error;
+
+        Step(Kind kind, long delayMs, List<String> matches, float rmsdB, byte[] buffer, int error) {
+            this.kind = kind;
+            this.delayMs = delayMs;
+            this.matches = matches;
+            this.rmsdB = rmsdB;
+            this.buffer = buffer;
+            this.error = error;
+        }
+
+        boolean finishesRequest() {
+            return kind == Kind.RESULTS || kind == Kind.END_OF_SEGMENTED_SESSION || kind == Kind.ERROR;
+        }
+    }
+
+    /**
+     * Ordered callbacks replayed for each request. Every step waits {@code delayMs} after the previous one.
+     */
+    public static final class Script {
+
+        final List<Step> steps;
+
+        private Script(List<Step> steps) {
+            this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        }
+
+        /**
+         * The usual shape of one utterance: ready, speech, growing partial results of {@code words}, then the final
+         * result, with {@code stepDelayMs} between callbacks.
+         */
+        public static Script utterance(long stepDelayMs, String... words) {
+            Builder builder = new Builder().ready(stepDelayMs).beginningOfSpeech(stepDelayMs);
+            StringBuilder text = new StringBuilder();
+            for (String word : words) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(word);
+                builder.partialResults(stepDelayMs, text.toString());
+            }
+            return builder.endOfSpeech(stepDelayMs).results(stepDelayMs, text.toString()).build();
+        }
+
+        public static class Builder {
+
+            private final List<Step> steps = new ArrayList<>();
+
+            private Builder add(Kind kind, long delayMs, List<String> matches, float rmsdB, byte[] buffer, int error) {
+                steps.add(new Step(kind, Math.max(0, delayMs), matches, rmsdB, buffer, error));
+                return this;
+            }
+
+            public Builder ready(long delayMs) {
+                return add(Kind.READY, delayMs, null, 0, null, 0);
+            }
+
+            public Builder beginningOfSpeech(long delayMs) {
+                return add(Kind.BEGINNING_OF_SPEECH, delayMs, null, 0, null, 0);
+            }
+
+            public Builder rms(long delayMs, float rmsdB) {
+                return add(Kind.RMS, delayMs, null, rmsdB, null, 0);
+            }
+
+            public Builder buffer(long delayMs, byte[] buffer) {
+                return add(Kind.BUFFER, delayMs, null, 0, buffer, 0);
+            }
+
+            public Builder partialResults(long delayMs, String... matches) {
+                return add(Kind.PARTIAL_RESULTS, delayMs, Arrays.asList(matches), 0, null, 0);
+            }
+
+            public Builder endOfSpeech(long delayMs) {
+                return add(Kind.END_OF_SPEECH, delayMs, null, 0, null, 0);
+            }
+
+            public Builder results(long delayMs, String... matches) {
+                return add(Kind.RESULTS, delayMs, Arrays.asList(matches), 0, null, 0);
+            }
+
+            public Builder segmentResults(long delayMs, String... matches) {
+                return add(Kind.SEGMENT_RESULTS, delayMs, Arrays.asList(matches), 0, null, 0);
+            }
+
+            public Builder endOfSegmentedSession(long delayMs) {
+                return add(Kind.END_OF_SEGMENTED_SESSION, delayMs, null, 0, null, 0);
+            }
+
+            public Builder error(long delayMs, int error) {
+                return add(Kind.ERROR, delayMs, null, 0, null, error);
+            }
+
+            public Script build() {
+                return new Script(steps);
+            }
+        }
+    }
+
+    private final List<Script> scripts;
+    private final Scheduler scheduler;
+    private Script script;
+    private Listener listener;
+    private RecognitionRequest lastRequest;
+    private int generation;
+    private int cursor;
+    private boolean active;
+    private boolean destroyed;
+    private int startCount;
+
+    public FakeRecognitionEngine(Script script, Scheduler scheduler) {
+        this(Collections.singletonList(script), scheduler);
+    }
+
+    public FakeRecognitionEngine(List<Script> scripts, Scheduler scheduler) {
+        if (scripts.isEmpty()) {
+            throw new IllegalArgumentException("No script to replay");
+        }
+        this.scripts = new ArrayList<>(scripts);
+        this.scheduler = scheduler;
+        this.script = this.scripts.get(0);
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void startListening(RecognitionRequest request) {
+        if (destroyed) {
+            throw new IllegalStateException("Engine destroyed");
+        }
+        if (active) {
+            // The request in progress carries on, as with a real recognizer; only the new one is refused
+            notifyListener(new Step(Kind.ERROR, 0, null, 0, null, RecognitionErrors.ERROR_RECOGNIZER_BUSY));
+            closeInput(request);
+            return;
+        }
+        lastRequest = request;
+        script = scripts.get(startCount % scripts.size());
+        startCount++;
+        generation++;
+        cursor = 0;
+        active = true;
+        scheduleNext(generation);
+    }
+
+    private void scheduleNext(final int expected) {
+        // Zero-delay steps run in a loop so long scripts do not recurse through the scheduler
+        while (active && expected == generation && cursor < script.steps.size()) {
+            final Step step = script.steps.get(cursor);
+            if (step.delayMs > 0 && scheduler != IMMEDIATE) {
+                scheduler.schedule(
+                    () -> {
+                        if (active && expected == generation && cursor < script.steps.size()) {
+                            cursor++;
+                            deliver(step);
+                            scheduleNext(expected);
+                        }
+                    },
+                    step.delayMs
+                );
+                return;
+            }
+            cursor++;
+            deliver(step);
+        }
+        if (expected == generation && cursor >= script.steps.size()) {
+            finish();
+        }
+    }
+
+    private void deliver(Step step) {
+        if (step.finishesRequest()) {
+            finish();
+        }
+        notifyListener(step);
+    }
+
+    private void notifyListener(Step step) {
+        Listener target = listener;
+        if (target == null) {
+            return;
+        }
+        switch (step.kind) {
+            case READY:
+                target.onReadyForSpeech();
+                break;
+            case BEGINNING_OF_SPEECH:
+                target.onBeginningOfSpeech();
+                break;
+            case RMS:
+                target.onRmsChanged(step.rmsdB);
+                break;
+            case BUFFER:
+                target.onBufferReceived(step.buffer);
+                break;
+            case PARTIAL_RESULTS:
+                target.onPartialResults(step.matches);
+                break;
+            case END_OF_SPEECH:
+                target.onEndOfSpeech();
+                break;
+            case RESULTS:
+                target.onResults(step.matches);
+                break;
+            case SEGMENT_RESULTS:
+                target.onSegmentResults(step.matches);
+                break;
+            case END_OF_SEGMENTED_SESSION:
+                target.onEndOfSegmentedSession();
+                break;
+            case ERROR:
+                target.onError(step.error);
+                break;
+        }
+    }
+
+    @Override
+    public void stopListening() {
+        if (!active) {
+            return;
+        }
+        generation++;
+        List<Step> remaining = script.steps.subList(cursor, script.steps.size());
+        cursor = script.steps.size();
+        for (Step step : remaining) {
+            if (step.kind == Kind.END_OF_SPEECH || step.finishesRequest()) {
+                deliver(step);
+                if (!active) {
+                    break;
+                }
+            }
+        }
+        finish();
+    }
+
+    @Override
+    public void cancel() {
+        generation++;
+        finish();
+    }
+
+    /**
+     * Ends the current request. An audio input is not read, only released as a real engine would.
+     */
+    private void finish() {
+        active = false;
+        closeInput(lastRequest);
+    }
+
+    private static void closeInput(RecognitionRequest request) {
+        if (request != null && request.audioInput != null) {
+            try {
+                request.audioInput.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    @Override
+    public void destroy() {
+        cancel();
+        destroyed = true;
+        listener = null;
+    }
+
+    public boolean isListening() {
+        return active;
+    }
+
+    public int getStartCount() {
+        return startCount;
+    }
+
+    public RecognitionRequest getLastRequest() {
+        return lastRequest;
+    }
+}
@@ -0,0 +1,38 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Controls when the plugin creates its {@code android.speech.SpeechRecognizer}.
+ *
+ * <ul>
+ *     <li>{@link #LAZY} defers creation until the first {@code prepare()} or {@code start()} call.</li>
+ *     <li>{@link #EAGER} creates the recognizer while the plugin loads (legacy behaviour).</li>
+ *     <li>{@link #PREWARM} creates it while the plugin loads, binds the recognition service ahead of time and
+ *     immediately replaces any instance torn down after an error.</li>
+ * </ul>
+ */
+public enum InitStrategy {
+    LAZY("lazy"),
+    EAGER("eager"),
+    PREWARM("prewarm");
+
+    private final String value;
+
+    InitStrategy(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static InitStrategy fromValue(String value) {
+        if (value != null) {
+            for (InitStrategy strategy : values()) {
+                if (strategy.value.equalsIgnoreCase(value)) {
+                    return strategy;
+                }
+            }
+        }
+        return EAGER;
+    }
+}
@@ -0,0 +1,87 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket latency histogram in milliseconds.
+ *
+ * <p>Allocation-free: {@link #record(long)} only updates primitive fields. Percentiles are estimated as the upper
+ * bound of the bucket holding them, which is enough to spot regressions across device models.</p>
+ */
+public class LatencyHistogram {
+
+    /**
+     * Inclusive upper bounds of every bucket but the last, which collects everything slower.
+     */
+    public static final long[] BUCKET_BOUNDS_MS = { 10, 25, 50, 100, 200, 400, 800, 1600, 3200, 6400 };
+
+    private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    private long count;
+    private long sumNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+
+    public void record(long nanos) {
+        long ms = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        sumNanos += nanos;
+        minNanos = Math.min(minNanos, nanos);
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getBucket(int bucket) {
+        return counts[bucket];
+    }
+
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    public double getMeanMs() {
+        return count == 0 ? 0 : sumNanos / (double) count / 1_000_000.0;
+    }
+
+    public double getMinMs() {
+        return count == 0 ? 0 : minNanos / 1_000_000.0;
+    }
+
+    public double getMaxMs() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /**
+     * @param percentile between {@code 0} and {@code 100}.
+     * @return the upper bound of the bucket holding {@code percentile}, or the maximum for the overflow bucket.
+     */
+    public double getPercentileMs(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MS[i], getMaxMs());
+            }
+        }
+        return getMaxMs();
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sumNanos = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+    }
+}
@@ -0,0 +1,89 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.Arrays;
+
+/**
+ * Monotonic timestamps of one utterance, from the {@code start()} call to its final result.
+ *
+ * <p>Allocation-free: marks are stored in a preallocated array indexed by {@link Mark}. Only the first occurrence of
+ * each mark is kept, so repeated callbacks such as partial results do not move it.</p>
+ */
+public class LatencyTimeline {
+
+    public enum Mark {
+        /** {@code start()} was called, or a continuous session scheduled its next utterance. */
+        START_REQUESTED,
+        /** The session actor picked the request up. */
+        SESSION_STARTED,
+        /** The recognizer was created or reused and {@code startListening} was issued. */
+        LISTEN_REQUESTED,
+        READY_FOR_SPEECH,
+        BEGINNING_OF_SPEECH,
+        FIRST_PARTIAL_RESULT,
+        END_OF_SPEECH,
+        RESULTS
+    }
+
+    /**
+     * Interval between two marks, aggregated by {@link LatencyMetrics}.
+     */
+    public enum Span {
+        DISPATCH("dispatch", Mark.START_REQUESTED, Mark.SESSION_STARTED),
+        RECOGNIZER_SETUP("recognizerSetup", Mark.SESSION_STARTED, Mark.LISTEN_REQUESTED),
+        START_TO_READY("startToReady", Mark.START_REQUESTED, Mark.READY_FOR_SPEECH),
+        START_TO_SPEECH("startToSpeech", Mark.START_REQUESTED, Mark.BEGINNING_OF_SPEECH),
+        START_TO_FIRST_PARTIAL("startToFirstPartial", Mark.START_REQUESTED, Mark.FIRST_PARTIAL_RESULT),
+        END_OF_SPEECH_TO_RESULT("endOfSpeechToResult", Mark.END_OF_SPEECH, Mark.RESULTS);
+
+        private final String value;
+        final Mark from;
+        final Mark to;
+
+        Span(String value, Mark from, Mark to) {
+            this.value = value;
+            this.from = from;
+            this.to = to;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private static final Mark[] MARKS = Mark.values();
+
+    private final long[] marks = new long[MARKS.length];
+
+    public LatencyTimeline() {
+        Arrays.fill(marks, -1);
+    }
+
+    public void reset() {
+        Arrays.fill(marks, -1);
+    }
+
+    /**
+     * Records {@code mark} at {@code nowNanos} unless it was already recorded.
+     */
+    public void mark(Mark mark, long nowNanos) {
+        if (marks[mark.ordinal()] < 0) {
+            marks[mark.ordinal()] = nowNanos;
+        }
+    }
+
+    public boolean isStarted() {
+        return marks[Mark.START_REQUESTED.ordinal()] >= 0;
+    }
+
+    /**
+     * @return the duration of {@code span} in nanoseconds, or {@code -1} when either end was not reached.
+     */
+    public long duration(Span span) {
+        long from = marks[span.from.ordinal()];
+        long to = marks[span.to.ordinal()];
+        if (from < 0 || to < 0 || to < from) {
+            return -1;
+        }
+        return to - from;
+    }
+}
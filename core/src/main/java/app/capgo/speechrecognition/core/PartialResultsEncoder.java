@@ -0,0 +1,80 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the last partial hypotheses sent to JavaScript so duplicates can be dropped and, in delta mode, only the
+ * changed tail of each hypothesis has to cross the bridge.
+ */
+public class PartialResultsEncoder {
+
+    /**
+     * Changed tail of a single hypothesis: keep the first {@code prefixLength} UTF-16 units of the previous
+     * hypothesis at the same index and append {@code text}.
+     */
+    public static final class Delta {
+
+        public final int prefixLength;
+        public final String text;
+
+        Delta(int prefixLength, String text) {
+            this.prefixLength = prefixLength;
+            this.text = text;
+        }
+    }
+
+    private final List<String> previous = new ArrayList<>();
+
+    /**
+     * Records {@code matches} as the latest hypotheses.
+     *
+     * @return {@code false} when {@code matches} is empty or has the same content as the previous update.
+     */
+    public boolean update(List<String> matches) {
+        return matches != null && !matches.isEmpty() && !previous.equals(matches);
+    }
+
+    /**
+     * Computes the deltas between the previous hypotheses and {@code matches}, then records {@code matches} as the
+     * new baseline. Call only after {@link #update(List)} returned {@code true}.
+     */
+    public List<Delta> encode(List<String> matches) {
+        List<Delta> deltas = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            String current = matches.get(i) == null ? "" : matches.get(i);
+            String before = i < previous.size() ? previous.get(i) : "";
+            int prefix = commonPrefixLength(before, current);
+            deltas.add(new Delta(prefix, current.substring(prefix)));
+        }
+        replace(matches);
+        return deltas;
+    }
+
+    /**
+     * Records {@code matches} as the new baseline without computing deltas (full snapshot mode).
+     */
+    public void replace(List<String> matches) {
+        previous.clear();
+        for (String match : matches) {
+            previous.add(match == null ? "" : match);
+        }
+    }
+
+    public void reset() {
+        previous.clear();
+    }
+
+    static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // Never split a surrogate pair: JavaScript would rebuild an invalid string.
+        if (i > 0 && i < b.length() && Character.isHighSurrogate(b.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,109 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How much work an adaptive session may spend on recognition, chosen from the device's thermal status and battery
+ * saver.
+ *
+ * <ul>
+ *     <li>{@link #NORMAL} runs the session as requested.</li>
+ *     <li>{@link #REDUCED} applies under moderate thermal stress or battery saver. It caps partial result and audio
+ *     level events, keeps at most three hypotheses, lengthens segment silence and prefers the on-device
+ *     recognizer.</li>
+ *     <li>{@link #MINIMAL} applies from severe thermal stress, or moderate stress with battery saver on. It sends one
+ *     partial result per second and a single hypothesis.</li>
+ * </ul>
+ *
+ * <p>Thermal statuses use the values of {@code android.os.PowerManager.THERMAL_STATUS_*}.</p>
+ */
+public enum PowerProfile {
+    NORMAL("normal", 0, 0, 0, false),
+    REDUCED("reduced", 4, 3, 1500, true),
+    MINIMAL("minimal", 1, 1, 3000, true);
+
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    public static final int THERMAL_STATUS_SEVERE = 3;
+
+    private final String value;
+    private final int maxEventsPerSecond;
+    private final int maxResults;
+    private final int minSilenceMs;
+    private final boolean preferOnDevice;
+
+    PowerProfile(String value, int maxEventsPerSecond, int maxResults, int minSilenceMs, boolean preferOnDevice) {
+        this.value = value;
+        this.maxEventsPerSecond = maxEventsPerSecond;
+        this.maxResults = maxResults;
+        this.minSilenceMs = minSilenceMs;
+        this.preferOnDevice = preferOnDevice;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Whether sessions should move to the on-device recognizer when one is installed for their language.
+     */
+    public boolean prefersOnDevice() {
+        return preferOnDevice;
+    }
+
+    public static PowerProfile select(int thermalStatus, boolean powerSave) {
+        if (thermalStatus >= THERMAL_STATUS_SEVERE || (thermalStatus >= THERMAL_STATUS_MODERATE && powerSave)) {
+            return MINIMAL;
+        }
+        if (thermalStatus >= THERMAL_STATUS_MODERATE || powerSave) {
+            return REDUCED;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Caps the rate of a throttled event type.
+     *
+     * @param requested the rate asked for by the caller, {@code 0} or less for unlimited.
+     */
+    public int limitRate(int requested) {
+        if (maxEventsPerSecond == 0) {
+            return requested;
+        }
+        return requested > 0 ? Math.min(requested, maxEventsPerSecond) : maxEventsPerSecond;
+    }
+
+    /**
+     * Event rate limits for {@link EventDispatcher#setRateLimits} under this profile: {@code requested} with each of
+     * the {@code throttled} event types capped. {@code NORMAL} returns {@code requested} itself.
+     */
+    public Map<String, Integer> limitRates(Map<String, Integer> requested, String... throttled) {
+        if (this == NORMAL) {
+            return requested;
+        }
+        Map<String, Integer> limits = new HashMap<>(requested);
+        for (String event : throttled) {
+            Integer rate = limits.get(event);
+            limits.put(event, limitRate(rate == null ? 0 : rate));
+        }
+        return limits;
+    }
+
+    /**
+     * Adjusts {@code request} to this profile. A single utterance request stays unsegmented, and {@code NORMAL}
+     * returns {@code request} itself.
+     */
+    public RecognitionRequest adapt(RecognitionRequest request) {
+        if (this == NORMAL) {
+            return request;
+        }
+        RecognitionRequest.Builder builder = request.toBuilder().setMaxResults(
+            request.maxResults > 0 ? Math.min(request.maxResults, maxResults) : maxResults
+        );
+        if (request.isSegmented()) {
+            // Longer segments mean fewer final results, each costing a full decode
+            builder.setAllowForSilence(Math.max(request.allowForSilence, minSilenceMs));
+        }
+        return builder.build();
+    }
+}
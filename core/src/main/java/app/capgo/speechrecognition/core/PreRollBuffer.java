@@ -0,0 +1,182 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size off-heap ring of the most recent PCM, written continuously by one capture thread.
+ *
+ * <p>{@link #openStream(int)} starts a reader a given number of bytes in the past. It returns the buffered audio
+ * first and then follows the writer live, blocking until more audio arrives. Pre-roll never reaches back into audio
+ * an earlier reader already returned, so back-to-back sessions do not hear the same words twice. Audio a reader
+ * returns after {@link #markEndOfSpeech()} does not count as returned: a recognizer keeps draining its input until
+ * it delivers the result, and what it reads then belongs to the next utterance. A reader that falls more than a ring
+ * behind skips ahead to the oldest audio still buffered and counts what it missed. The writer never waits for
+ * readers. Each side copies through its own view of the ring, so steady-state reads and writes allocate nothing.</p>
+ */
+public final class PreRollBuffer {
+
+    private final int capacity;
+    private final ByteBuffer ring;
+    private final ByteBuffer writerView;
+    /** Total bytes ever written. Guarded by {@code this}. */
+    private long written;
+    /** Furthest position any reader has returned, up to the end of speech of the current utterance. */
+    private long consumed;
+    private boolean speechEnded;
+    private long overrunBytes;
+    private boolean closed;
+
+    /**
+     * @param capacity ring size in bytes, rounded down to whole 16-bit samples.
+     */
+    public PreRollBuffer(int capacity) {
+        this.capacity = capacity & ~1;
+        if (this.capacity <= 0) {
+            throw new IllegalArgumentException("capacity must hold at least one sample");
+        }
+        this.ring = ByteBuffer.allocateDirect(this.capacity);
+        this.writerView = ring.duplicate();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends {@code length} bytes, overwriting the oldest audio once the ring is full.
+     */
+    public synchronized void write(byte[] data, int offset, int length) {
+        if (closed || length <= 0) {
+            return;
+        }
+        if (length > capacity) {
+            offset += length - capacity;
+            written += length - capacity;
+            length = capacity;
+        }
+        int position = (int) (written % capacity);
+        int first = Math.min(length, capacity - position);
+        writerView.clear();
+        writerView.position(position);
+        writerView.put(data, offset, first);
+        if (first < length) {
+            writerView.position(0);
+            writerView.put(data, offset + first, length - first);
+        }
+        written += length;
+        notifyAll();
+    }
+
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Bytes readers skipped because the writer lapped them.
+     */
+    public synchronized long getOverrunBytes() {
+        return overrunBytes;
+    }
+
+    /**
+     * Opens a reader starting {@code preRollBytes} before the newest audio, or at the oldest audio not yet returned
+     * by a reader.
+     */
+    public synchronized InputStream openStream(int preRollBytes) {
+        speechEnded = false;
+        long start = Math.max(consumed, written - Math.min(Math.max(0, preRollBytes), capacity));
+        return new Reader(Math.max(0, start) & ~1L);
+    }
+
+    /**
+     * Marks the end of speech of the utterance being read: audio returned from now on, until the next
+     * {@link #openStream(int)}, stays available as pre-roll for the next one.
+     */
+    public synchronized void markEndOfSpeech() {
+        speechEnded = true;
+    }
+
+    /**
+     * Ends every open stream once it has returned what was written before.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private final class Reader extends InputStream {
+
+        private final ByteBuffer view = ring.duplicate();
+        private final byte[] single = new byte[1];
+        private long position;
+        private boolean ended;
+
+        Reader(long position) {
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            synchronized (PreRollBuffer.this) {
+                while (!ended && position == written) {
+                    if (closed) {
+                        return -1;
+                    }
+                    try {
+                        PreRollBuffer.this.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for audio");
+                    }
+                }
+                if (ended) {
+                    return -1;
+                }
+                if (written - position > capacity) {
+                    overrunBytes += written - capacity - position;
+                    position = written - capacity;
+                }
+                int ringPosition = (int) (position % capacity);
+                int count = (int) Math.min(Math.min(length, written - position), capacity - ringPosition);
+                view.clear();
+                view.position(ringPosition);
+                view.get(buffer, offset, count);
+                position += count;
+                if (!speechEnded) {
+                    consumed = Math.max(consumed, position);
+                }
+                return count;
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (PreRollBuffer.this) {
+                return ended ? 0 : (int) Math.min(Integer.MAX_VALUE, Math.min(written - position, capacity));
+            }
+        }
+
+        /**
+         * Ends this stream: a blocked {@link #read} returns end of stream, which a recognizer reading it through a
+         * pipe sees as end of audio.
+         */
+        @Override
+        public void close() {
+            synchronized (PreRollBuffer.this) {
+                ended = true;
+                PreRollBuffer.this.notifyAll();
+            }
+        }
+    }
+}
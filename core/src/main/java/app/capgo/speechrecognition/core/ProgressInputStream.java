@@ -0,0 +1,74 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read through it and reports the running total every {@code interval} bytes and at the end of the
+ * stream. The listener runs on the reading thread.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    public interface Listener {
+        void onProgress(long bytesRead, boolean finished);
+    }
+
+    private final long interval;
+    private final Listener listener;
+    private long bytesRead;
+    private long nextReport;
+    private boolean finished;
+
+    public ProgressInputStream(InputStream in, long interval, Listener listener) {
+        super(in);
+        this.interval = Math.max(1, interval);
+        this.listener = listener;
+        this.nextReport = this.interval;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        advance(value < 0 ? -1 : 1);
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        advance(count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        advance((int) Math.min(Integer.MAX_VALUE, skipped));
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void advance(int count) {
+        if (count < 0) {
+            if (!finished) {
+                finished = true;
+                listener.onProgress(bytesRead, true);
+            }
+            return;
+        }
+        bytesRead += count;
+        if (bytesRead >= nextReport) {
+            nextReport = bytesRead + interval;
+            listener.onProgress(bytesRead, false);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.List;
+
+/**
+ * A speech recognizer the plugin can drive. The platform {@code SpeechRecognizer} is one implementation; embedded
+ * engines and test doubles are others.
+ *
+ * <p>All methods are called on the plugin's session thread, and implementations must deliver {@link Listener}
+ * callbacks on that same thread. Error codes follow {@link RecognitionErrors}.</p>
+ */
+public interface RecognitionEngine {
+    /**
+     * Creates engines for a name passed as the {@code engine} option of {@code start()}.
+     */
+    interface Factory {
+        RecognitionEngine create();
+    }
+
+    /**
+     * Callbacks of one recognition request, mirroring {@code android.speech.RecognitionListener}.
+     */
+    interface Listener {
+        void onReadyForSpeech();
+
+        void onBeginningOfSpeech();
+
+        void onRmsChanged(float rmsdB);
+
+        void onBufferReceived(byte[] buffer);
+
+        void onEndOfSpeech();
+
+        void onError(int error);
+
+        void onResults(List<String> matches);
+
+        void onPartialResults(List<String> matches);
+
+        void onSegmentResults(List<String> matches);
+
+        void onEndOfSegmentedSession();
+    }
+
+    /**
+     * Replaces the listener receiving callbacks for subsequent requests.
+     */
+    void setListener(Listener listener);
+
+    void startListening(RecognitionRequest request);
+
+    /**
+     * Stops capturing audio; the engine still delivers the result of what was heard.
+     */
+    void stopListening();
+
+    /**
+     * Abandons the current request without delivering further callbacks.
+     */
+    void cancel();
+
+    /**
+     * Releases the engine. It is not used again afterwards.
+     */
+    void destroy();
+}
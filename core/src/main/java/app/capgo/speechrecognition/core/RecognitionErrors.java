@@ -0,0 +1,56 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Error codes reported by {@code android.speech.RecognitionListener#onError} and the messages the plugin rejects with.
+ *
+ * <p>The values mirror the {@code SpeechRecognizer.ERROR_*} constants, which are part of the public Android API and
+ * never change, so the mapping can be exercised off-device.</p>
+ */
+public final class RecognitionErrors {
+
+    public static final int ERROR_NETWORK_TIMEOUT = 1;
+    public static final int ERROR_NETWORK = 2;
+    public static final int ERROR_AUDIO = 3;
+    public static final int ERROR_SERVER = 4;
+    public static final int ERROR_CLIENT = 5;
+    public static final int ERROR_SPEECH_TIMEOUT = 6;
+    public static final int ERROR_NO_MATCH = 7;
+    public static final int ERROR_RECOGNIZER_BUSY = 8;
+    public static final int ERROR_INSUFFICIENT_PERMISSIONS = 9;
+    public static final int ERROR_SERVER_DISCONNECTED = 11;
+    public static final int ERROR_LANGUAGE_NOT_SUPPORTED = 12;
+    public static final int ERROR_LANGUAGE_UNAVAILABLE = 13;
+
+    private RecognitionErrors() {}
+
+    public static String getMessage(int errorCode) {
+        switch (errorCode) {
+            case ERROR_AUDIO:
+                return "Audio recording error";
+            case ERROR_CLIENT:
+                return "Client side error";
+            case ERROR_INSUFFICIENT_PERMISSIONS:
+                return "Insufficient permissions";
+            case ERROR_NETWORK:
+                return "Network error";
+            case ERROR_NETWORK_TIMEOUT:
+                return "Network timeout";
+            case ERROR_NO_MATCH:
+                return "No match";
+            case ERROR_RECOGNIZER_BUSY:
+                return "RecognitionService busy";
+            case ERROR_SERVER:
+                return "Error from server";
+            case ERROR_SPEECH_TIMEOUT:
+                return "No speech input";
+            case ERROR_SERVER_DISCONNECTED:
+                return "Server disconnected";
+            case ERROR_LANGUAGE_NOT_SUPPORTED:
+                return "Language not supported";
+            case ERROR_LANGUAGE_UNAVAILABLE:
+                return "Language model not available on device";
+            default:
+                return "Didn't understand, please try again. Error code: " + errorCode;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Engine-independent description of one recognition request.
+ */
+public final class RecognitionRequest {
+
+    public final String language;
+    public final int maxResults;
+    public final boolean partialResults;
+    public final String prompt;
+    /**
+     * Silence in milliseconds that ends a segment, {@code 0} for a single utterance.
+     */
+    public final int allowForSilence;
+    public final boolean preferOffline;
+    /**
+     * Audio to recognize instead of the microphone, or {@code null} to listen live.
+     */
+    public final AudioInput audioInput;
+
+    private RecognitionRequest(Builder builder) {
+        this.language = builder.language;
+        this.maxResults = builder.maxResults;
+        this.partialResults = builder.partialResults;
+        this.prompt = builder.prompt;
+        this.allowForSilence = builder.allowForSilence;
+        this.preferOffline = builder.preferOffline;
+        this.audioInput = builder.audioInput;
+    }
+
+    public boolean isSegmented() {
+        return allowForSilence > 0;
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+            .setLanguage(language)
+            .setMaxResults(maxResults)
+            .setPartialResults(partialResults)
+            .setPrompt(prompt)
+            .setAllowForSilence(allowForSilence)
+            .setPreferOffline(preferOffline)
+            .setAudioInput(audioInput);
+    }
+
+    public static class Builder {
+
+        private String language;
+        private int maxResults = 5;
+        private boolean partialResults;
+        private String prompt;
+        private int allowForSilence;
+        private boolean preferOffline;
+        private AudioInput audioInput;
+
+        public Builder setLanguage(String language) {
+            this.language = language;
+            return this;
+        }
+
+        public Builder setMaxResults(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        public Builder setPartialResults(boolean partialResults) {
+            this.partialResults = partialResults;
+            return this;
+        }
+
+        public Builder setPrompt(String prompt) {
+            this.prompt = prompt;
+            return this;
+        }
+
+        public Builder setAllowForSilence(int allowForSilence) {
+            this.allowForSilence = allowForSilence;
+            return this;
+        }
+
+        public Builder setPreferOffline(boolean preferOffline) {
+            this.preferOffline = preferOffline;
+            return this;
+        }
+
+        public Builder setAudioInput(AudioInput audioInput) {
+            this.audioInput = audioInput;
+            return this;
+        }
+
+        public RecognitionRequest build() {
+            return new RecognitionRequest(this);
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Records the callbacks a {@link RecognitionEngine} delivers to the plugin and replays them through a
+ * {@link FakeRecognitionEngine}, so timing issues seen on a device can be reproduced without a recognizer.
+ *
+ * <p>A trace is NDJSON, one object per line. {@code t} is the monotonic time in microseconds since recording started
+ * and {@code e} the event: {@code start}, {@code stop} and {@code cancel} for requests made by the plugin, and
+ * {@code ready}, {@code beginningOfSpeech}, {@code rms} ({@code v}), {@code buffer} ({@code n}), {@code partial},
+ * {@code endOfSpeech}, {@code results}, {@code segment} ({@code m}), {@code endOfSegmentedSession} and
+ * {@code error} ({@code code}) for callbacks. Audio buffers are recorded by length only, which keeps traces small
+ * and free of the user's voice; replay delivers silence of the same size.</p>
+ */
+public final class RecognitionTrace {
+
+    static final String START = "start";
+    static final String STOP = "stop";
+    static final String CANCEL = "cancel";
+
+    private static final Map<String, FakeRecognitionEngine.Kind> KINDS = new HashMap<>();
+
+    static {
+        KINDS.put("ready", FakeRecognitionEngine.Kind.READY);
+        KINDS.put("beginningOfSpeech", FakeRecognitionEngine.Kind.BEGINNING_OF_SPEECH);
+        KINDS.put("rms", FakeRecognitionEngine.Kind.RMS);
+        KINDS.put("buffer", FakeRecognitionEngine.Kind.BUFFER);
+        KINDS.put("partial", FakeRecognitionEngine.Kind.PARTIAL_RESULTS);
+        KINDS.put("endOfSpeech", FakeRecognitionEngine.Kind.END_OF_SPEECH);
+        KINDS.put("results", FakeRecognitionEngine.Kind.RESULTS);
+        KINDS.put("segment", FakeRecognitionEngine.Kind.SEGMENT_RESULTS);
+        KINDS.put("endOfSegmentedSession", FakeRecognitionEngine.Kind.END_OF_SEGMENTED_SESSION);
+        KINDS.put("error", FakeRecognitionEngine.Kind.ERROR);
+    }
+
+    private RecognitionTrace() {}
+
+    /**
+     * Writes a trace. Call the {@code record*} methods where the plugin drives the engine and give the engine the
+     * listener returned by {@link #wrap}. Lines are formatted on the calling thread and appended to the writer, which
+     * should be buffered. A write failure stops the recording without disturbing recognition; see
+     * {@link #getFailure()}. Not thread-safe: use it from the session thread only.
+     */
+    public static final class Recorder implements Closeable {
+
+        private final Writer out;
+        private final LongSupplier clockNanos;
+        private final long origin;
+        private final StringBuilder line = new StringBuilder(128);
+        private IOException failure;
+        private boolean closed;
+        private long eventCount;
+
+        /**
+         * @param clockNanos monotonic clock, e.g. {@code SystemClock::elapsedRealtimeNanos} or {@code System::nanoTime}.
+         */
+        public Recorder(Writer out, LongSupplier clockNanos) {
+            this.out = out;
+            this.clockNanos = clockNanos;
+            this.origin = clockNanos.getAsLong();
+        }
+
+        /**
+         * Returns a listener that records each callback before passing it to {@code target}.
+         */
+        public RecognitionEngine.Listener wrap(final RecognitionEngine.Listener target) {
+            return new RecognitionEngine.Listener() {
+                @Override
+                public void onReadyForSpeech() {
+                    write(begin("ready"));
+                    target.onReadyForSpeech();
+                }
+
+                @Override
+                public void onBeginningOfSpeech() {
+                    write(begin("beginningOfSpeech"));
+                    target.onBeginningOfSpeech();
+                }
+
+                @Override
+                public void onRmsChanged(float rmsdB) {
+                    write(begin("rms").append(",\"v\":").append(finite(rmsdB)));
+                    target.onRmsChanged(rmsdB);
+                }
+
+                @Override
+                public void onBufferReceived(byte[] buffer) {
+                    write(begin("buffer").append(",\"n\":").append(buffer == null ? 0 : buffer.length));
+                    target.onBufferReceived(buffer);
+                }
+
+                @Override
+                public void onEndOfSpeech() {
+                    write(begin("endOfSpeech"));
+                    target.onEndOfSpeech();
+                }
+
+                @Override
+                public void onError(int error) {
+                    write(begin("error").append(",\"code\":").append(error));
+                    target.onError(error);
+                }
+
+                @Override
+                public void onResults(List<String> matches) {
+                    write(appendMatches(begin("results"), matches));
+                    target.onResults(matches);
+                }
+
+                @Override
+                public void onPartialResults(List<String> matches) {
+                    write(appendMatches(begin("partial"), matches));
+                    target.onPartialResults(matches);
+                }
+
+                @Override
+                public void onSegmentResults(List<String> matches) {
+                    write(appendMatches(begin("segment"), matches));
+                    target.onSegmentResults(matches);
+                }
+
+                @Override
+                public void onEndOfSegmentedSession() {
+                    write(begin("endOfSegmentedSession"));
+                    target.onEndOfSegmentedSession();
+                }
+            };
+        }
+
+        public void recordStart(RecognitionRequest request) {
+            StringBuilder builder = begin(START);
+            if (request.language != null) {
+                builder.append(",\"lang\":");
+                appendString(builder, request.language);
+            }
+            write(builder.append(",\"partial\":").append(request.partialResults));
+        }
+
+        public void recordStop() {
+            write(begin(STOP));
+        }
+
+        public void recordCancel() {
+            write(begin(CANCEL));
+        }
+
+        public long getEventCount() {
+            return eventCount;
+        }
+
+        public IOException getFailure() {
+            return failure;
+        }
+
+        /**
+         * Flushes and closes the writer. Safe to call more than once.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+
+        private StringBuilder begin(String event) {
+            line.setLength(0);
+            long micros = (clockNanos.getAsLong() - origin) / 1000;
+            return line.append("{\"t\":").append(micros).append(",\"e\":\"").append(event).append('"');
+        }
+
+        private void write(StringBuilder builder) {
+            if (closed || failure != null) {
+                return;
+            }
+            builder.append("}\n");
+            try {
+                out.append(builder);
+                eventCount++;
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+    }
+
+    /**
+     * Turns a trace into one script per recorded request, keeping the recorded gaps between callbacks divided by
+     * {@code speed}: {@code 1} replays in real time and {@code 0} or less as fast as possible. Callbacks recorded
+     * before the first {@code start} are ignored.
+     *
+     * @throws IOException when the trace is unreadable or has no request.
+     */
+    public static List<FakeRecognitionEngine.Script> read(Reader in, float speed) throws IOException {
+        List<FakeRecognitionEngine.Script> scripts = new ArrayList<>();
+        FakeRecognitionEngine.Script.Builder current = null;
+        long previousMicros = 0;
+        BufferedReader reader = new BufferedReader(in);
+        String text;
+        int lineNumber = 0;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            Map<String, Object> fields;
+            try {
+                fields = parseLine(text);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Malformed trace line " + lineNumber + ": " + ex.getMessage());
+            }
+            String event = (String) fields.get("e");
+            long micros = fields.get("t") instanceof Number ? ((Number) fields.get("t")).longValue() : previousMicros;
+            if (START.equals(event)) {
+                if (current != null) {
+                    scripts.add(current.build());
+                }
+                current = new FakeRecognitionEngine.Script.Builder();
+                previousMicros = micros;
+                continue;
+            }
+            FakeRecognitionEngine.Kind kind = KINDS.get(event);
+            if (current == null || kind == null) {
+                // stop and cancel are driven by the plugin during replay; unknown events come from newer recorders
+                continue;
+            }
+            long delayMs = speed > 0 ? (long) ((micros - previousMicros) / 1000.0 / speed) : 0;
+            previousMicros = micros;
+            addStep(current, kind, delayMs, fields);
+        }
+        if (current != null) {
+            scripts.add(current.build());
+        }
+        if (scripts.isEmpty()) {
+            throw new IOException("Trace contains no recognition request");
+        }
+        return scripts;
+    }
+
+    /**
+     * Creates an engine that replays {@code in}; see {@link #read}.
+     */
+    public static FakeRecognitionEngine replay(Reader in, float speed, FakeRecognitionEngine.Scheduler scheduler)
+        throws IOException {
+        return new FakeRecognitionEngine(read(in, speed), scheduler);
+    }
+
+    private static void addStep(
+        FakeRecognitionEngine.Script.Builder builder,
+        FakeRecognitionEngine.Kind kind,
+        long delayMs,
+        Map<String, Object> fields
+    ) {
+        switch (kind) {
+            case READY:
+                builder.ready(delayMs);
+                break;
+            case BEGINNING_OF_SPEECH:
+                builder.beginningOfSpeech(delayMs);
+                break;
+            case RMS:
+                builder.rms(delayMs, number(fields, "v").floatValue());
+                break;
+            case BUFFER:
+                builder.buffer(delayMs, new byte[Math.max(0, number(fields, "n").intValue())]);
+                break;
+            case PARTIAL_RESULTS:
+                builder.partialResults(delayMs, matches(fields));
+                break;
+            case END_OF_SPEECH:
+                builder.endOfSpeech(delayMs);
+                break;
+            case RESULTS:
+                builder.results(delayMs, matches(fields));
+                break;
+            case SEGMENT_RESULTS:
+                builder.segmentResults(delayMs, matches(fields));
+                break;
+            case END_OF_SEGMENTED_SESSION:
+                builder.endOfSegmentedSession(delayMs);
+                break;
+            case ERROR:
+                builder.error(delayMs, number(fields, "code").intValue());
+                break;
+        }
+    }
+
+    private static Number number(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String[] matches(Map<String, Object> fields) {
+        Object value = fields.get("m");
+        List<String> list = value instanceof List ? (List<String>) value : Collections.<String>emptyList();
+        return list.toArray(new String[0]);
+    }
+
+    private static StringBuilder appendMatches(StringBuilder builder, List<String> matches) {
+        builder.append(",\"m\":[");
+        if (matches != null) {
+            for (int i = 0; i < matches.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                appendString(builder, matches.get(i));
+            }
+        }
+        return builder.append(']');
+    }
+
+    /**
+     * JSON has no NaN or infinity; a recognizer reporting one is recorded as the nearest finite level.
+     */
+    private static float finite(float value) {
+        if (Float.isNaN(value)) {
+            return 0f;
+        }
+        return Math.max(-Float.MAX_VALUE, Math.min(Float.MAX_VALUE, value));
+    }
+
+    private static void appendString(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * Parses the flat objects this class writes: string, number, boolean, null and string array values.
+     */
+    static Map<String, Object> parseLine(String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> fields = new HashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.string();
+                parser.expect(':');
+                fields.put(key, parser.value());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        return fields;
+    }
+
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("value expected");
+            }
+            char c = text.charAt(pos);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '[') {
+                pos++;
+                List<String> items = new ArrayList<>();
+                if (!consume(']')) {
+                    do {
+                        skipWhitespace();
+                        items.add(consumeNull() ? null : string());
+                    } while (consume(','));
+                    expect(']');
+                }
+                return items;
+            }
+            if (consumeNull()) {
+                return null;
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            int start = pos;
+            while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("unexpected '" + c + "'");
+            }
+            String number = text.substring(start, pos);
+            try {
+                return number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0
+                    ? (Number) Double.parseDouble(number)
+                    : (Number) Long.parseLong(number);
+            } catch (NumberFormatException ex) {
+                throw error("bad number " + number);
+            }
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder builder = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("truncated escape");
+                        }
+                        try {
+                            builder.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("bad escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        builder.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        boolean consumeNull() {
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return true;
+            }
+            return false;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+}
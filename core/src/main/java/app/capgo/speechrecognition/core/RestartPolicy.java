@@ -0,0 +1,51 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Decides whether and when a continuous session restarts listening after an utterance ends.
+ *
+ * <p>Restarts after a productive utterance use the base delay. Consecutive unproductive restarts (no match, speech
+ * timeout) back off exponentially up to the maximum delay so a silent room does not churn recognizer sessions.</p>
+ */
+public class RestartPolicy {
+
+    private static final long BACKOFF_STEP_MS = 100;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int maxRestarts;
+    private int restartCount;
+    private int consecutiveEmpty;
+
+    /**
+     * @param maxRestarts maximum number of restarts, {@code 0} or less for no limit.
+     */
+    public RestartPolicy(long baseDelayMs, long maxDelayMs, int maxRestarts) {
+        this.baseDelayMs = Math.max(0, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.maxRestarts = maxRestarts;
+    }
+
+    public boolean canRestart() {
+        return maxRestarts <= 0 || restartCount < maxRestarts;
+    }
+
+    /**
+     * Records a restart and returns how long to wait before it.
+     *
+     * @param productive whether the utterance that just ended produced results.
+     */
+    public long nextDelay(boolean productive) {
+        restartCount++;
+        if (productive) {
+            consecutiveEmpty = 0;
+            return baseDelayMs;
+        }
+        consecutiveEmpty++;
+        long backoff = BACKOFF_STEP_MS << Math.min(consecutiveEmpty - 1, 16);
+        return Math.min(maxDelayMs, baseDelayMs + backoff);
+    }
+
+    public int getRestartCount() {
+        return restartCount;
+    }
+}
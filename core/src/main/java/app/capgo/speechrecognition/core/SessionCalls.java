@@ -0,0 +1,100 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * The calls a recognition session owes an answer: its {@code start()} call and, while {@code stop({ flush: true })}
+ * waits for the final result, that {@code stop()} call.
+ *
+ * <p>Each call is handed out once, by {@link #takeStart()} or {@link #takeFlush()}, and forgotten at the same time, so
+ * it is settled exactly once and a session that ended keeps no call alive however long its listener stays reachable.
+ * A flush is bounded by a timeout on the session actor, cancelled when the flush is taken.</p>
+ *
+ * <p>Not thread-safe; the plugin only touches it from the session actor.</p>
+ *
+ * @param <C> the call type, a {@code PluginCall} in the plugin.
+ */
+public class SessionCalls<C> {
+
+    /**
+     * Delayed tasks on the session actor.
+     */
+    public interface Scheduler {
+        void executeDelayed(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    private final Scheduler scheduler;
+    private final Runnable flushTimeoutTask;
+    private C start;
+    private C flush;
+    private long flushRequestedAt;
+
+    /**
+     * @param onFlushTimeout runs on the actor when a flush was not taken within its timeout.
+     */
+    public SessionCalls(Scheduler scheduler, Runnable onFlushTimeout) {
+        this.scheduler = scheduler;
+        this.flushTimeoutTask = onFlushTimeout;
+    }
+
+    public void setStart(C call) {
+        start = call;
+    }
+
+    /**
+     * Returns the pending {@code start()} call and forgets it, or {@code null} when it was already settled.
+     */
+    public C takeStart() {
+        C call = start;
+        start = null;
+        return call;
+    }
+
+    public boolean hasStart() {
+        return start != null;
+    }
+
+    /**
+     * Makes {@code call} the flushed {@code stop()} waiting for the final result. A previous one must have been taken.
+     */
+    public void setFlush(C call, long requestedAt) {
+        if (flush != null) {
+            throw new IllegalStateException("A flush is already pending");
+        }
+        flush = call;
+        flushRequestedAt = requestedAt;
+    }
+
+    /**
+     * Bounds the pending flush: the timeout task runs after {@code timeoutMs} unless the flush is taken first.
+     */
+    public void scheduleFlushTimeout(long timeoutMs) {
+        if (flush != null) {
+            scheduler.executeDelayed(flushTimeoutTask, timeoutMs);
+        }
+    }
+
+    public boolean isFlushing() {
+        return flush != null;
+    }
+
+    /**
+     * When the pending flushed {@code stop()} was requested, in the caller's clock.
+     */
+    public long getFlushRequestedAt() {
+        return flushRequestedAt;
+    }
+
+    /**
+     * Returns the flushed {@code stop()} call and forgets it, cancelling its timeout, or {@code null} when none is
+     * pending.
+     */
+    public C takeFlush() {
+        C call = flush;
+        flush = null;
+        if (call != null) {
+            scheduler.cancel(flushTimeoutTask);
+        }
+        return call;
+    }
+}
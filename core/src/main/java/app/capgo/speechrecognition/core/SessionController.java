@@ -0,0 +1,140 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * The recognition engine and the listener of the session driving it.
+ *
+ * <p>The engine is created on first use and kept across sessions, since recreating a platform recognizer costs a
+ * service rebind. It is only discarded when a session asks for another kind of engine, an error leaves its
+ * connection suspect, or the plugin goes away. Each session {@linkplain #activate activates} its own listener, which
+ * replaces the previous one on the engine, so a finished session stays reachable only until the next one starts or
+ * {@link #deactivate()} releases it.</p>
+ *
+ * <p>Not thread-safe; the plugin only touches it from the session actor.</p>
+ *
+ * @param <L> the listener type of the plugin's sessions.
+ */
+public class SessionController<L extends RecognitionEngine.Listener> {
+
+    public interface Host {
+        /**
+         * Creates an engine of kind {@code key}, an {@link EngineMode} value or a registered engine name.
+         */
+        RecognitionEngine createEngine(String key);
+
+        /**
+         * Listener a new engine gets until a session activates its own.
+         */
+        RecognitionEngine.Listener createIdleListener();
+
+        /**
+         * Called once {@code engine} has been destroyed, e.g. to fail calls waiting for it to become ready.
+         */
+        void onEngineDiscarded(RecognitionEngine engine);
+    }
+
+    private final Host host;
+    private String engineKey;
+    private RecognitionEngine engine;
+    private L active;
+
+    public SessionController(Host host, String engineKey) {
+        this.host = host;
+        this.engineKey = engineKey;
+    }
+
+    /**
+     * The live engine, or {@code null} when none has been created since the last discard.
+     */
+    public RecognitionEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Kind of the live engine, or of the next one created.
+     */
+    public String getEngineKey() {
+        return engineKey;
+    }
+
+    /**
+     * Listener of the current session, or {@code null} when none is active.
+     */
+    public L getActive() {
+        return active;
+    }
+
+    public boolean isActive(L listener) {
+        return listener != null && active == listener;
+    }
+
+    /**
+     * Creates the engine if none is alive.
+     *
+     * @return {@code true} when a new instance was created, {@code false} when an existing one is kept.
+     */
+    public boolean ensureEngine() {
+        if (engine != null) {
+            return false;
+        }
+        RecognitionEngine created = host.createEngine(engineKey);
+        created.setListener(host.createIdleListener());
+        engine = created;
+        return true;
+    }
+
+    /**
+     * Makes the engine an idle engine of kind {@code key}: a different kind replaces it, the same kind is reused with
+     * any request still running cancelled.
+     *
+     * @return {@code true} when a new instance was created.
+     */
+    public boolean useEngine(String key) {
+        if (engine != null && !engineKey.equals(key)) {
+            discardEngine();
+        }
+        engineKey = key;
+        if (ensureEngine()) {
+            return true;
+        }
+        try {
+            engine.cancel();
+        } catch (RuntimeException ignored) {}
+        return false;
+    }
+
+    /**
+     * Destroys the engine. The next {@link #ensureEngine()} creates a new one of the same kind.
+     */
+    public void discardEngine() {
+        RecognitionEngine discarded = engine;
+        if (discarded == null) {
+            return;
+        }
+        engine = null;
+        try {
+            discarded.destroy();
+        } catch (RuntimeException ignored) {}
+        host.onEngineDiscarded(discarded);
+    }
+
+    /**
+     * Makes {@code listener} the current session and attaches {@code attached}, usually {@code listener} itself or
+     * a recording wrapper around it, to the engine.
+     */
+    public void activate(L listener, RecognitionEngine.Listener attached) {
+        active = listener;
+        if (engine != null) {
+            engine.setListener(attached);
+        }
+    }
+
+    /**
+     * Releases the current session's listener, detaching it from the engine too.
+     */
+    public void deactivate() {
+        active = null;
+        if (engine != null) {
+            engine.setListener(host.createIdleListener());
+        }
+    }
+}
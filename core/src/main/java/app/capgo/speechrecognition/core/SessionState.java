@@ -0,0 +1,43 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.Locale;
+
+/**
+ * Lifecycle of a recognition session and the transitions allowed between its states.
+ */
+public enum SessionState {
+    IDLE,
+    STARTING,
+    LISTENING,
+    STOPPING,
+    ERROR;
+
+    public boolean canTransitionTo(SessionState next) {
+        switch (this) {
+            case IDLE:
+                return next == STARTING;
+            case STARTING:
+                return next == LISTENING || next == STOPPING || next == ERROR || next == IDLE;
+            case LISTENING:
+                return next == STOPPING || next == ERROR || next == IDLE || next == STARTING;
+            case STOPPING:
+                // STARTING: a continuous session restarting after an utterance
+                return next == IDLE || next == ERROR || next == STARTING;
+            case ERROR:
+                return next == IDLE || next == STARTING;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * {@code true} while a session is open and capturing (or about to capture) audio.
+     */
+    public boolean isListening() {
+        return this == STARTING || this == LISTENING;
+    }
+
+    public String getValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,500 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rewrites recognizer hypotheses with a fixed rule set: vocabulary replacements, masked words and spelled-out English
+ * numbers turned into digits.
+ *
+ * <p>Every pattern is compiled into one Aho-Corasick automaton, so a hypothesis is scanned once whatever the number
+ * of rules. Patterns match whole words, case-insensitively unless configured otherwise; where matches overlap the
+ * leftmost, then longest, wins. The rewriter itself is immutable and can be shared; each thread rewrites through its
+ * own {@link Matcher}, which reuses its scratch buffers and returns the input string untouched when nothing
+ * matched.</p>
+ */
+public final class TextRewriter {
+
+    private static final int KIND_REPLACE = 0;
+    private static final int KIND_MASK = 1;
+    private static final int KIND_NUMBER = 2;
+
+    private static final int NUMBER_UNIT = 0;
+    private static final int NUMBER_TEEN = 1;
+    private static final int NUMBER_TEN = 2;
+    private static final int NUMBER_HUNDRED = 3;
+    private static final int NUMBER_SCALE = 4;
+
+    private static final String[] UNITS = { "zero", "one", "two", "three", "four", "five", "six", "seven", "eight", "nine" };
+    private static final String[] TEENS = {
+        "ten",
+        "eleven",
+        "twelve",
+        "thirteen",
+        "fourteen",
+        "fifteen",
+        "sixteen",
+        "seventeen",
+        "eighteen",
+        "nineteen"
+    };
+    private static final String[] TENS = { "twenty", "thirty", "forty", "fifty", "sixty", "seventy", "eighty", "ninety" };
+
+    private static final class Rule {
+
+        final int kind;
+        final String replacement;
+        final long value;
+        final int numberClass;
+
+        Rule(int kind, String replacement, long value, int numberClass) {
+            this.kind = kind;
+            this.replacement = replacement;
+            this.value = value;
+            this.numberClass = numberClass;
+        }
+    }
+
+    public static class Builder {
+
+        // Later rules for the same pattern replace earlier ones
+        private final Map<String, Rule> rules = new LinkedHashMap<>();
+        private boolean caseSensitive;
+        private boolean normalizeNumbers;
+        private char maskChar = '*';
+
+        public Builder replace(String pattern, String replacement) {
+            return add(pattern, new Rule(KIND_REPLACE, replacement == null ? "" : replacement, 0, 0));
+        }
+
+        public Builder mask(String pattern) {
+            return add(pattern, new Rule(KIND_MASK, null, 0, 0));
+        }
+
+        /**
+         * Turns runs of English cardinal number words, such as "two thousand twenty four", into digits. "hundred"
+         * multiplies any value from 1 to 99, and "and" may join a hundred or scale to the words after it.
+         */
+        public Builder setNormalizeNumbers(boolean normalizeNumbers) {
+            this.normalizeNumbers = normalizeNumbers;
+            return this;
+        }
+
+        public Builder setCaseSensitive(boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+            return this;
+        }
+
+        public Builder setMaskChar(char maskChar) {
+            this.maskChar = maskChar;
+            return this;
+        }
+
+        private Builder add(String pattern, Rule rule) {
+            if (pattern != null && !pattern.isEmpty()) {
+                rules.put(pattern, rule);
+            }
+            return this;
+        }
+
+        public TextRewriter build() {
+            Map<String, Rule> all = new LinkedHashMap<>();
+            if (normalizeNumbers) {
+                for (int i = 0; i < UNITS.length; i++) {
+                    all.put(UNITS[i], new Rule(KIND_NUMBER, null, i, NUMBER_UNIT));
+                }
+                for (int i = 0; i < TEENS.length; i++) {
+                    all.put(TEENS[i], new Rule(KIND_NUMBER, null, 10 + i, NUMBER_TEEN));
+                }
+                for (int i = 0; i < TENS.length; i++) {
+                    all.put(TENS[i], new Rule(KIND_NUMBER, null, 20 + i * 10L, NUMBER_TEN));
+                }
+                all.put("hundred", new Rule(KIND_NUMBER, null, 100, NUMBER_HUNDRED));
+                all.put("thousand", new Rule(KIND_NUMBER, null, 1_000, NUMBER_SCALE));
+                all.put("million", new Rule(KIND_NUMBER, null, 1_000_000, NUMBER_SCALE));
+                all.put("billion", new Rule(KIND_NUMBER, null, 1_000_000_000, NUMBER_SCALE));
+            }
+            // User rules win over number words
+            for (Map.Entry<String, Rule> entry : rules.entrySet()) {
+                String key = caseSensitive ? entry.getKey() : lowerCase(entry.getKey());
+                all.remove(key);
+                all.put(key, entry.getValue());
+            }
+            return new TextRewriter(all, caseSensitive, maskChar);
+        }
+    }
+
+    private final boolean caseSensitive;
+    private final char maskChar;
+    private final Rule[] rules;
+    private final int[] patternLength;
+    private final boolean[] letterAtStart;
+    private final boolean[] letterAtEnd;
+    // Trie edges of node n are edgeChars/edgeTargets[edgeStart[n], edgeStart[n + 1]), sorted by character
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    /** Pattern ending at the node, or -1. */
+    private final int[] output;
+    /** Nearest node on the failure chain with an output, or -1. */
+    private final int[] dictionaryLink;
+
+    private TextRewriter(Map<String, Rule> patterns, boolean caseSensitive, char maskChar) {
+        this.caseSensitive = caseSensitive;
+        this.maskChar = maskChar;
+        int count = patterns.size();
+        rules = new Rule[count];
+        patternLength = new int[count];
+        letterAtStart = new boolean[count];
+        letterAtEnd = new boolean[count];
+
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        children.add(new TreeMap<>());
+        outputs.add(-1);
+        int index = 0;
+        for (Map.Entry<String, Rule> entry : patterns.entrySet()) {
+            String pattern = entry.getKey();
+            rules[index] = entry.getValue();
+            patternLength[index] = pattern.length();
+            letterAtStart[index] = Character.isLetterOrDigit(pattern.charAt(0));
+            letterAtEnd[index] = Character.isLetterOrDigit(pattern.charAt(pattern.length() - 1));
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = children.get(node).get(pattern.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(pattern.charAt(i), next);
+                    children.add(new TreeMap<>());
+                    outputs.add(-1);
+                }
+                node = next;
+            }
+            outputs.set(node, index);
+            index++;
+        }
+
+        int nodes = children.size();
+        edgeStart = new int[nodes + 1];
+        int edges = 0;
+        for (int n = 0; n < nodes; n++) {
+            edgeStart[n] = edges;
+            edges += children.get(n).size();
+        }
+        edgeStart[nodes] = edges;
+        edgeChars = new char[edges];
+        edgeTargets = new int[edges];
+        for (int n = 0; n < nodes; n++) {
+            int e = edgeStart[n];
+            for (Map.Entry<Character, Integer> edge : children.get(n).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e] = edge.getValue();
+                e++;
+            }
+        }
+        output = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            output[n] = outputs.get(n);
+        }
+
+        // Breadth-first, so the failure target of a node is always complete before the node itself
+        fail = new int[nodes];
+        dictionaryLink = new int[nodes];
+        Arrays.fill(dictionaryLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                int target = fail[node];
+                int next;
+                while ((next = edge(target, edgeChars[e])) < 0 && target != 0) {
+                    target = fail[target];
+                }
+                fail[child] = next >= 0 ? next : 0;
+                int link = fail[child];
+                dictionaryLink[child] = output[link] >= 0 ? link : dictionaryLink[link];
+                queue.add(child);
+            }
+        }
+    }
+
+    public int getPatternCount() {
+        return rules.length;
+    }
+
+    public Matcher newMatcher() {
+        return new Matcher();
+    }
+
+    private int edge(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char key = edgeChars[mid];
+            if (key < c) {
+                low = mid + 1;
+            } else if (key > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rewrites on behalf of one thread and keeps timing for it. Not thread-safe, counters included: read them on the
+     * thread that rewrites.
+     */
+    public final class Matcher {
+
+        private int[] bestLength = new int[64];
+        private int[] bestPattern = new int[64];
+        private final StringBuilder out = new StringBuilder(64);
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        private Matcher() {}
+
+        /**
+         * Rewrites every hypothesis.
+         *
+         * @return {@code matches} itself when no hypothesis changed.
+         */
+        public List<String> rewriteAll(List<String> matches) {
+            if (matches == null) {
+                return null;
+            }
+            List<String> rewritten = null;
+            for (int i = 0; i < matches.size(); i++) {
+                String original = matches.get(i);
+                String text = rewrite(original);
+                if (text != original && rewritten == null) {
+                    rewritten = new ArrayList<>(matches.subList(0, i));
+                }
+                if (rewritten != null) {
+                    rewritten.add(text);
+                }
+            }
+            return rewritten == null ? matches : rewritten;
+        }
+
+        /**
+         * @return {@code text} itself when no rule matched.
+         */
+        public String rewrite(String text) {
+            if (text == null || text.isEmpty() || rules.length == 0) {
+                return text;
+            }
+            long started = System.nanoTime();
+            String result = scan(text) ? build(text) : text;
+            long elapsed = System.nanoTime() - started;
+            count++;
+            totalNanos += elapsed;
+            if (elapsed > maxNanos) {
+                maxNanos = elapsed;
+            }
+            return result;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Records the longest whole-word match starting at each position.
+         *
+         * @return whether anything matched.
+         */
+        private boolean scan(String text) {
+            int length = text.length();
+            if (bestLength.length < length) {
+                bestLength = new int[Math.max(length, bestLength.length * 2)];
+                bestPattern = new int[bestLength.length];
+            }
+            Arrays.fill(bestLength, 0, length, 0);
+            boolean matched = false;
+            int node = 0;
+            for (int i = 0; i < length; i++) {
+                char c = caseSensitive ? text.charAt(i) : Character.toLowerCase(text.charAt(i));
+                int next;
+                while ((next = edge(node, c)) < 0 && node != 0) {
+                    node = fail[node];
+                }
+                node = next >= 0 ? next : 0;
+                for (int hit = output[node] >= 0 ? node : dictionaryLink[node]; hit >= 0; hit = dictionaryLink[hit]) {
+                    int pattern = output[hit];
+                    int start = i - patternLength[pattern] + 1;
+                    if (isWordMatch(text, pattern, start, i) && patternLength[pattern] > bestLength[start]) {
+                        bestLength[start] = patternLength[pattern];
+                        bestPattern[start] = pattern;
+                        matched = true;
+                    }
+                }
+            }
+            return matched;
+        }
+
+        private boolean isWordMatch(String text, int pattern, int start, int end) {
+            if (letterAtStart[pattern] && start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+                return false;
+            }
+            return !(letterAtEnd[pattern] && end + 1 < text.length() && Character.isLetterOrDigit(text.charAt(end + 1)));
+        }
+
+        private String build(String text) {
+            out.setLength(0);
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                int matchLength = bestLength[i];
+                if (matchLength == 0) {
+                    out.append(text.charAt(i++));
+                    continue;
+                }
+                Rule rule = rules[bestPattern[i]];
+                if (rule.kind == KIND_NUMBER) {
+                    int end = appendNumber(text, i);
+                    if (end > i) {
+                        i = end;
+                        continue;
+                    }
+                    // "hundred" or "thousand" on their own stay words
+                    out.append(text, i, i + matchLength);
+                } else if (rule.kind == KIND_MASK) {
+                    for (int k = 0; k < matchLength; k++) {
+                        out.append(maskChar);
+                    }
+                } else {
+                    out.append(rule.replacement);
+                }
+                i += matchLength;
+            }
+            return out.toString();
+        }
+
+        /**
+         * Folds the run of number words starting at {@code start} into digits.
+         *
+         * @return the end of the run, or {@code start} when the first word cannot begin a number.
+         */
+        private int appendNumber(String text, int start) {
+            long total = 0;
+            long current = 0;
+            long smallestScale = Long.MAX_VALUE;
+            int last = -1;
+            int end = start;
+            int position = start;
+            while (true) {
+                Rule rule = rules[bestPattern[position]];
+                int type = rule.numberClass;
+                boolean accepted;
+                switch (type) {
+                    case NUMBER_UNIT:
+                    case NUMBER_TEEN:
+                        accepted =
+                            last < 0 ||
+                            last == NUMBER_HUNDRED ||
+                            last == NUMBER_SCALE ||
+                            (last == NUMBER_TEN && type == NUMBER_UNIT && rule.value > 0);
+                        if (accepted) {
+                            current += rule.value;
+                        }
+                        break;
+                    case NUMBER_TEN:
+                        accepted = last < 0 || last == NUMBER_HUNDRED || last == NUMBER_SCALE;
+                        if (accepted) {
+                            current += rule.value;
+                        }
+                        break;
+                    case NUMBER_HUNDRED:
+                        // Any 1 to 99 multiplies: "nineteen hundred", "twenty hundred", "twenty five hundred"
+                        accepted = last >= 0 && last <= NUMBER_TEN && current > 0 && current < 100;
+                        if (accepted) {
+                            current *= 100;
+                        }
+                        break;
+                    default:
+                        accepted = last >= 0 && last != NUMBER_SCALE && current > 0 && rule.value < smallestScale;
+                        if (accepted) {
+                            total += current * rule.value;
+                            current = 0;
+                            smallestScale = rule.value;
+                        }
+                        break;
+                }
+                if (!accepted) {
+                    break;
+                }
+                last = type;
+                end = position + bestLength[position];
+                // Number words may be joined by one space or hyphen
+                int next = end + 1;
+                if (last == NUMBER_HUNDRED || last == NUMBER_SCALE) {
+                    next = skipAnd(text, end, next);
+                }
+                if (
+                    next >= text.length() ||
+                    (text.charAt(end) != ' ' && text.charAt(end) != '-') ||
+                    bestLength[next] == 0 ||
+                    rules[bestPattern[next]].kind != KIND_NUMBER
+                ) {
+                    break;
+                }
+                position = next;
+            }
+            if (end > start) {
+                out.append(total + current);
+            }
+            return end;
+        }
+
+        /**
+         * Joins "and" into a run after "hundred" or a scale, as in "one hundred and five", when a unit, teen or ten
+         * follows it.
+         *
+         * @return the position of that number word, or {@code next} when the run does not continue through "and".
+         */
+        private int skipAnd(String text, int end, int next) {
+            int word = next + 4;
+            if (
+                word >= text.length() ||
+                text.charAt(end) != ' ' ||
+                !text.regionMatches(!caseSensitive, next, "and ", 0, 4) ||
+                bestLength[word] == 0
+            ) {
+                return next;
+            }
+            Rule rule = rules[bestPattern[word]];
+            return rule.kind == KIND_NUMBER && rule.numberClass <= NUMBER_TEN ? word : next;
+        }
+    }
+
+    private static String lowerCase(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            builder.append(Character.toLowerCase(text.charAt(i)));
+        }
+        return builder.toString();
+    }
+}
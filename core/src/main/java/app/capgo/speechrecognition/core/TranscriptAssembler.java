@@ -0,0 +1,123 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Rolling transcript of a long session, built from the top hypothesis of each finished segment.
+ *
+ * <p>Text is appended into fixed-size chunks so growth never copies what is already stored. Offsets are absolute
+ * UTF-16 positions since the transcript was last cleared; once more than the retention window is stored, whole chunks
+ * are dropped from the head and {@link #getStartOffset()} moves forward, so memory stays bounded in hour-long
+ * sessions while offsets handed to JavaScript remain valid.</p>
+ */
+public class TranscriptAssembler {
+
+    static final int CHUNK_SIZE = 4096;
+
+    private final ArrayDeque<StringBuilder> chunks = new ArrayDeque<>();
+    private final long retention;
+    private long startOffset;
+    private long endOffset;
+    private int segments;
+
+    /**
+     * @param retention number of characters to keep at least, {@code 0} or less to keep everything.
+     */
+    public TranscriptAssembler(long retention) {
+        this.retention = retention;
+    }
+
+    /**
+     * Appends a segment, separated from the previous one by a space.
+     *
+     * @return the offset of the first appended character, or {@code -1} when {@code segment} is blank.
+     */
+    public long append(String segment) {
+        if (segment == null) {
+            return -1;
+        }
+        String text = segment.trim();
+        if (text.isEmpty()) {
+            return -1;
+        }
+        if (endOffset > 0) {
+            write(" ");
+        }
+        long offset = endOffset;
+        write(text);
+        segments++;
+        trim();
+        return offset;
+    }
+
+    private void write(String text) {
+        int written = 0;
+        while (written < text.length()) {
+            StringBuilder tail = chunks.peekLast();
+            if (tail == null || tail.length() == CHUNK_SIZE) {
+                tail = new StringBuilder(CHUNK_SIZE);
+                chunks.addLast(tail);
+            }
+            int count = Math.min(CHUNK_SIZE - tail.length(), text.length() - written);
+            tail.append(text, written, written + count);
+            written += count;
+        }
+        endOffset += text.length();
+    }
+
+    private void trim() {
+        if (retention <= 0) {
+            return;
+        }
+        // Keep the last chunk even when it alone exceeds the window
+        while (chunks.size() > 1 && endOffset - startOffset - chunks.peekFirst().length() >= retention) {
+            startOffset += chunks.removeFirst().length();
+        }
+    }
+
+    /**
+     * Returns the retained text between {@code from} (inclusive) and {@code to} (exclusive), both clamped to
+     * [{@link #getStartOffset()}, {@link #getEndOffset()}].
+     */
+    public String read(long from, long to) {
+        long start = Math.max(from, startOffset);
+        long end = Math.min(to, endOffset);
+        if (start >= end) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder((int) (end - start));
+        long chunkStart = startOffset;
+        for (StringBuilder chunk : chunks) {
+            long chunkEnd = chunkStart + chunk.length();
+            if (chunkEnd > start && chunkStart < end) {
+                int begin = (int) (Math.max(start, chunkStart) - chunkStart);
+                int finish = (int) (Math.min(end, chunkEnd) - chunkStart);
+                out.append(chunk, begin, finish);
+            }
+            if (chunkEnd >= end) {
+                break;
+            }
+            chunkStart = chunkEnd;
+        }
+        return out.toString();
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public int getSegmentCount() {
+        return segments;
+    }
+
+    public void clear() {
+        chunks.clear();
+        startOffset = 0;
+        endOffset = 0;
+        segments = 0;
+    }
+}
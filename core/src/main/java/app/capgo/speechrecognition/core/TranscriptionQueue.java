@@ -0,0 +1,102 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Pending file transcriptions, ordered by priority (higher first) and then by submission order.
+ *
+ * <p>Not thread-safe; the plugin only touches it from the session actor.</p>
+ */
+public class TranscriptionQueue<T> {
+
+    public static final class Job<T> implements Comparable<Job<T>> {
+
+        public final String id;
+        public final int priority;
+        public final T payload;
+        private final long sequence;
+
+        Job(String id, int priority, T payload, long sequence) {
+            this.id = id;
+            this.priority = priority;
+            this.payload = payload;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Job<T> other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final PriorityQueue<Job<T>> queue = new PriorityQueue<>();
+    private final Map<String, Job<T>> byId = new HashMap<>();
+    private long nextSequence;
+
+    /**
+     * Queues a job behind every job of the same or higher priority.
+     *
+     * @return {@code false} when a job with the same id is already queued.
+     */
+    public boolean add(String id, int priority, T payload) {
+        if (byId.containsKey(id)) {
+            return false;
+        }
+        Job<T> job = new Job<>(id, priority, payload, nextSequence++);
+        queue.add(job);
+        byId.put(id, job);
+        return true;
+    }
+
+    /**
+     * Puts back a job taken with {@link #poll()} at its original place, e.g. when a live session preempted it.
+     */
+    public void requeue(Job<T> job) {
+        if (byId.containsKey(job.id)) {
+            return;
+        }
+        queue.add(job);
+        byId.put(job.id, job);
+    }
+
+    /**
+     * Removes and returns the next job to run, or {@code null} when the queue is empty.
+     */
+    public Job<T> poll() {
+        Job<T> job = queue.poll();
+        if (job != null) {
+            byId.remove(job.id);
+        }
+        return job;
+    }
+
+    /**
+     * Removes the queued job with {@code id}.
+     *
+     * @return the removed job, or {@code null} when no such job is queued.
+     */
+    public Job<T> remove(String id) {
+        Job<T> job = byId.remove(id);
+        if (job != null) {
+            queue.remove(job);
+        }
+        return job;
+    }
+
+    public boolean contains(String id) {
+        return byId.containsKey(id);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+}
@@ -0,0 +1,92 @@
+package app.capgo.speechrecognition.core;
+
+/**
+ * Energy and zero-crossing voice activity detector for 16-bit PCM frames.
+ *
+ * <p>The first frames calibrate a noise floor, which then follows the ambient level on every frame judged silent. A
+ * frame counts as speech when its energy clears the floor by a margin set by the sensitivity and its zero-crossing
+ * rate stays below that of broadband noise such as hiss or fans. Speech is reported after a run of consecutive
+ * speech frames, so clicks and short bangs do not trigger it.</p>
+ *
+ * <p>{@link #process} does not allocate, so it can run in a tight capture loop. Not thread-safe.</p>
+ */
+public class VoiceActivityDetector {
+
+    public static final float DEFAULT_SENSITIVITY = 0.5f;
+
+    private static final int CALIBRATION_FRAMES = 10;
+    private static final double MIN_ENERGY = 100.0 * 100.0;
+    private static final double MAX_ZERO_CROSSING_RATE = 0.45;
+    private static final double NOISE_ADAPTATION = 0.05;
+    private static final long ONSET_MILLIS = 80;
+
+    private final double thresholdRatio;
+    private final int onsetFrames;
+    private double noiseFloor;
+    private int calibrated;
+    private int speechRun;
+
+    /**
+     * @param frameMillis duration of the frames passed to {@link #process}.
+     * @param sensitivity from {@code 0} (loud speech only) to {@code 1} (anything above the noise floor).
+     */
+    public VoiceActivityDetector(long frameMillis, float sensitivity) {
+        float clamped = Math.max(0f, Math.min(1f, sensitivity));
+        // 0.5 requires about 8 dB above the noise floor; the range spans 3 to 10 dB
+        this.thresholdRatio = 2.0 + (1.0 - clamped) * 8.0;
+        this.onsetFrames = (int) Math.max(1, ONSET_MILLIS / Math.max(1, frameMillis));
+    }
+
+    /**
+     * Feeds one frame.
+     *
+     * @return {@code true} once enough consecutive speech frames were seen.
+     */
+    public boolean process(short[] samples, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+
+        double energy = 0;
+        int crossings = 0;
+        short previous = samples[offset];
+        for (int i = offset; i < offset + length; i++) {
+            short sample = samples[i];
+            energy += (double) sample * sample;
+            if ((sample >= 0) != (previous >= 0)) {
+                crossings++;
+            }
+            previous = sample;
+        }
+        energy /= length;
+        double zeroCrossingRate = crossings / (double) length;
+
+        if (calibrated < CALIBRATION_FRAMES) {
+            noiseFloor += (energy - noiseFloor) / ++calibrated;
+            return false;
+        }
+
+        boolean speech =
+            energy > MIN_ENERGY && energy > noiseFloor * thresholdRatio && zeroCrossingRate < MAX_ZERO_CROSSING_RATE;
+        if (speech) {
+            speechRun++;
+        } else {
+            speechRun = 0;
+            noiseFloor += (energy - noiseFloor) * NOISE_ADAPTATION;
+        }
+        return speechRun >= onsetFrames;
+    }
+
+    /**
+     * Forgets the noise floor and any speech in progress.
+     */
+    public void reset() {
+        noiseFloor = 0;
+        calibrated = 0;
+        speechRun = 0;
+    }
+
+    public double getNoiseFloor() {
+        return noiseFloor;
+    }
+}
@@ -0,0 +1,120 @@
+package app.capgo.speechrecognition.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the RIFF header of a WAV file and leaves the stream at the first sample.
+ *
+ * <p>Only uncompressed 16-bit PCM is accepted, which is what recognizers take as an audio source. Chunks other than
+ * {@code fmt } and {@code data} are skipped.</p>
+ */
+public final class WavHeader {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    public final int sampleRate;
+    public final int channelCount;
+    public final int bitsPerSample;
+    /**
+     * Size of the {@code data} chunk in bytes, or {@code -1} when the header does not say (streamed recordings).
+     */
+    public final long dataLength;
+
+    private WavHeader(int sampleRate, int channelCount, int bitsPerSample, long dataLength) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.bitsPerSample = bitsPerSample;
+        this.dataLength = dataLength;
+    }
+
+    public static WavHeader read(InputStream in) throws IOException {
+        byte[] buffer = new byte[16];
+        readFully(in, buffer, 12);
+        if (!tag(buffer, 0, "RIFF") || !tag(buffer, 8, "WAVE")) {
+            throw new IOException("Not a WAV file");
+        }
+
+        int format = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bits = 0;
+        while (true) {
+            readFully(in, buffer, 8);
+            long size = uint32(buffer, 4);
+            if (tag(buffer, 0, "fmt ")) {
+                if (size < 16) {
+                    throw new IOException("Malformed WAV format chunk");
+                }
+                readFully(in, buffer, 16);
+                format = uint16(buffer, 0);
+                channels = uint16(buffer, 2);
+                sampleRate = (int) uint32(buffer, 4);
+                bits = uint16(buffer, 14);
+                skip(in, size - 16 + (size & 1));
+            } else if (tag(buffer, 0, "data")) {
+                if (format != FORMAT_PCM && format != FORMAT_EXTENSIBLE) {
+                    throw new IOException("Unsupported WAV encoding: " + format);
+                }
+                if (bits != 16 || channels < 1 || sampleRate <= 0) {
+                    throw new IOException("Only 16-bit PCM WAV files are supported");
+                }
+                // 0 and 0xFFFFFFFF are written by recorders that could not seek back to patch the size
+                long length = size == 0 || size == 0xFFFFFFFFL ? -1 : size;
+                return new WavHeader(sampleRate, channels, bits, length);
+            } else {
+                skip(in, size + (size & 1));
+            }
+        }
+    }
+
+    /**
+     * Wraps the remaining samples of {@code in}, which must be positioned by {@link #read(InputStream)}.
+     */
+    public AudioInput toAudioInput(InputStream in) {
+        return new AudioInput(in, sampleRate, channelCount, dataLength);
+    }
+
+    private static boolean tag(byte[] buffer, int offset, String tag) {
+        for (int i = 0; i < 4; i++) {
+            if (buffer[offset + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int uint16(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+    }
+
+    private static long uint32(byte[] buffer, int offset) {
+        return (uint16(buffer, offset) | (long) uint16(buffer, offset + 2) << 16) & 0xFFFFFFFFL;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = in.read(buffer, read, length - read);
+            if (count < 0) {
+                throw new EOFException("Truncated WAV header");
+            }
+            read += count;
+        }
+    }
+
+    private static void skip(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated WAV header");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
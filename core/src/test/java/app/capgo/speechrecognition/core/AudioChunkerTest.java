@@ -0,0 +1,152 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import org.junit.Test;
+
+public class AudioChunkerTest {
+
+    @Test
+    public void cutsTheStreamIntoFixedSizeFrames() {
+        AudioChunker chunker = new AudioChunker(4, 4);
+
+        assertEquals(0, chunker.write(new byte[] { 1, 2, 3 }));
+        assertEquals(2, chunker.write(new byte[] { 4, 5, 6, 7, 8, 9, 10 }));
+
+        assertFrame(chunker.take(), 0, 1, 2, 3, 4);
+        assertFrame(chunker.take(), 1, 5, 6, 7, 8);
+        assertNull(chunker.take());
+        assertEquals(1, chunker.flush());
+        assertFrame(chunker.take(), 2, 9, 10);
+        assertEquals(0, chunker.flush());
+    }
+
+    @Test
+    public void takingFramesSpendsCredits() {
+        AudioChunker chunker = new AudioChunker(2, 2);
+        chunker.write(new byte[4]);
+
+        chunker.release(chunker.take());
+        chunker.release(chunker.take());
+
+        assertEquals(0, chunker.getCredits());
+        assertEquals(0, chunker.write(new byte[2]));
+        assertNull(chunker.take());
+        assertEquals(1, chunker.grant(1));
+        assertEquals(2, chunker.take().sequence);
+        assertEquals(0, chunker.getDropped());
+    }
+
+    @Test
+    public void sendsEveryFrameOneWriteFills() {
+        AudioChunker chunker = new AudioChunker(3200, 8);
+        // A recognizer buffer may hold several frames, e.g. 500 ms of 16 kHz audio
+        byte[] buffer = new byte[16000];
+        int sent = 0;
+
+        for (int i = 0; i < 100; i++) {
+            int sendable = chunker.write(buffer);
+            assertEquals(5, sendable);
+            for (int j = 0; j < sendable; j++) {
+                chunker.release(chunker.take());
+                sent++;
+            }
+            // The consumer keeps up and acknowledges everything it got
+            chunker.grant(sendable);
+        }
+
+        assertEquals(500, sent);
+        assertEquals(0, chunker.getDropped());
+    }
+
+    @Test
+    public void creditsNeverExceedTheWindow() {
+        AudioChunker chunker = new AudioChunker(2, 3);
+
+        assertEquals(0, chunker.grant(10));
+        assertEquals(3, chunker.getCredits());
+        chunker.write(new byte[2]);
+        chunker.take();
+        assertEquals(0, chunker.grant(-5));
+        assertEquals(2, chunker.getCredits());
+    }
+
+    @Test
+    public void dropsTheOldestFrameWhenTheConsumerFallsBehind() {
+        AudioChunker chunker = new AudioChunker(2, 2);
+
+        for (byte i = 0; i < 6; i++) {
+            chunker.write(new byte[] { i, i });
+        }
+
+        assertEquals(3, chunker.getDropped());
+        // The pool holds the window plus the frame being filled, so the newest three survive
+        assertFrame(chunker.take(), 3, 3, 3);
+        assertFrame(chunker.take(), 4, 4, 4);
+        assertNull(chunker.take());
+        chunker.grant(1);
+        assertFrame(chunker.take(), 5, 5, 5);
+    }
+
+    @Test
+    public void reusesPooledFramesForTheWholeSession() {
+        AudioChunker chunker = new AudioChunker(320, 4);
+        Set<AudioChunker.Frame> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        byte[] data = new byte[500];
+        long expectedSequence = 0;
+
+        for (int i = 0; i < 10_000; i++) {
+            chunker.write(data);
+            AudioChunker.Frame frame;
+            while ((frame = chunker.take()) != null) {
+                assertEquals(expectedSequence++, frame.sequence);
+                seen.add(frame);
+                chunker.release(frame);
+                chunker.grant(1);
+            }
+        }
+
+        assertEquals(0, chunker.getDropped());
+        assertTrue("frames allocated: " + seen.size(), seen.size() <= 5);
+    }
+
+    @Test
+    public void keepsTheStreamMovingWhileFramesAreTaken() {
+        AudioChunker chunker = new AudioChunker(2, 1);
+        chunker.write(new byte[4]);
+        AudioChunker.Frame held = chunker.take();
+
+        // Every pooled frame is out or waiting; the chunker drops the waiting one
+        chunker.write(new byte[2]);
+        chunker.release(held);
+
+        assertEquals(1, chunker.getDropped());
+        chunker.grant(1);
+        assertEquals(2, chunker.take().sequence);
+    }
+
+    @Test
+    public void roundsTheFrameSizeToWholeSamples() {
+        AudioChunker chunker = new AudioChunker(5, 0);
+
+        assertEquals(4, chunker.getFrameSize());
+        assertEquals(1, chunker.getCredits());
+        assertEquals(2, new AudioChunker(0, 1).getFrameSize());
+    }
+
+    private static void assertFrame(AudioChunker.Frame frame, long sequence, int... bytes) {
+        byte[] expected = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            expected[i] = (byte) bytes[i];
+        }
+        assertEquals(sequence, frame.sequence);
+        assertArrayEquals(expected, Arrays.copyOf(frame.data, frame.length));
+    }
+}
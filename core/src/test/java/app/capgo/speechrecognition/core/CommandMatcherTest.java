@@ -0,0 +1,96 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class CommandMatcherTest {
+
+    private final CommandMatcher matcher = new CommandMatcher(
+        Arrays.asList("lights on", "lights on full", "stop", "Next, please!", "play", "play music", "play music loud")
+    );
+
+    @Test
+    public void matchesAPhraseAnywhereInTheHypothesis() {
+        assertMatch("stop", "stop", false);
+        assertMatch("stop", "please stop now", false);
+        assertMatch("stop", "STOP!", false);
+        assertMatch("Next, please!", "ok next please", false);
+        assertMatch(null, "nothing here", false);
+        assertMatch(null, "stopping", false);
+    }
+
+    @Test
+    public void firesAtOnceWhenNoLongerPhraseCouldFollow() {
+        assertMatch("lights on full", "lights on full", false);
+        assertMatch("play music loud", "play music loud", false);
+    }
+
+    @Test
+    public void waitsWhileALongerPhraseIsStillPossible() {
+        assertMatch(null, "lights on", false);
+        assertMatch(null, "turn the lights on", false);
+        assertMatch(null, "play", false);
+        assertMatch(null, "play music", false);
+        // A word ending the prefix is not a command yet
+        assertMatch(null, "lights", false);
+    }
+
+    @Test
+    public void settlesTheLongestCompletePhraseOnFinalResults() {
+        assertMatch("lights on", "lights on", true);
+        assertMatch("play music", "play music", true);
+        assertMatch("play", "play", true);
+        assertMatch(null, "lights", true);
+    }
+
+    @Test
+    public void settlesOnTheNextWord() {
+        assertMatch("lights on", "lights on please", false);
+        assertMatch("play music", "play music softly", false);
+        assertMatch("play", "play something", false);
+        // "lights" alone never completed a phrase; the next start position is tried
+        assertMatch("stop", "lights stop", false);
+    }
+
+    @Test
+    public void takesTheEarliestCommand() {
+        assertMatch("stop", "stop play music loud", false);
+        assertMatch("play music loud", "play music loud stop", false);
+        assertMatch("lights on", "lights on stop", false);
+    }
+
+    @Test
+    public void firstRegistrationOfAPhraseWins() {
+        CommandMatcher duplicates = new CommandMatcher(Arrays.asList("Go", "go!", "", "  "));
+
+        assertEquals(4, duplicates.size());
+        assertEquals(0, duplicates.match("go", false));
+        assertEquals(CommandMatcher.NO_MATCH, duplicates.match("", true));
+    }
+
+    @Test
+    public void emptyMatcherNeverMatches() {
+        CommandMatcher empty = new CommandMatcher(Collections.<String>emptyList());
+
+        assertEquals(CommandMatcher.NO_MATCH, empty.match("anything", true));
+        assertEquals(CommandMatcher.NO_MATCH, matcher.match(null, true));
+    }
+
+    @Test
+    public void tokenizesOnLettersAndDigits() {
+        assertEquals(
+            Arrays.asList("turn", "on", "the", "lights", "now"),
+            CommandMatcher.tokenize("Turn ON the lights, now!")
+        );
+        assertEquals(Arrays.asList("it", "s", "2go"), CommandMatcher.tokenize("  it's -2go?"));
+        assertEquals(Collections.<String>emptyList(), CommandMatcher.tokenize("?!"));
+    }
+
+    private void assertMatch(String expected, String text, boolean isFinal) {
+        int index = matcher.match(text, isFinal);
+        assertEquals(text, expected, index == CommandMatcher.NO_MATCH ? null : matcher.getPhrase(index));
+    }
+}
@@ -0,0 +1,48 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ErrorRecoveryTest {
+
+    @Test
+    public void keepsTheRecognizerWhenNothingWasHeard() {
+        assertEquals(ErrorRecovery.KEEP, ErrorRecovery.forError(RecognitionErrors.ERROR_NO_MATCH));
+        assertEquals(ErrorRecovery.KEEP, ErrorRecovery.forError(RecognitionErrors.ERROR_SPEECH_TIMEOUT));
+    }
+
+    @Test
+    public void reusesTheServiceAfterRequestErrors() {
+        int[] errors = {
+            RecognitionErrors.ERROR_AUDIO,
+            RecognitionErrors.ERROR_INSUFFICIENT_PERMISSIONS,
+            RecognitionErrors.ERROR_NETWORK,
+            RecognitionErrors.ERROR_NETWORK_TIMEOUT,
+            RecognitionErrors.ERROR_RECOGNIZER_BUSY,
+            RecognitionErrors.ERROR_SERVER,
+            RecognitionErrors.ERROR_LANGUAGE_NOT_SUPPORTED,
+            RecognitionErrors.ERROR_LANGUAGE_UNAVAILABLE
+        };
+        for (int error : errors) {
+            assertEquals("error " + error, ErrorRecovery.CANCEL_AND_REUSE, ErrorRecovery.forError(error));
+        }
+    }
+
+    @Test
+    public void recreatesTheRecognizerWhenItsStateIsUnknown() {
+        assertEquals(ErrorRecovery.DESTROY_AND_RECREATE, ErrorRecovery.forError(RecognitionErrors.ERROR_CLIENT));
+        assertEquals(
+            ErrorRecovery.DESTROY_AND_RECREATE,
+            ErrorRecovery.forError(RecognitionErrors.ERROR_SERVER_DISCONNECTED)
+        );
+        assertEquals(ErrorRecovery.DESTROY_AND_RECREATE, ErrorRecovery.forError(42));
+    }
+
+    @Test
+    public void exposesStableValues() {
+        assertEquals("keep", ErrorRecovery.KEEP.getValue());
+        assertEquals("cancelAndReuse", ErrorRecovery.CANCEL_AND_REUSE.getValue());
+        assertEquals("destroyAndRecreate", ErrorRecovery.DESTROY_AND_RECREATE.getValue());
+    }
+}
@@ -0,0 +1,161 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class EventDispatcherTest {
+
+    private final ManualQueue queue = new ManualQueue();
+    private final List<String> delivered = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+    private final EventDispatcher<String> dispatcher = new EventDispatcher<>(
+        queue,
+        new EventDispatcher.Sink<String>() {
+            @Override
+            public void dispatch(String eventName, String data) {
+                delivered.add(eventName + " " + data);
+            }
+
+            @Override
+            public void onBuildFailed(String eventName, RuntimeException error) {
+                failures.add(eventName + " " + error.getMessage());
+            }
+        }
+    );
+
+    @Test
+    public void deliversUnlimitedEventsInOrderOnTheQueue() {
+        dispatcher.emit("a", () -> "1");
+        dispatcher.execute(() -> delivered.add("task"));
+        dispatcher.emitImmediately("b", () -> "2");
+
+        assertEquals(Collections.emptyList(), delivered);
+        queue.runAll();
+
+        assertEquals(Arrays.asList("a 1", "task", "b 2"), delivered);
+    }
+
+    @Test
+    public void keepsOnlyTheLatestEventWithinTheInterval() {
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 10));
+
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+        dispatcher.emit("partial", () -> "3");
+        queue.advance(99);
+
+        assertEquals(Collections.singletonList("partial 1"), delivered);
+        queue.advance(1);
+        assertEquals(Arrays.asList("partial 1", "partial 3"), delivered);
+        assertEquals(1, dispatcher.getDroppedCount("partial"));
+    }
+
+    @Test
+    public void immediateEventsSupersedeAWaitingOne() {
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 10));
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+
+        dispatcher.emitImmediately("partial", () -> "final");
+        queue.advance(1000);
+
+        assertEquals(Arrays.asList("partial 1", "partial final"), delivered);
+        assertEquals(1, dispatcher.getDroppedCount("partial"));
+    }
+
+    @Test
+    public void discardDropsTheWaitingEventWithoutCountingIt() {
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 10));
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+
+        dispatcher.discard("partial");
+        queue.advance(1000);
+
+        assertEquals(Collections.singletonList("partial 1"), delivered);
+        assertEquals(0, dispatcher.getDroppedCount("partial"));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void clearDropsEveryWaitingEvent() {
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 10));
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+
+        dispatcher.clear();
+        queue.advance(1000);
+
+        assertEquals(Collections.singletonList("partial 1"), delivered);
+    }
+
+    @Test
+    public void removingALimitSendsTheWaitingEventBeforeNewerOnes() {
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 10));
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+
+        dispatcher.setRateLimits(Collections.<String, Integer>emptyMap());
+        dispatcher.emit("partial", () -> "3");
+        queue.advance(0);
+
+        assertEquals(Arrays.asList("partial 1", "partial 2", "partial 3"), delivered);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void changingALimitReschedulesTheWaitingEvent() {
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 10));
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+
+        dispatcher.setRateLimits(Collections.singletonMap("partial", 2));
+        queue.advance(499);
+        assertEquals(Collections.singletonList("partial 1"), delivered);
+        queue.advance(1);
+
+        assertEquals(Arrays.asList("partial 1", "partial 2"), delivered);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void powerProfileChangeBetweenTwoPartialsKeepsTheirOrder() {
+        Map<String, Integer> requested = Collections.emptyMap();
+        dispatcher.setRateLimits(PowerProfile.MINIMAL.limitRates(requested, "partial"));
+        dispatcher.emit("partial", () -> "1");
+        queue.advance(0);
+        dispatcher.emit("partial", () -> "2");
+
+        // The device cooled down: back to unlimited partial results
+        dispatcher.setRateLimits(PowerProfile.NORMAL.limitRates(requested, "partial"));
+        dispatcher.emit("partial", () -> "3");
+        queue.runAll();
+
+        assertEquals(Arrays.asList("partial 1", "partial 2", "partial 3"), delivered);
+    }
+
+    @Test
+    public void skipsCancelledAndFailingPayloads() {
+        dispatcher.emit("a", () -> null);
+        dispatcher.emit("b", () -> {
+            throw new IllegalStateException("boom");
+        });
+        dispatcher.emit("c", () -> "ok");
+        queue.runAll();
+
+        assertEquals(Collections.singletonList("c ok"), delivered);
+        assertEquals(Collections.singletonList("b boom"), failures);
+    }
+}
@@ -0,0 +1,162 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class FakeRecognitionEngineTest {
+
+    /**
+     * Runs scheduled steps only when asked, so a request can be observed while it is in progress.
+     */
+    static final class ManualScheduler implements FakeRecognitionEngine.Scheduler {
+
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    static final class TrackedStream extends ByteArrayInputStream {
+
+        boolean closed;
+
+        TrackedStream() {
+            super(new byte[0]);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final FakeRecognitionEngine.Script UTTERANCE = FakeRecognitionEngine.Script.utterance(
+        10,
+        "hello",
+        "world"
+    );
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final FakeRecognitionEngine engine = new FakeRecognitionEngine(UTTERANCE, scheduler);
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    public void replaysTheScriptThroughTheScheduler() {
+        engine.setListener(listener);
+        engine.startListening(request(null));
+
+        assertTrue(engine.isListening());
+        assertTrue(listener.events.isEmpty());
+        scheduler.runAll();
+
+        assertEquals(
+            Arrays.asList(
+                "ready",
+                "beginningOfSpeech",
+                "partial [hello]",
+                "partial [hello world]",
+                "endOfSpeech",
+                "results [hello world]"
+            ),
+            listener.events
+        );
+        assertFalse(engine.isListening());
+    }
+
+    @Test
+    public void busyErrorLeavesTheActiveRequestRunning() {
+        engine.setListener(listener);
+        TrackedStream active = new TrackedStream();
+        TrackedStream refused = new TrackedStream();
+        RecognitionRequest first = request(active);
+        engine.startListening(first);
+        scheduler.tasks.poll().run();
+
+        engine.startListening(request(refused));
+
+        assertEquals(Arrays.asList("ready", "error " + RecognitionErrors.ERROR_RECOGNIZER_BUSY), listener.events);
+        assertTrue(engine.isListening());
+        assertSame(first, engine.getLastRequest());
+        assertEquals(1, engine.getStartCount());
+        assertFalse(active.closed);
+        assertTrue(refused.closed);
+
+        scheduler.runAll();
+
+        assertEquals("results [hello world]", listener.events.get(listener.events.size() - 1));
+        assertFalse(engine.isListening());
+        assertTrue(active.closed);
+    }
+
+    @Test
+    public void stopListeningDeliversTheResultAtOnce() {
+        engine.setListener(listener);
+        engine.startListening(request(null));
+        scheduler.tasks.poll().run();
+
+        engine.stopListening();
+        scheduler.runAll();
+
+        assertEquals(Arrays.asList("ready", "endOfSpeech", "results [hello world]"), listener.events);
+        assertFalse(engine.isListening());
+    }
+
+    @Test
+    public void cancelDropsTheRemainingSteps() {
+        engine.setListener(listener);
+        TrackedStream input = new TrackedStream();
+        engine.startListening(request(input));
+        scheduler.tasks.poll().run();
+
+        engine.cancel();
+        scheduler.runAll();
+
+        assertEquals(Arrays.asList("ready"), listener.events);
+        assertFalse(engine.isListening());
+        assertTrue(input.closed);
+    }
+
+    @Test
+    public void scriptsPlayInTurn() {
+        FakeRecognitionEngine.Script other = new FakeRecognitionEngine.Script.Builder()
+            .error(0, RecognitionErrors.ERROR_NO_MATCH)
+            .build();
+        FakeRecognitionEngine turns = new FakeRecognitionEngine(
+            Arrays.asList(other, UTTERANCE),
+            FakeRecognitionEngine.IMMEDIATE
+        );
+        turns.setListener(listener);
+
+        turns.startListening(request(null));
+        turns.startListening(request(null));
+        turns.startListening(request(null));
+
+        assertEquals("error " + RecognitionErrors.ERROR_NO_MATCH, listener.events.get(0));
+        assertEquals("results [hello world]", listener.events.get(6));
+        assertEquals("error " + RecognitionErrors.ERROR_NO_MATCH, listener.events.get(7));
+        assertEquals(3, turns.getStartCount());
+    }
+
+    private static RecognitionRequest request(TrackedStream stream) {
+        RecognitionRequest.Builder builder = new RecognitionRequest.Builder().setPartialResults(true);
+        if (stream != null) {
+            builder.setAudioInput(new AudioInput(stream, 16000, 1, -1));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,83 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private static final double DELTA = 1e-9;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void bucketBoundsAreInclusive() {
+        histogram.record(ms(10));
+        histogram.record(ms(11));
+        histogram.record(ms(6400));
+        histogram.record(ms(6401));
+
+        assertEquals(1, histogram.getBucket(0));
+        assertEquals(1, histogram.getBucket(1));
+        assertEquals(1, histogram.getBucket(LatencyHistogram.BUCKET_BOUNDS_MS.length - 1));
+        assertEquals(1, histogram.getBucket(LatencyHistogram.BUCKET_BOUNDS_MS.length));
+        assertEquals(LatencyHistogram.BUCKET_BOUNDS_MS.length + 1, histogram.getBucketCount());
+    }
+
+    @Test
+    public void tracksCountMeanMinAndMax() {
+        histogram.record(ms(20));
+        histogram.record(ms(40));
+        histogram.record(ms(90));
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(50, histogram.getMeanMs(), DELTA);
+        assertEquals(20, histogram.getMinMs(), DELTA);
+        assertEquals(90, histogram.getMaxMs(), DELTA);
+    }
+
+    @Test
+    public void percentilesReportTheBucketUpperBound() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(ms(30));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(ms(300));
+        }
+
+        assertEquals(50, histogram.getPercentileMs(50), DELTA);
+        assertEquals(50, histogram.getPercentileMs(90), DELTA);
+        assertEquals(300, histogram.getPercentileMs(99), DELTA);
+    }
+
+    @Test
+    public void percentilesNeverExceedTheMaximum() {
+        histogram.record(ms(120));
+
+        assertEquals(120, histogram.getPercentileMs(50), DELTA);
+
+        histogram.record(ms(9000));
+
+        assertEquals(200, histogram.getPercentileMs(50), DELTA);
+        assertEquals(9000, histogram.getPercentileMs(100), DELTA);
+    }
+
+    @Test
+    public void emptyAndResetHistogramsReportZero() {
+        assertEquals(0, histogram.getPercentileMs(50), DELTA);
+        assertEquals(0, histogram.getMinMs(), DELTA);
+
+        histogram.record(ms(100));
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getBucket(3));
+        assertEquals(0, histogram.getMeanMs(), DELTA);
+        assertEquals(0, histogram.getMaxMs(), DELTA);
+        assertEquals(0, histogram.getPercentileMs(99), DELTA);
+    }
+
+    private static long ms(long millis) {
+        return millis * 1_000_000;
+    }
+}
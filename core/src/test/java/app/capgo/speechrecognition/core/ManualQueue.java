@@ -0,0 +1,77 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatch queue on a virtual clock: tasks run when {@link #advance(long)} or {@link #runAll()} reaches them, in
+ * time then posting order, like a {@code Handler} on a looper.
+ */
+class ManualQueue implements EventDispatcher.Queue {
+
+    private static final class Task {
+
+        final Runnable runnable;
+        final long at;
+
+        Task(Runnable runnable, long at) {
+            this.runnable = runnable;
+            this.at = at;
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long now;
+
+    @Override
+    public long uptimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        postAtTime(task, now);
+    }
+
+    @Override
+    public void postAtTime(Runnable task, long uptimeMillis) {
+        int index = tasks.size();
+        while (index > 0 && tasks.get(index - 1).at > uptimeMillis) {
+            index--;
+        }
+        tasks.add(index, new Task(task, uptimeMillis));
+    }
+
+    @Override
+    public void remove(Runnable task) {
+        tasks.removeIf(entry -> entry.runnable == task);
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Moves the clock forward, running every task due by then.
+     */
+    void advance(long millis) {
+        long until = now + millis;
+        while (!tasks.isEmpty() && tasks.get(0).at <= until) {
+            Task task = tasks.remove(0);
+            now = Math.max(now, task.at);
+            task.runnable.run();
+        }
+        now = until;
+    }
+
+    /**
+     * Runs every task, delayed ones included, moving the clock to the last of them.
+     */
+    void runAll() {
+        while (!tasks.isEmpty()) {
+            Task task = tasks.remove(0);
+            now = Math.max(now, task.at);
+            task.runnable.run();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class PartialResultsEncoderTest {
+
+    private final PartialResultsEncoder encoder = new PartialResultsEncoder();
+
+    @Test
+    public void skipsEmptyAndRepeatedUpdates() {
+        assertFalse(encoder.update(null));
+        assertFalse(encoder.update(Collections.<String>emptyList()));
+        assertTrue(encoder.update(Arrays.asList("hello")));
+
+        encoder.replace(Arrays.asList("hello"));
+
+        assertFalse(encoder.update(Arrays.asList("hello")));
+        assertTrue(encoder.update(Arrays.asList("hello", "yellow")));
+    }
+
+    @Test
+    public void encodesOnlyTheChangedTail() {
+        encoder.encode(Arrays.asList("turn on", "turn"));
+
+        List<PartialResultsEncoder.Delta> deltas = encoder.encode(Arrays.asList("turn off", "tern", "third"));
+
+        assertDelta(deltas.get(0), 6, "ff");
+        assertDelta(deltas.get(1), 1, "ern");
+        assertDelta(deltas.get(2), 0, "third");
+    }
+
+    @Test
+    public void treatsNullHypothesesAsEmpty() {
+        encoder.encode(Arrays.asList("one", null));
+
+        List<PartialResultsEncoder.Delta> deltas = encoder.encode(Arrays.asList(null, "two"));
+
+        assertDelta(deltas.get(0), 0, "");
+        assertDelta(deltas.get(1), 0, "two");
+        assertFalse(encoder.update(Arrays.asList("", "two")));
+    }
+
+    @Test
+    public void neverSplitsASurrogatePair() {
+        // U+1F600 and U+1F601 share their high surrogate
+        encoder.encode(Arrays.asList("hi \ud83d\ude00"));
+
+        List<PartialResultsEncoder.Delta> deltas = encoder.encode(Arrays.asList("hi \ud83d\ude01"));
+
+        assertDelta(deltas.get(0), 3, "\ud83d\ude01");
+    }
+
+    @Test
+    public void resetDropsTheBaseline() {
+        encoder.encode(Arrays.asList("hello"));
+        encoder.reset();
+
+        assertTrue(encoder.update(Arrays.asList("hello")));
+        assertDelta(encoder.encode(Arrays.asList("hello")).get(0), 0, "hello");
+    }
+
+    private static void assertDelta(PartialResultsEncoder.Delta delta, int prefixLength, String text) {
+        assertEquals(prefixLength, delta.prefixLength);
+        assertEquals(text, delta.text);
+    }
+}
@@ -0,0 +1,114 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Test;
+
+public class PreRollBufferTest {
+
+    private final PreRollBuffer buffer = new PreRollBuffer(16);
+
+    @Test
+    public void startsThePreRollBeforeTheNewestAudio() throws IOException {
+        write(0, 1, 2, 3, 4, 5);
+
+        InputStream stream = buffer.openStream(4);
+
+        assertArrayEquals(bytes(2, 3, 4, 5), read(stream, 4));
+        write(6, 7);
+        assertArrayEquals(bytes(6, 7), read(stream, 2));
+    }
+
+    @Test
+    public void nextReaderDoesNotRepeatAudioAlreadyReturned() throws IOException {
+        write(0, 1, 2, 3);
+        InputStream first = buffer.openStream(4);
+        read(first, 4);
+        first.close();
+        write(4, 5);
+
+        InputStream second = buffer.openStream(8);
+
+        assertEquals(2, second.available());
+        assertArrayEquals(bytes(4, 5), read(second, 2));
+    }
+
+    @Test
+    public void audioReadAfterEndOfSpeechOpensTheNextUtterance() throws IOException {
+        write(0, 1, 2, 3);
+        InputStream first = buffer.openStream(4);
+        read(first, 4);
+        buffer.markEndOfSpeech();
+        // The recognizer keeps draining its input until it delivers the result
+        write(4, 5, 6, 7);
+        read(first, 4);
+        first.close();
+
+        InputStream second = buffer.openStream(8);
+
+        assertEquals(4, second.available());
+        assertArrayEquals(bytes(4, 5, 6, 7), read(second, 4));
+    }
+
+    @Test
+    public void endOfSpeechOnlyAppliesToTheUtteranceBeingRead() throws IOException {
+        write(0, 1);
+        buffer.markEndOfSpeech();
+        InputStream first = buffer.openStream(2);
+        read(first, 2);
+        first.close();
+
+        InputStream second = buffer.openStream(2);
+        write(2, 3);
+
+        assertArrayEquals(bytes(2, 3), read(second, 2));
+    }
+
+    @Test
+    public void readerLappedByTheWriterSkipsToTheOldestAudio() throws IOException {
+        InputStream stream = buffer.openStream(0);
+        write(new byte[20]);
+
+        assertEquals(16, stream.available());
+        read(stream, 16);
+        assertEquals(4, buffer.getOverrunBytes());
+    }
+
+    @Test
+    public void closedBufferEndsStreamsAfterTheirAudio() throws IOException {
+        write(0, 1);
+        InputStream stream = buffer.openStream(2);
+        buffer.close();
+
+        assertArrayEquals(bytes(0, 1), read(stream, 2));
+        assertEquals(-1, stream.read());
+    }
+
+    private void write(int... values) {
+        write(bytes(values));
+    }
+
+    private void write(byte[] data) {
+        buffer.write(data, 0, data.length);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] data = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            data[i] = (byte) values[i];
+        }
+        return data;
+    }
+
+    private static byte[] read(InputStream stream, int length) throws IOException {
+        byte[] data = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            offset += stream.read(data, offset, length - offset);
+        }
+        return data;
+    }
+}
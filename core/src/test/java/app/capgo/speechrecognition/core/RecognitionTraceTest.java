@@ -0,0 +1,98 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+public class RecognitionTraceTest {
+
+    private long nanos;
+
+    private String record(RecognitionEngine.Listener target, Consumer<RecognitionEngine.Listener> body) {
+        StringWriter out = new StringWriter();
+        RecognitionTrace.Recorder recorder = new RecognitionTrace.Recorder(out, () -> nanos);
+        recorder.recordStart(new RecognitionRequest.Builder().setPartialResults(true).build());
+        body.accept(recorder.wrap(target));
+        recorder.recordStop();
+        recorder.close();
+        assertEquals(null, recorder.getFailure());
+        return out.toString();
+    }
+
+    private List<String> replay(String trace) throws IOException {
+        RecordingListener log = new RecordingListener();
+        FakeRecognitionEngine engine = RecognitionTrace.replay(
+            new StringReader(trace),
+            0,
+            FakeRecognitionEngine.IMMEDIATE
+        );
+        engine.setListener(log);
+        engine.startListening(new RecognitionRequest.Builder().build());
+        return log.events;
+    }
+
+    @Test
+    public void replaysWhatWasRecorded() throws IOException {
+        RecordingListener live = new RecordingListener();
+        String trace = record(live, listener -> {
+            listener.onReadyForSpeech();
+            listener.onBeginningOfSpeech();
+            nanos += 5_000_000;
+            listener.onRmsChanged(3.5f);
+            listener.onBufferReceived(new byte[320]);
+            listener.onPartialResults(Arrays.asList("say \"hi\"\n\\", "caf\u00e9\u0001"));
+            listener.onEndOfSpeech();
+            listener.onResults(Arrays.asList("hello", "yellow"));
+        });
+
+        assertEquals(live.events, replay(trace));
+    }
+
+    @Test
+    public void recordsNonFiniteLevelsAsFiniteNumbers() throws IOException {
+        String trace = record(new RecordingListener(), listener -> {
+            listener.onRmsChanged(Float.NaN);
+            listener.onRmsChanged(Float.POSITIVE_INFINITY);
+            listener.onRmsChanged(Float.NEGATIVE_INFINITY);
+        });
+
+        assertTrue(trace, !trace.contains("NaN") && !trace.contains("Infinity"));
+        assertEquals(Arrays.asList("rms 0.0", "rms " + Float.MAX_VALUE, "rms " + -Float.MAX_VALUE), replay(trace));
+    }
+
+    @Test
+    public void recordsNullHypotheses() throws IOException {
+        RecordingListener live = new RecordingListener();
+        String trace = record(live, listener -> {
+            listener.onPartialResults(Arrays.asList("one", null));
+            listener.onResults(Arrays.asList(null, "two"));
+        });
+
+        assertEquals(Arrays.asList("partial [one, null]", "results [null, two]"), live.events);
+        assertEquals(live.events, replay(trace));
+    }
+
+    @Test
+    public void ignoresCallbacksBeforeTheFirstRequest() throws IOException {
+        String trace = "{\"t\":0,\"e\":\"ready\"}\n{\"t\":1,\"e\":\"start\"}\n{\"t\":2,\"e\":\"error\",\"code\":7}\n";
+
+        assertEquals(Arrays.asList("error 7"), replay(trace));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedLines() throws IOException {
+        RecognitionTrace.read(new StringReader("{\"t\":0,\"e\":\"start\"}\n{\"t\":1,\"e\":\"rms\",\"v\":NaN}\n"), 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTracesWithoutRequests() throws IOException {
+        RecognitionTrace.read(new StringReader("{\"t\":0,\"e\":\"ready\"}\n"), 1);
+    }
+}
@@ -0,0 +1,62 @@
+package app.capgo.speechrecognition.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Logs each engine callback as a line, so tests can compare what a listener heard.
+ */
+class RecordingListener implements RecognitionEngine.Listener {
+
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public void onReadyForSpeech() {
+        events.add("ready");
+    }
+
+    @Override
+    public void onBeginningOfSpeech() {
+        events.add("beginningOfSpeech");
+    }
+
+    @Override
+    public void onRmsChanged(float rmsdB) {
+        events.add("rms " + rmsdB);
+    }
+
+    @Override
+    public void onBufferReceived(byte[] buffer) {
+        events.add("buffer " + buffer.length);
+    }
+
+    @Override
+    public void onEndOfSpeech() {
+        events.add("endOfSpeech");
+    }
+
+    @Override
+    public void onError(int error) {
+        events.add("error " + error);
+    }
+
+    @Override
+    public void onResults(List<String> matches) {
+        events.add("results " + matches);
+    }
+
+    @Override
+    public void onPartialResults(List<String> matches) {
+        events.add("partial " + matches);
+    }
+
+    @Override
+    public void onSegmentResults(List<String> matches) {
+        events.add("segment " + matches);
+    }
+
+    @Override
+    public void onEndOfSegmentedSession() {
+        events.add("endOfSegmentedSession");
+    }
+}
@@ -0,0 +1,70 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RestartPolicyTest {
+
+    @Test
+    public void restartsAfterResultsWithTheBaseDelay() {
+        RestartPolicy policy = new RestartPolicy(250, 5000, 0);
+
+        assertEquals(250, policy.nextDelay(true));
+        assertEquals(250, policy.nextDelay(true));
+        assertEquals(2, policy.getRestartCount());
+    }
+
+    @Test
+    public void backsOffExponentiallyAfterEmptyUtterances() {
+        RestartPolicy policy = new RestartPolicy(250, 1000, 0);
+
+        assertEquals(350, policy.nextDelay(false));
+        assertEquals(450, policy.nextDelay(false));
+        assertEquals(650, policy.nextDelay(false));
+        assertEquals(1000, policy.nextDelay(false));
+        assertEquals(1000, policy.nextDelay(false));
+    }
+
+    @Test
+    public void productiveUtteranceEndsTheBackoff() {
+        RestartPolicy policy = new RestartPolicy(0, 5000, 0);
+        policy.nextDelay(false);
+        policy.nextDelay(false);
+
+        assertEquals(0, policy.nextDelay(true));
+        assertEquals(100, policy.nextDelay(false));
+    }
+
+    @Test
+    public void backoffDoesNotOverflowOnLongSilence() {
+        RestartPolicy policy = new RestartPolicy(0, Long.MAX_VALUE, 0);
+        long delay = 0;
+        for (int i = 0; i < 100; i++) {
+            delay = policy.nextDelay(false);
+        }
+
+        assertEquals(100L << 16, delay);
+    }
+
+    @Test
+    public void stopsAfterTheMaximumNumberOfRestarts() {
+        RestartPolicy policy = new RestartPolicy(0, 0, 2);
+
+        assertTrue(policy.canRestart());
+        policy.nextDelay(true);
+        assertTrue(policy.canRestart());
+        policy.nextDelay(false);
+        assertFalse(policy.canRestart());
+    }
+
+    @Test
+    public void clampsInvalidDelays() {
+        RestartPolicy policy = new RestartPolicy(-10, -20, 0);
+
+        assertEquals(0, policy.nextDelay(true));
+        assertEquals(0, policy.nextDelay(false));
+    }
+}
@@ -0,0 +1,84 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class SessionCallsTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private int timeouts;
+    private final SessionCalls<String> calls = new SessionCalls<>(
+        new SessionCalls.Scheduler() {
+            @Override
+            public void executeDelayed(Runnable task, long delayMs) {
+                scheduled.add(task);
+                delays.add(delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                scheduled.remove(task);
+            }
+        },
+        () -> timeouts++
+    );
+
+    @Test
+    public void handsTheStartCallOutOnce() {
+        calls.setStart("start");
+
+        assertTrue(calls.hasStart());
+        assertEquals("start", calls.takeStart());
+        assertFalse(calls.hasStart());
+        assertNull(calls.takeStart());
+    }
+
+    @Test
+    public void takingTheFlushCancelsItsTimeout() {
+        calls.setFlush("stop", 42);
+        calls.scheduleFlushTimeout(1500);
+
+        assertTrue(calls.isFlushing());
+        assertEquals(1, scheduled.size());
+        assertEquals(Long.valueOf(1500), delays.get(0));
+        assertEquals(42, calls.getFlushRequestedAt());
+        assertEquals("stop", calls.takeFlush());
+        assertFalse(calls.isFlushing());
+        assertTrue(scheduled.isEmpty());
+        assertNull(calls.takeFlush());
+    }
+
+    @Test
+    public void timeoutRunsTheHookWhileTheFlushIsPending() {
+        calls.setFlush("stop", 0);
+        calls.scheduleFlushTimeout(1500);
+
+        scheduled.remove(0).run();
+
+        assertEquals(1, timeouts);
+        assertTrue(calls.isFlushing());
+    }
+
+    @Test
+    public void flushSettledBeforeItsTimeoutIsScheduledIsNotBounded() {
+        // A recognizer may deliver the final result synchronously from stopListening()
+        calls.setFlush("stop", 0);
+        calls.takeFlush();
+        calls.scheduleFlushTimeout(1500);
+
+        assertTrue(scheduled.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesASecondFlushWhileOneIsPending() {
+        calls.setFlush("stop", 0);
+        calls.setFlush("again", 0);
+    }
+}
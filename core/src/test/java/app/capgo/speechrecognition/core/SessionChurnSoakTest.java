@@ -0,0 +1,520 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Drives tens of thousands of start/stop/flush/error cycles through the session core of the plugin and checks that
+ * nothing from a finished session stays reachable.
+ *
+ * <p>The retention-relevant state is the real one: the active listener and the engine lifecycle live in a
+ * {@link SessionController}, each listener's {@code start()} and flushed {@code stop()} calls in {@link SessionCalls},
+ * and calls are settled through {@link EventDispatcher#execute} lambdas on the dispatch queue. {@link Plugin} only
+ * wires them the way {@code SpeechRecognitionPlugin} does: which hook runs on start, stop, flush, abort, result and
+ * error. Engines are {@link FakeRecognitionEngine}s, switched between kinds now and then so discarded engines are
+ * covered too. Calls, listeners and engines of sampled sessions are tracked with weak references and must be
+ * collectable once the run ends. Setup throughput and tail latency are printed for comparison across changes; pass
+ * {@code -PsoakCycles=N} to run longer.</p>
+ */
+public class SessionChurnSoakTest {
+
+    private static final int CYCLES = Integer.getInteger("soak.cycles", 20_000);
+    private static final int SAMPLE_EVERY = 97;
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+    private static final long FLUSH_TIMEOUT_MS = 1500;
+    private static final String PARTIAL_RESULTS_EVENT = "partialResults";
+    private static final String LISTENING_EVENT = "listeningState";
+
+    /**
+     * Stands in for a {@code PluginCall}: fails the run when settled twice.
+     */
+    static final class Call {
+
+        int resolved;
+        int rejected;
+        // Payload a real call carries, so a leak shows in the heap check too
+        final byte[] options = new byte[512];
+
+        void resolve() {
+            assertEquals("call settled twice", 0, settled());
+            resolved++;
+        }
+
+        void reject() {
+            assertEquals("call settled twice", 0, settled());
+            rejected++;
+        }
+
+        int settled() {
+            return resolved + rejected;
+        }
+    }
+
+    /**
+     * Runs scheduled steps on demand, like the looper of the plugin's session thread. Delays are ignored; tasks run
+     * in posting order.
+     */
+    static final class ManualScheduler implements FakeRecognitionEngine.Scheduler, SessionCalls.Scheduler {
+
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void executeDelayed(Runnable task, long delayMs) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            tasks.removeIf(queued -> queued == task);
+        }
+
+        boolean runOne() {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+    }
+
+    static final class Plugin {
+
+        final ManualScheduler scheduler = new ManualScheduler();
+        final ManualQueue dispatchQueue = new ManualQueue();
+        long dispatched;
+        final EventDispatcher<String> dispatcher = new EventDispatcher<>(
+            dispatchQueue,
+            (eventName, data) -> dispatched++
+        );
+        final List<FakeRecognitionEngine.Script> scripts;
+        final List<WeakReference<RecognitionEngine>> discardedEngines = new ArrayList<>();
+        final SessionController<Listener> controller;
+        // Lives on the dispatch queue, as the plugin's transcript does
+        final TranscriptAssembler transcript = new TranscriptAssembler(4096);
+        int enginesCreated;
+        int startCount;
+
+        Plugin() {
+            FakeRecognitionEngine.Script.Builder utterance = new FakeRecognitionEngine.Script.Builder()
+                .ready(1)
+                .beginningOfSpeech(1);
+            StringBuilder text = new StringBuilder();
+            for (String word : "turn on the kitchen lights please".split(" ")) {
+                text.append(text.length() > 0 ? " " : "").append(word);
+                utterance.rms(1, 5f).buffer(1, new byte[640]).partialResults(1, text.toString());
+            }
+            scripts = Arrays.asList(
+                utterance.endOfSpeech(1).results(1, text.toString()).build(),
+                new FakeRecognitionEngine.Script.Builder().ready(1).error(1, RecognitionErrors.ERROR_NO_MATCH).build(),
+                new FakeRecognitionEngine.Script.Builder().ready(1).error(1, RecognitionErrors.ERROR_NETWORK).build(),
+                new FakeRecognitionEngine.Script.Builder()
+                    .ready(1)
+                    .beginningOfSpeech(1)
+                    .error(1, RecognitionErrors.ERROR_SERVER_DISCONNECTED)
+                    .build(),
+                new FakeRecognitionEngine.Script.Builder()
+                    .ready(1)
+                    .segmentResults(1, "first segment")
+                    .segmentResults(1, "second segment")
+                    .endOfSegmentedSession(1)
+                    .build(),
+                // A recognizer that never finishes, so a flushed stop() runs into its timeout
+                new FakeRecognitionEngine.Script.Builder().ready(1).beginningOfSpeech(1).rms(1, 5f).build()
+            );
+            controller = new SessionController<>(
+                new SessionController.Host() {
+                    @Override
+                    public RecognitionEngine createEngine(String key) {
+                        enginesCreated++;
+                        return new FakeRecognitionEngine(scripts, scheduler);
+                    }
+
+                    @Override
+                    public RecognitionEngine.Listener createIdleListener() {
+                        return new Listener(false);
+                    }
+
+                    @Override
+                    public void onEngineDiscarded(RecognitionEngine engine) {
+                        discardedEngines.add(new WeakReference<>(engine));
+                    }
+                },
+                EngineMode.DEFAULT.getValue()
+            );
+            dispatcher.setRateLimits(Collections.singletonMap(PARTIAL_RESULTS_EVENT, 10));
+        }
+
+        void start(Call call, boolean partialResults, String engineKey) {
+            if (controller.getActive() != null) {
+                abort();
+            }
+            controller.useEngine(engineKey);
+            Listener listener = new Listener(partialResults);
+            listener.calls.setStart(call);
+            controller.activate(listener, listener);
+            startCount++;
+            RecognitionRequest request = new RecognitionRequest.Builder().setPartialResults(partialResults).build();
+            controller.getEngine().startListening(request);
+            if (partialResults) {
+                listener.resolveCall();
+            }
+        }
+
+        /**
+         * The plugin stops then cancels the engine. A platform recognizer delivers its result asynchronously, so the
+         * cancel drops it; cancelling alone models that, where the fake engine would deliver the result on stop.
+         */
+        void stop() {
+            Listener listener = controller.getActive();
+            if (listener != null) {
+                listener.resolveCall();
+            }
+            cancelEngine();
+        }
+
+        /**
+         * {@code stop({ flush: true })}: waits for the final result of an utterance in flight.
+         */
+        void flush(Call stopCall) {
+            Listener listener = controller.getActive();
+            FakeRecognitionEngine engine = (FakeRecognitionEngine) controller.getEngine();
+            if (listener == null || engine == null || !engine.isListening()) {
+                stop();
+                dispatcher.execute(stopCall::resolve);
+                return;
+            }
+            listener.flush(stopCall);
+        }
+
+        /**
+         * A {@code start()} over a session still open.
+         */
+        void abort() {
+            cancelEngine();
+            Listener listener = controller.getActive();
+            if (listener != null) {
+                listener.rejectCall();
+                listener.completeFlush();
+            }
+        }
+
+        /**
+         * Plugin teardown.
+         */
+        void destroy() {
+            controller.discardEngine();
+            controller.deactivate();
+        }
+
+        private void cancelEngine() {
+            RecognitionEngine engine = controller.getEngine();
+            if (engine != null) {
+                engine.cancel();
+            }
+        }
+
+        /**
+         * Runs up to {@code steps} scheduled tasks, 20 ms of dispatch time apart.
+         */
+        void pump(int steps) {
+            for (int i = 0; i < steps && scheduler.runOne(); i++) {
+                dispatchQueue.advance(20);
+            }
+            dispatchQueue.advance(20);
+        }
+
+        void pumpAll() {
+            pump(Integer.MAX_VALUE);
+        }
+
+        final class Listener implements RecognitionEngine.Listener {
+
+            final SessionCalls<Call> calls = new SessionCalls<>(scheduler, this::onFlushTimeout);
+            private final boolean partialResults;
+            private final PartialResultsEncoder encoder = new PartialResultsEncoder();
+            private final AudioChunker chunker = new AudioChunker(3200, 8);
+
+            Listener(boolean partialResults) {
+                this.partialResults = partialResults;
+            }
+
+            void resolveCall() {
+                Call pending = calls.takeStart();
+                if (pending != null) {
+                    dispatcher.execute(pending::resolve);
+                }
+            }
+
+            void rejectCall() {
+                Call pending = calls.takeStart();
+                if (pending != null) {
+                    dispatcher.execute(pending::reject);
+                }
+            }
+
+            void flush(Call stopCall) {
+                completeFlush();
+                calls.setFlush(stopCall, dispatchQueue.uptimeMillis());
+                controller.getEngine().stopListening();
+                calls.scheduleFlushTimeout(FLUSH_TIMEOUT_MS);
+            }
+
+            void completeFlush() {
+                Call pending = calls.takeFlush();
+                if (pending != null) {
+                    dispatcher.execute(pending::resolve);
+                }
+            }
+
+            private void onFlushTimeout() {
+                if (!calls.isFlushing()) {
+                    return;
+                }
+                if (controller.isActive(this)) {
+                    stop();
+                }
+                completeFlush();
+            }
+
+            @Override
+            public void onReadyForSpeech() {}
+
+            @Override
+            public void onBeginningOfSpeech() {
+                dispatcher.emit(LISTENING_EVENT, () -> "started");
+            }
+
+            @Override
+            public void onRmsChanged(float rmsdB) {}
+
+            @Override
+            public void onBufferReceived(byte[] buffer) {
+                int sendable = chunker.write(buffer);
+                for (int i = 0; i < sendable; i++) {
+                    chunker.release(chunker.take());
+                }
+                chunker.grant(sendable);
+            }
+
+            @Override
+            public void onEndOfSpeech() {
+                dispatcher.emit(LISTENING_EVENT, () -> "stopped");
+            }
+
+            @Override
+            public void onError(int error) {
+                ErrorRecovery recovery = ErrorRecovery.forError(error);
+                if (controller.getEngine() != null && recovery != ErrorRecovery.KEEP) {
+                    cancelEngine();
+                    if (recovery == ErrorRecovery.DESTROY_AND_RECREATE) {
+                        controller.discardEngine();
+                    }
+                }
+                controller.deactivate();
+                completeFlush();
+                rejectCall();
+            }
+
+            @Override
+            public void onResults(List<String> matches) {
+                final String text = matches.get(0);
+                if (partialResults) {
+                    dispatcher.emitImmediately(PARTIAL_RESULTS_EVENT, () -> text);
+                }
+                dispatcher.execute(() -> transcript.append(text));
+                encoder.reset();
+                resolveCall();
+                completeFlush();
+            }
+
+            @Override
+            public void onPartialResults(List<String> matches) {
+                if (partialResults && encoder.update(matches)) {
+                    final List<PartialResultsEncoder.Delta> deltas = encoder.encode(matches);
+                    dispatcher.emit(PARTIAL_RESULTS_EVENT, () -> deltas.size() + " deltas");
+                }
+            }
+
+            @Override
+            public void onSegmentResults(List<String> matches) {
+                final String text = matches.get(0);
+                dispatcher.execute(() -> transcript.append(text));
+            }
+
+            @Override
+            public void onEndOfSegmentedSession() {
+                resolveCall();
+                completeFlush();
+            }
+        }
+    }
+
+    @Test
+    public void churnReleasesCallsListenersAndEngines() throws InterruptedException {
+        Plugin plugin = new Plugin();
+        Random random = new Random(42);
+        List<WeakReference<Call>> sampledCalls = new ArrayList<>();
+        List<WeakReference<Plugin.Listener>> sampledListeners = new ArrayList<>();
+        List<Call> unsettled = new ArrayList<>();
+        long[] setupNanos = new long[CYCLES];
+        long baselineHeap = -1;
+        String engineKey = EngineMode.DEFAULT.getValue();
+
+        long runStart = System.nanoTime();
+        for (int i = 0; i < CYCLES; i++) {
+            Call call = new Call();
+            Call stopCall = null;
+            boolean partialResults = random.nextBoolean();
+            if (random.nextInt(16) == 0) {
+                // Another kind of engine: the live one is discarded
+                engineKey = engineKey.equals(EngineMode.DEFAULT.getValue())
+                    ? EngineMode.ON_DEVICE.getValue()
+                    : EngineMode.DEFAULT.getValue();
+            }
+            long before = System.nanoTime();
+            plugin.start(call, partialResults, engineKey);
+            setupNanos[i] = System.nanoTime() - before;
+
+            switch (random.nextInt(5)) {
+                case 0:
+                    // Runs to its final result or error
+                    plugin.pumpAll();
+                    break;
+                case 1:
+                    // stop() mid-utterance
+                    plugin.pump(random.nextInt(8));
+                    plugin.stop();
+                    break;
+                case 2:
+                    // stop({ flush }) mid-utterance: settled by the result, an error or the timeout
+                    plugin.pump(random.nextInt(8));
+                    stopCall = new Call();
+                    plugin.flush(stopCall);
+                    plugin.pumpAll();
+                    break;
+                case 3:
+                    // Left listening: the next start() aborts the session
+                    plugin.pump(random.nextInt(4));
+                    break;
+                default:
+                    // Immediate stop() before the recognizer is ready
+                    plugin.stop();
+                    plugin.pumpAll();
+                    break;
+            }
+
+            if (i % SAMPLE_EVERY == 0) {
+                sampledCalls.add(new WeakReference<>(call));
+                sampledListeners.add(new WeakReference<>(plugin.controller.getActive()));
+            }
+            if (call.settled() == 0) {
+                // Only an aborted session may be left for the next start() to settle
+                unsettled.add(call);
+            }
+            if (stopCall != null) {
+                assertEquals("flushed stop() settled", 1, stopCall.settled());
+            }
+            if (i == CYCLES / 10) {
+                baselineHeap = usedHeapAfterGc();
+            }
+        }
+        plugin.stop();
+        plugin.pumpAll();
+        long runNanos = System.nanoTime() - runStart;
+
+        for (Call call : unsettled) {
+            assertEquals("every start() is settled exactly once", 1, call.settled());
+        }
+        unsettled.clear();
+        FakeRecognitionEngine last = (FakeRecognitionEngine) plugin.controller.getEngine();
+        if (last != null) {
+            assertFalse(last.isListening());
+        }
+        assertEquals(CYCLES, plugin.startCount);
+        assertTrue("no engine was discarded", plugin.discardedEngines.size() > 0);
+        assertEquals(plugin.enginesCreated, plugin.discardedEngines.size() + (last != null ? 1 : 0));
+        assertTrue(plugin.dispatched > 0);
+        assertEquals(0, plugin.dispatchQueue.size());
+
+        // Keep only the plugin: everything a finished session held must now be collectable
+        plugin.destroy();
+        last = null;
+        assertNull(plugin.controller.getActive());
+        long finalHeap = usedHeapAfterGc();
+        awaitCollected(sampledCalls, "calls");
+        awaitCollected(sampledListeners, "listeners");
+        awaitCollected(plugin.discardedEngines, "discarded engines");
+        if (baselineHeap >= 0) {
+            assertTrue(
+                "heap grew by " + (finalHeap - baselineHeap) + " bytes",
+                finalHeap - baselineHeap < MAX_HEAP_GROWTH_BYTES
+            );
+        }
+
+        report(setupNanos, runNanos);
+    }
+
+    private static void awaitCollected(List<? extends WeakReference<?>> references, String what)
+        throws InterruptedException {
+        int alive = references.size();
+        for (int attempt = 0; attempt < 50 && alive > 0; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            alive = 0;
+            for (WeakReference<?> reference : references) {
+                if (reference.get() != null) {
+                    alive++;
+                }
+            }
+        }
+        assertEquals(what + " of finished sessions still reachable", 0, alive);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(long[] setupNanos, long runNanos) {
+        long[] sorted = setupNanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(
+            String.format(
+                Locale.ROOT,
+                "session churn: %d cycles, %.0f sessions/s, setup p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                sorted.length,
+                sorted.length / (runNanos / 1e9),
+                percentile(sorted, 0.50) / 1e3,
+                percentile(sorted, 0.99) / 1e3,
+                percentile(sorted, 0.999) / 1e3,
+                sorted[sorted.length - 1] / 1e3
+            )
+        );
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,128 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class SessionControllerTest {
+
+    private final List<String> created = new ArrayList<>();
+    private final List<RecognitionEngine> discarded = new ArrayList<>();
+    private final List<Runnable> steps = new ArrayList<>();
+    private final SessionController<RecordingListener> controller = new SessionController<>(
+        new SessionController.Host() {
+            @Override
+            public RecognitionEngine createEngine(String key) {
+                created.add(key);
+                return new FakeRecognitionEngine(
+                    FakeRecognitionEngine.Script.utterance(1, "hello"),
+                    (task, delayMs) -> steps.add(task)
+                );
+            }
+
+            @Override
+            public RecognitionEngine.Listener createIdleListener() {
+                return new RecordingListener();
+            }
+
+            @Override
+            public void onEngineDiscarded(RecognitionEngine engine) {
+                discarded.add(engine);
+            }
+        },
+        "default"
+    );
+
+    @Test
+    public void createsTheEngineOnce() {
+        assertTrue(controller.ensureEngine());
+        RecognitionEngine engine = controller.getEngine();
+
+        assertFalse(controller.ensureEngine());
+        assertFalse(controller.useEngine("default"));
+        assertSame(engine, controller.getEngine());
+        assertEquals(Arrays.asList("default"), created);
+    }
+
+    @Test
+    public void anotherKindReplacesTheEngine() {
+        controller.ensureEngine();
+        RecognitionEngine first = controller.getEngine();
+
+        assertTrue(controller.useEngine("onDevice"));
+
+        assertEquals("onDevice", controller.getEngineKey());
+        assertNotSame(first, controller.getEngine());
+        assertEquals(Arrays.asList(first), discarded);
+        assertEquals(Arrays.asList("default", "onDevice"), created);
+    }
+
+    @Test
+    public void reusedEngineHasItsRequestCancelled() {
+        controller.ensureEngine();
+        FakeRecognitionEngine engine = (FakeRecognitionEngine) controller.getEngine();
+        engine.startListening(new RecognitionRequest.Builder().build());
+
+        assertFalse(controller.useEngine("default"));
+
+        assertFalse(engine.isListening());
+        assertSame(engine, controller.getEngine());
+    }
+
+    @Test
+    public void activeListenerReceivesTheEngineCallbacks() {
+        controller.ensureEngine();
+        RecordingListener listener = new RecordingListener();
+        controller.activate(listener, listener);
+
+        controller.getEngine().startListening(new RecognitionRequest.Builder().build());
+        runSteps();
+
+        assertTrue(controller.isActive(listener));
+        assertSame(listener, controller.getActive());
+        assertTrue(listener.events.contains("results [hello]"));
+    }
+
+    @Test
+    public void deactivateDetachesTheListenerFromTheEngine() {
+        controller.ensureEngine();
+        RecordingListener listener = new RecordingListener();
+        controller.activate(listener, listener);
+
+        controller.deactivate();
+        controller.getEngine().startListening(new RecognitionRequest.Builder().build());
+        runSteps();
+
+        assertNull(controller.getActive());
+        assertFalse(controller.isActive(listener));
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    public void discardDestroysOnceAndKeepsTheKind() {
+        controller.useEngine("onDevice");
+        RecognitionEngine engine = controller.getEngine();
+
+        controller.discardEngine();
+        controller.discardEngine();
+
+        assertNull(controller.getEngine());
+        assertEquals(Arrays.asList(engine), discarded);
+        assertTrue(controller.ensureEngine());
+        assertEquals(Arrays.asList("onDevice", "onDevice"), created);
+    }
+
+    private void runSteps() {
+        while (!steps.isEmpty()) {
+            steps.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class SessionStateTest {
+
+    @Test
+    public void allowsOnlyTheDocumentedTransitions() {
+        assertTransitions(SessionState.IDLE, EnumSet.of(SessionState.STARTING));
+        assertTransitions(
+            SessionState.STARTING,
+            EnumSet.of(SessionState.LISTENING, SessionState.STOPPING, SessionState.ERROR, SessionState.IDLE)
+        );
+        assertTransitions(
+            SessionState.LISTENING,
+            EnumSet.of(SessionState.STOPPING, SessionState.ERROR, SessionState.IDLE, SessionState.STARTING)
+        );
+        assertTransitions(
+            SessionState.STOPPING,
+            EnumSet.of(SessionState.IDLE, SessionState.ERROR, SessionState.STARTING)
+        );
+        assertTransitions(SessionState.ERROR, EnumSet.of(SessionState.IDLE, SessionState.STARTING));
+    }
+
+    @Test
+    public void listensWhileStartingOrListening() {
+        for (SessionState state : SessionState.values()) {
+            assertEquals(
+                state.name(),
+                state == SessionState.STARTING || state == SessionState.LISTENING,
+                state.isListening()
+            );
+        }
+    }
+
+    @Test
+    public void exposesLowerCaseValues() {
+        assertEquals("idle", SessionState.IDLE.getValue());
+        assertEquals("listening", SessionState.LISTENING.getValue());
+        assertEquals("stopping", SessionState.STOPPING.getValue());
+    }
+
+    private static void assertTransitions(SessionState from, Set<SessionState> allowed) {
+        for (SessionState to : SessionState.values()) {
+            if (allowed.contains(to)) {
+                assertTrue(from + " -> " + to, from.canTransitionTo(to));
+            } else {
+                assertFalse(from + " -> " + to, from.canTransitionTo(to));
+            }
+        }
+    }
+}
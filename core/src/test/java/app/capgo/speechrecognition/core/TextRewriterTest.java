@@ -0,0 +1,228 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class TextRewriterTest {
+
+    private static final TextRewriter NUMBERS = new TextRewriter.Builder().setNormalizeNumbers(true).build();
+
+    private static final TextRewriter VOCABULARY = new TextRewriter.Builder()
+        .replace("new york", "New York")
+        .replace("york", "YORK")
+        .replace("new york city", "NYC")
+        .replace("he", "HE")
+        .replace("she", "SHE")
+        .replace("hers", "HERS")
+        .replace("c++", "C++")
+        .replace("gonna", "going to")
+        .mask("darn")
+        .build();
+
+    @Test
+    public void normalizesNumberRuns() {
+        assertRewrites(
+            NUMBERS,
+            new String[][] {
+                { "zero", "0" },
+                { "seven", "7" },
+                { "nineteen", "19" },
+                { "forty two", "42" },
+                { "forty-two", "42" },
+                { "one hundred", "100" },
+                { "one hundred twenty three", "123" },
+                { "two thousand twenty four", "2024" },
+                { "three million four hundred thousand", "3400000" },
+                { "one billion two million three thousand four", "1002003004" },
+                { "twelve thousand three hundred forty five", "12345" },
+                // "hundred" multiplies any value from 1 to 99
+                { "ten hundred", "1000" },
+                { "eleven hundred", "1100" },
+                { "nineteen hundred", "1900" },
+                { "twenty hundred", "2000" },
+                { "twenty five hundred", "2500" },
+                { "ninety nine hundred", "9900" },
+                // "and" joins a hundred or scale to the words that follow
+                { "one hundred and five", "105" },
+                { "fifteen thousand and five", "15005" },
+                { "two million and twenty", "2000020" },
+                { "three hundred and forty two", "342" },
+                { "one thousand and one nights", "1001 nights" },
+                { "one hundred AND five", "105" }
+            }
+        );
+    }
+
+    @Test
+    public void stopsRunsWhereTheGrammarEnds() {
+        assertRewrites(
+            NUMBERS,
+            new String[][] {
+                // A second unit or ten starts a new number
+                { "one two three", "1 2 3" },
+                { "twenty thirty", "20 30" },
+                { "twenty zero", "20 0" },
+                { "nineteen five", "19 5" },
+                // Scales must shrink and never repeat
+                { "one thousand million", "1000 million" },
+                { "one thousand two thousand", "1002 thousand" },
+                { "one hundred hundred", "100 hundred" },
+                { "one hundred twenty hundred", "120 hundred" },
+                { "zero hundred", "0 hundred" },
+                // Words on their own or "and" without a number after it
+                { "hundred", "hundred" },
+                { "a thousand times", "a thousand times" },
+                { "one and two", "1 and 2" },
+                { "one hundred and", "100 and" },
+                { "five thousand and counting", "5000 and counting" },
+                { "one hundred and thousand", "100 and thousand" },
+                { "one hundred  and five", "100  and 5" },
+                { "one hundred and-five", "100 and-5" },
+                // Only single spaces and hyphens join words
+                { "twenty, one", "20, 1" },
+                { "twenty  one", "20  1" }
+            }
+        );
+    }
+
+    @Test
+    public void matchesNumberWordsAsWholeWords() {
+        assertRewrites(
+            NUMBERS,
+            new String[][] {
+                { "someone", "someone" },
+                { "tennis", "tennis" },
+                { "often", "often" },
+                { "anyone seven", "anyone 7" },
+                { "(eight)", "(8)" },
+                { "Seven Hundred", "700" },
+                { "room twenty-one, floor three.", "room 21, floor 3." }
+            }
+        );
+    }
+
+    @Test
+    public void prefersTheLeftmostLongestMatch() {
+        assertRewrites(
+            VOCABULARY,
+            new String[][] {
+                { "new york", "New York" },
+                { "new york city", "NYC" },
+                { "new york cit", "New York cit" },
+                { "york", "YORK" },
+                { "she sells", "SHE sells" },
+                { "hers", "HERS" },
+                { "he and she and hers", "HE and SHE and HERS" },
+                { "I'm gonna go", "I'm going to go" },
+                { "darn it", "**** it" },
+                { "DARN", "****" }
+            }
+        );
+    }
+
+    @Test
+    public void respectsWordBoundaries() {
+        assertRewrites(
+            VOCABULARY,
+            new String[][] {
+                { "newyork", "newyork" },
+                { "thesis", "thesis" },
+                { "shell", "shell" },
+                { "darnit", "darnit" },
+                { "he's", "HE's" },
+                { "she-wolf", "SHE-wolf" },
+                { "new york's", "New York's" },
+                { "york2", "york2" },
+                // Patterns ending in punctuation are not bounded on that side
+                { "c++ code", "C++ code" },
+                { "c++11", "C++11" },
+                { "abc++", "abc++" }
+            }
+        );
+    }
+
+    @Test
+    public void caseSensitiveRulesOnlyMatchTheirOwnCase() {
+        TextRewriter rewriter = new TextRewriter.Builder()
+            .setCaseSensitive(true)
+            .replace("iOS", "iOS (Apple)")
+            .setNormalizeNumbers(true)
+            .build();
+
+        assertRewrites(
+            rewriter,
+            new String[][] {
+                { "iOS", "iOS (Apple)" },
+                { "ios", "ios" },
+                { "IOS", "IOS" },
+                { "one hundred and five", "105" },
+                { "one hundred AND five", "100 AND 5" },
+                { "Five", "Five" }
+            }
+        );
+    }
+
+    @Test
+    public void userRulesOverrideNumberWords() {
+        TextRewriter rewriter = new TextRewriter.Builder()
+            .setNormalizeNumbers(true)
+            .replace("One", "1st")
+            .mask("four")
+            .setMaskChar('#')
+            .build();
+
+        assertRewrites(
+            rewriter,
+            new String[][] { { "one", "1st" }, { "four", "####" }, { "twenty one", "20 1st" }, { "two", "2" } }
+        );
+    }
+
+    @Test
+    public void returnsTheInputWhenNothingMatched() {
+        TextRewriter.Matcher matcher = VOCABULARY.newMatcher();
+        String text = "nothing to see";
+        List<String> matches = Arrays.asList("nothing", "here");
+
+        assertSame(text, matcher.rewrite(text));
+        assertSame(matches, matcher.rewriteAll(matches));
+        assertEquals(null, matcher.rewrite(null));
+        assertEquals("", matcher.rewrite(""));
+        assertEquals(null, matcher.rewriteAll(null));
+    }
+
+    @Test
+    public void rewritesOnlyTheChangedHypotheses() {
+        TextRewriter.Matcher matcher = VOCABULARY.newMatcher();
+        List<String> matches = new ArrayList<>(Arrays.asList("hello", "new york", null, "darn"));
+
+        assertEquals(Arrays.asList("hello", "New York", null, "****"), matcher.rewriteAll(matches));
+        // Null hypotheses are passed through without being timed
+        assertEquals(3, matcher.getCount());
+    }
+
+    @Test
+    public void matcherGrowsForLongInput() {
+        TextRewriter.Matcher matcher = NUMBERS.newMatcher();
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("word one hundred and five, ");
+            expected.append("word 105, ");
+        }
+
+        assertEquals(expected.toString(), matcher.rewrite(text.toString()));
+        assertEquals("7", matcher.rewrite("seven"));
+    }
+
+    private static void assertRewrites(TextRewriter rewriter, String[][] cases) {
+        TextRewriter.Matcher matcher = rewriter.newMatcher();
+        for (String[] testCase : cases) {
+            assertEquals(testCase[0], testCase[1], matcher.rewrite(testCase[0]));
+        }
+    }
+}
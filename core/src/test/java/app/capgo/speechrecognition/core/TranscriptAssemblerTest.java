@@ -0,0 +1,123 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class TranscriptAssemblerTest {
+
+    private static final int CHUNK = TranscriptAssembler.CHUNK_SIZE;
+
+    @Test
+    public void joinsTrimmedSegmentsWithSpaces() {
+        TranscriptAssembler transcript = new TranscriptAssembler(0);
+
+        assertEquals(0, transcript.append("  hello "));
+        assertEquals(-1, transcript.append("   "));
+        assertEquals(-1, transcript.append(null));
+        assertEquals(6, transcript.append("world"));
+
+        assertEquals("hello world", transcript.read(0, Long.MAX_VALUE));
+        assertEquals(2, transcript.getSegmentCount());
+        assertEquals(11, transcript.getEndOffset());
+    }
+
+    @Test
+    public void readsAcrossChunkBoundaries() {
+        TranscriptAssembler transcript = new TranscriptAssembler(0);
+        StringBuilder expected = new StringBuilder();
+        Random random = new Random(7);
+        while (expected.length() < CHUNK * 3 + 100) {
+            String segment = word(random, 1 + random.nextInt(CHUNK / 3));
+            long offset = transcript.append(segment);
+            if (expected.length() > 0) {
+                expected.append(' ');
+            }
+            assertEquals(expected.length(), offset);
+            expected.append(segment);
+        }
+
+        assertEquals(expected.toString(), transcript.read(0, transcript.getEndOffset()));
+        int[] edges = { CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK, 3 * CHUNK };
+        for (int from : edges) {
+            for (int to : edges) {
+                if (from < to) {
+                    assertEquals(from + ".." + to, expected.substring(from, to), transcript.read(from, to));
+                }
+            }
+        }
+        assertEquals(expected.substring(10, 3 * CHUNK + 50), transcript.read(10, 3 * CHUNK + 50));
+    }
+
+    @Test
+    public void clampsReadsToTheStoredRange() {
+        TranscriptAssembler transcript = new TranscriptAssembler(0);
+        transcript.append("one two");
+
+        assertEquals("one two", transcript.read(-5, 100));
+        assertEquals("", transcript.read(4, 4));
+        assertEquals("", transcript.read(5, 2));
+        assertEquals("", transcript.read(20, 30));
+    }
+
+    @Test
+    public void evictsWholeChunksBeyondTheRetentionWindow() {
+        TranscriptAssembler transcript = new TranscriptAssembler(CHUNK);
+        StringBuilder expected = new StringBuilder();
+        String segment = word(new Random(3), 999);
+        for (int i = 0; i < 40; i++) {
+            if (expected.length() > 0) {
+                expected.append(' ');
+            }
+            expected.append(segment);
+            transcript.append(segment);
+        }
+
+        long start = transcript.getStartOffset();
+        long end = transcript.getEndOffset();
+        assertEquals(expected.length(), end);
+        assertTrue("evicted", start > 0);
+        assertEquals(0, start % CHUNK);
+        assertTrue("retains the window", end - start >= CHUNK);
+        assertTrue("bounded", end - start < 2 * CHUNK);
+        assertEquals(expected.substring((int) start), transcript.read(0, end));
+        assertEquals(expected.substring((int) start, (int) start + 10), transcript.read(start - 100, start + 10));
+        assertEquals(expected.substring((int) end - 5), transcript.read(end - 5, end + 5));
+        assertEquals("", transcript.read(0, start));
+    }
+
+    @Test
+    public void keepsTheLastChunkWhenOneSegmentExceedsTheWindow() {
+        TranscriptAssembler transcript = new TranscriptAssembler(10);
+        String segment = word(new Random(5), 100);
+        transcript.append(segment);
+
+        assertEquals(0, transcript.getStartOffset());
+        assertEquals(segment, transcript.read(0, 100));
+    }
+
+    @Test
+    public void clearStartsOverAtOffsetZero() {
+        TranscriptAssembler transcript = new TranscriptAssembler(CHUNK);
+        for (int i = 0; i < 20; i++) {
+            transcript.append(word(new Random(i), 800));
+        }
+        transcript.clear();
+
+        assertEquals(0, transcript.getStartOffset());
+        assertEquals(0, transcript.getEndOffset());
+        assertEquals(0, transcript.getSegmentCount());
+        assertEquals(0, transcript.append("again"));
+        assertEquals("again", transcript.read(0, 5));
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+}
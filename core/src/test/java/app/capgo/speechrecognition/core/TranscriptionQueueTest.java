@@ -0,0 +1,90 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class TranscriptionQueueTest {
+
+    private final TranscriptionQueue<String> queue = new TranscriptionQueue<>();
+
+    @Test
+    public void runsHigherPriorityFirstThenInSubmissionOrder() {
+        queue.add("a", 0, "A");
+        queue.add("b", 5, "B");
+        queue.add("c", 0, "C");
+        queue.add("d", 5, "D");
+        queue.add("e", -1, "E");
+
+        assertEquals(Arrays.asList("b", "d", "a", "c", "e"), drain());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void rejectsDuplicateIdsWhileQueued() {
+        assertTrue(queue.add("a", 0, "first"));
+        assertFalse(queue.add("a", 9, "second"));
+        assertEquals(1, queue.size());
+
+        assertEquals("first", queue.poll().payload);
+        assertTrue(queue.add("a", 0, "again"));
+    }
+
+    @Test
+    public void removesQueuedJobsById() {
+        queue.add("a", 0, "A");
+        queue.add("b", 0, "B");
+
+        assertEquals("A", queue.remove("a").payload);
+        assertNull(queue.remove("a"));
+        assertFalse(queue.contains("a"));
+        assertTrue(queue.contains("b"));
+        assertEquals(Arrays.asList("b"), drain());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void requeuedJobKeepsItsPlace() {
+        queue.add("a", 0, "A");
+        queue.add("b", 0, "B");
+        queue.add("c", 0, "C");
+        TranscriptionQueue.Job<String> first = queue.poll();
+        queue.add("d", 0, "D");
+
+        queue.requeue(first);
+        queue.requeue(first);
+
+        assertEquals(4, queue.size());
+        TranscriptionQueue.Job<String> next = queue.poll();
+        assertSame(first, next);
+        assertEquals(Arrays.asList("b", "c", "d"), drain());
+    }
+
+    @Test
+    public void requeueDoesNotReplaceAJobAddedSince() {
+        queue.add("a", 0, "A");
+        TranscriptionQueue.Job<String> taken = queue.poll();
+        queue.add("a", 1, "newer");
+
+        queue.requeue(taken);
+
+        assertEquals(1, queue.size());
+        assertEquals("newer", queue.poll().payload);
+    }
+
+    private List<String> drain() {
+        List<String> ids = new ArrayList<>();
+        TranscriptionQueue.Job<String> job;
+        while ((job = queue.poll()) != null) {
+            ids.add(job.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,160 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class VoiceActivityDetectorTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_MILLIS = 20;
+    private static final int FRAME = SAMPLE_RATE * FRAME_MILLIS / 1000;
+    /** 80 ms onset in 20 ms frames. */
+    private static final int ONSET_FRAMES = 4;
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void reportsSpeechAfterTheOnsetRun() {
+        VoiceActivityDetector detector = calibrated(VoiceActivityDetector.DEFAULT_SENSITIVITY, 200);
+
+        for (int i = 1; i < ONSET_FRAMES; i++) {
+            assertFalse("frame " + i, detector.process(tone(220, 4000), 0, FRAME));
+        }
+        assertTrue(detector.process(tone(220, 4000), 0, FRAME));
+        assertTrue(detector.process(tone(220, 4000), 0, FRAME));
+        assertFalse(detector.process(noise(200), 0, FRAME));
+    }
+
+    @Test
+    public void ignoresClicksShorterThanTheOnset() {
+        VoiceActivityDetector detector = calibrated(VoiceActivityDetector.DEFAULT_SENSITIVITY, 200);
+
+        for (int click = 0; click < 5; click++) {
+            for (int i = 0; i < ONSET_FRAMES - 1; i++) {
+                assertFalse(detector.process(tone(220, 8000), 0, FRAME));
+            }
+            assertFalse(detector.process(noise(200), 0, FRAME));
+        }
+    }
+
+    @Test
+    public void rejectsLoudBroadbandNoise() {
+        VoiceActivityDetector detector = calibrated(VoiceActivityDetector.DEFAULT_SENSITIVITY, 200);
+
+        for (int i = 0; i < 20; i++) {
+            assertFalse(detector.process(noise(6000), 0, FRAME));
+        }
+    }
+
+    @Test
+    public void rejectsQuietSoundsInASilentRoom() {
+        VoiceActivityDetector detector = calibrated(1f, 0);
+
+        for (int i = 0; i < 20; i++) {
+            assertFalse(detector.process(tone(220, 80), 0, FRAME));
+        }
+    }
+
+    @Test
+    public void sensitivitySetsTheMarginAboveTheNoiseFloor() {
+        // About 7 dB above a 300 RMS floor
+        short[] speech = tone(220, 950);
+        VoiceActivityDetector sensitive = calibrated(1f, 300);
+        VoiceActivityDetector strict = calibrated(0f, 300);
+
+        boolean sensitiveHeard = false;
+        boolean strictHeard = false;
+        for (int i = 0; i < ONSET_FRAMES; i++) {
+            sensitiveHeard = sensitive.process(speech, 0, FRAME);
+            strictHeard = strict.process(speech, 0, FRAME);
+        }
+
+        assertTrue(sensitiveHeard);
+        assertFalse(strictHeard);
+    }
+
+    @Test
+    public void noiseFloorFollowsTheAmbientLevel() {
+        VoiceActivityDetector detector = calibrated(VoiceActivityDetector.DEFAULT_SENSITIVITY, 200);
+        double quiet = detector.getNoiseFloor();
+
+        for (int i = 0; i < 200; i++) {
+            detector.process(noise(2000), 0, FRAME);
+        }
+
+        assertTrue(detector.getNoiseFloor() > quiet * 50);
+        // Speech that would have cleared the quiet floor is now part of the background
+        for (int i = 0; i < 10; i++) {
+            assertFalse(detector.process(tone(220, 1500), 0, FRAME));
+        }
+    }
+
+    @Test
+    public void calibrationFramesNeverReportSpeech() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(FRAME_MILLIS, 1f);
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(detector.process(tone(220, 8000), 0, FRAME));
+        }
+    }
+
+    @Test
+    public void resetStartsANewCalibration() {
+        VoiceActivityDetector detector = calibrated(VoiceActivityDetector.DEFAULT_SENSITIVITY, 200);
+        for (int i = 0; i < ONSET_FRAMES; i++) {
+            detector.process(tone(220, 4000), 0, FRAME);
+        }
+
+        detector.reset();
+
+        assertEquals(0, detector.getNoiseFloor(), 0);
+        assertFalse(detector.process(tone(220, 4000), 0, FRAME));
+    }
+
+    @Test
+    public void readsOnlyTheGivenRange() {
+        VoiceActivityDetector detector = calibrated(VoiceActivityDetector.DEFAULT_SENSITIVITY, 200);
+        short[] padded = new short[FRAME * 3];
+        System.arraycopy(tone(220, 4000), 0, padded, FRAME, FRAME);
+
+        assertFalse(detector.process(padded, 0, 0));
+        boolean heard = false;
+        for (int i = 0; i < ONSET_FRAMES; i++) {
+            heard = detector.process(padded, FRAME, FRAME);
+        }
+        assertTrue(heard);
+        assertFalse(detector.process(padded, 0, FRAME));
+    }
+
+    private VoiceActivityDetector calibrated(float sensitivity, int noiseRms) {
+        VoiceActivityDetector detector = new VoiceActivityDetector(FRAME_MILLIS, sensitivity);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(detector.process(noise(noiseRms), 0, FRAME));
+        }
+        return detector;
+    }
+
+    private static short[] tone(double frequency, double amplitude) {
+        short[] samples = new short[FRAME];
+        for (int i = 0; i < FRAME; i++) {
+            samples[i] = (short) (amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+        }
+        return samples;
+    }
+
+    /**
+     * Uniform white noise, whose zero-crossing rate is about one half.
+     */
+    private short[] noise(int rms) {
+        short[] samples = new short[FRAME];
+        double amplitude = rms * Math.sqrt(3);
+        for (int i = 0; i < FRAME; i++) {
+            samples[i] = (short) ((random.nextDouble() * 2 - 1) * amplitude);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,150 @@
+package app.capgo.speechrecognition.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class WavHeaderTest {
+
+    /**
+     * Writes RIFF chunks in little-endian order.
+     */
+    static final class Wav {
+
+        private final ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+
+        Wav fmt(int format, int channels, int sampleRate, int bits, int extraBytes) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int blockAlign = channels * bits / 8;
+            uint16(body, format);
+            uint16(body, channels);
+            uint32(body, sampleRate);
+            uint32(body, (long) sampleRate * blockAlign);
+            uint16(body, blockAlign);
+            uint16(body, bits);
+            for (int i = 0; i < extraBytes; i++) {
+                body.write(0);
+            }
+            return chunk("fmt ", body.toByteArray(), body.size());
+        }
+
+        Wav chunk(String tag, byte[] body, long declaredSize) {
+            chunks.write(tag.getBytes(StandardCharsets.US_ASCII), 0, 4);
+            uint32(chunks, declaredSize);
+            chunks.write(body, 0, body.length);
+            if ((body.length & 1) != 0) {
+                chunks.write(0);
+            }
+            return this;
+        }
+
+        byte[] build() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write("RIFF".getBytes(StandardCharsets.US_ASCII), 0, 4);
+            uint32(out, 4 + chunks.size());
+            out.write("WAVE".getBytes(StandardCharsets.US_ASCII), 0, 4);
+            byte[] body = chunks.toByteArray();
+            out.write(body, 0, body.length);
+            return out.toByteArray();
+        }
+
+        private static void uint16(ByteArrayOutputStream out, int value) {
+            out.write(value & 0xFF);
+            out.write((value >> 8) & 0xFF);
+        }
+
+        private static void uint32(ByteArrayOutputStream out, long value) {
+            uint16(out, (int) (value & 0xFFFF));
+            uint16(out, (int) ((value >> 16) & 0xFFFF));
+        }
+    }
+
+    private static final byte[] SAMPLES = { 1, 2, 3, 4 };
+
+    @Test
+    public void readsTheFormatAndStopsAtTheFirstSample() throws IOException {
+        InputStream in = new ByteArrayInputStream(new Wav().fmt(1, 2, 44100, 16, 0).chunk("data", SAMPLES, 4).build());
+
+        WavHeader header = WavHeader.read(in);
+
+        assertEquals(44100, header.sampleRate);
+        assertEquals(2, header.channelCount);
+        assertEquals(16, header.bitsPerSample);
+        assertEquals(4, header.dataLength);
+        assertEquals(1, in.read());
+    }
+
+    @Test
+    public void skipsUnknownAndOddSizedChunks() throws IOException {
+        byte[] wav = new Wav()
+            .chunk("LIST", new byte[] { 9, 9, 9 }, 3)
+            .fmt(0xFFFE, 1, 16000, 16, 22)
+            .chunk("fact", new byte[4], 4)
+            .chunk("data", SAMPLES, 4)
+            .build();
+        InputStream in = new ByteArrayInputStream(wav);
+
+        WavHeader header = WavHeader.read(in);
+
+        assertEquals(16000, header.sampleRate);
+        assertEquals(1, header.channelCount);
+        assertEquals(1, in.read());
+    }
+
+    @Test
+    public void reportsUnknownLengthForStreamedRecordings() throws IOException {
+        for (long declared : new long[] { 0, 0xFFFFFFFFL }) {
+            byte[] wav = new Wav().fmt(1, 1, 16000, 16, 0).chunk("data", SAMPLES, declared).build();
+            assertEquals(-1, read(wav).dataLength);
+        }
+    }
+
+    @Test
+    public void exposesTheSamplesAsAudioInput() throws IOException {
+        InputStream in = new ByteArrayInputStream(new Wav().fmt(1, 1, 8000, 16, 0).chunk("data", SAMPLES, 4).build());
+
+        AudioInput input = WavHeader.read(in).toAudioInput(in);
+
+        assertEquals(8000, input.sampleRate);
+        assertEquals(1, input.channelCount);
+        assertEquals(4, input.length);
+        assertEquals(1, input.stream.read());
+    }
+
+    @Test
+    public void rejectsUnsupportedFiles() {
+        assertRejected("Not a WAV file", "RIFX....WAVE".getBytes(StandardCharsets.US_ASCII));
+        assertRejected(
+            "Unsupported WAV encoding: 3",
+            new Wav().fmt(3, 1, 16000, 32, 0).chunk("data", SAMPLES, 4).build()
+        );
+        assertRejected("Only 16-bit", new Wav().fmt(1, 1, 16000, 8, 0).chunk("data", SAMPLES, 4).build());
+        assertRejected("Unsupported WAV encoding: -1", new Wav().chunk("data", SAMPLES, 4).build());
+        assertRejected("Malformed", new Wav().chunk("fmt ", new byte[8], 8).build());
+    }
+
+    @Test
+    public void rejectsTruncatedHeaders() {
+        byte[] wav = new Wav().fmt(1, 1, 16000, 16, 0).build();
+
+        assertThrows(EOFException.class, () -> read(wav));
+        assertThrows(EOFException.class, () -> read(new byte[] { 'R', 'I', 'F', 'F' }));
+    }
+
+    private static WavHeader read(byte[] wav) throws IOException {
+        return WavHeader.read(new ByteArrayInputStream(wav));
+    }
+
+    private static void assertRejected(String message, byte[] wav) {
+        IOException error = assertThrows(IOException.class, () -> read(wav));
+        assertTrue(error.getMessage(), error.getMessage().startsWith(message));
+    }
+}
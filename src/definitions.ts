@@ -1,5 +1,38 @@
+/// <reference types="@capacitor/cli" />
+
 import type { PermissionState, PluginListenerHandle } from '@capacitor/core';
 
+declare module '@capacitor/cli' {
+  export interface PluginsConfig {
+    /**
+     * These config values are available for the SpeechRecognition plugin:
+     */
+    SpeechRecognition?: {
+      /**
+       * Controls when Android creates its speech recognizer.
+       *
+       * `lazy` waits for the first `prepare()` or `start()` call, `eager` creates it while the plugin loads and
+       * `prewarm` additionally binds the recognition service ahead of time (Android 13+) and replaces the
+       * recognizer right after an error so the next `start()` never pays the creation cost.
+       *
+       * @default 'eager'
+       * @example "prewarm"
+       */
+      initStrategy?: 'lazy' | 'eager' | 'prewarm';
+      /**
+       * How long, in milliseconds, Android keeps the result of `getSupportedLanguages()` on disk.
+       *
+       * The cache is also invalidated when the recognition service or the device languages change.
+       * Set to `0` to always query the recognizer.
+       *
+       * @default 86400000
+       * @example 3600000
+       */
+      languageCacheTtl?: number;
+    };
+  }
+}
+
 /**
  * Permission map returned by `checkPermissions` and `requestPermissions`.
  *
@@ -10,6 +43,21 @@ export interface SpeechRecognitionPermissionStatus {
   speechRecognition: PermissionState;
 }
 
+/**
+ * Names of the events emitted by the plugin.
+ */
+export type SpeechRecognitionEventName =
+  | 'partialResults'
+  | 'segmentResults'
+  | 'endOfSegmentedSession'
+  | 'listeningState'
+  | 'audioLevel'
+  | 'recognitionRestarted'
+  | 'modelDownloadProgress'
+  | 'sessionMetrics'
+  | 'transcriptAppended'
+  | 'transcriptionProgress';
+
 /**
  * Configure how the recognizer behaves when calling {@link SpeechRecognitionPlugin.start}.
  */
@@ -35,6 +83,172 @@ export interface SpeechRecognitionStartOptions {
    * Emits partial transcription updates through the `partialResults` listener while audio is captured.
    */
   partialResults?: boolean;
+  /**
+   * How `partialResults` events are encoded (Android only).
+   *
+   * `full` re-sends every hypothesis in `matches` on each update. `delta` sends only the changed tail of each
+   * hypothesis in `deltas`, which keeps bridge traffic small during long dictation. Defaults to `full`.
+   */
+  partialResultsEncoding?: 'full' | 'delta';
+  /**
+   * Maximum number of events per second delivered to JavaScript, per event name (Android only).
+   *
+   * When a newer event of a limited type arrives while an older one is still waiting, the older one is dropped,
+   * so only limit events where the latest value is enough (for example `partialResults` or `listeningState`).
+   * Final results are never dropped. Event names that are not listed are delivered without limit.
+   */
+  eventRateLimits?: Partial<Record<SpeechRecognitionEventName, number>>;
+  /**
+   * Emits `audioLevel` events with the input level while listening (Android only).
+   *
+   * Use this to drive a level meter without opening a second microphone capture. Defaults to `false`.
+   */
+  audioLevel?: boolean;
+  /**
+   * Number of `audioLevel` events emitted per second. Each event aggregates the recognizer level callbacks
+   * received during its window. Defaults to `15`.
+   */
+  audioLevelFrameRate?: number;
+  /**
+   * Saves the audio heard by the recognizer to a file whose path is returned by {@link SpeechRecognitionPlugin.stop}
+   * (Android only, inline recognition).
+   *
+   * Audio is written off the recognition thread and is only available when the recognizer service delivers it.
+   * The buffers are stored as delivered and assumed to be 16 kHz mono 16-bit little-endian PCM, the format of the
+   * stock Android recognizers; the `wav` header always declares that format, so a service delivering anything else
+   * produces a file that plays back at the wrong speed. Defaults to `false`.
+   */
+  recordAudio?: boolean;
+  /**
+   * File format used by `recordAudio`: a `wav` file or headerless `raw` PCM (16 kHz mono 16-bit little-endian).
+   * Defaults to `wav`.
+   */
+  recordAudioFormat?: 'wav' | 'raw';
+  /**
+   * Streams the audio heard by the recognizer to the `audioChunk` listener in fixed-size PCM frames (Android only,
+   * inline recognition).
+   *
+   * Delivery is credit based: the plugin sends at most `audioChunkWindow` frames ahead of
+   * {@link SpeechRecognitionPlugin.ackAudioChunks}. While the listener is behind, the oldest waiting frames are dropped
+   * and counted instead of being buffered, so a slow listener never grows the native heap. Like `recordAudio`, frames
+   * are only available when the recognizer service delivers audio. Defaults to `false`.
+   */
+  audioChunks?: boolean;
+  /**
+   * Size of each `audioChunk` frame in bytes. Defaults to `3200` (100 ms of 16 kHz mono 16-bit PCM).
+   */
+  audioChunkSize?: number;
+  /**
+   * Number of `audioChunk` frames that may be sent without being acknowledged, which is also the number of frames
+   * held natively. Defaults to `8`.
+   */
+  audioChunkWindow?: number;
+  /**
+   * Keeps listening across utterances by restarting the native recognizer after each result (Android only,
+   * inline recognition).
+   *
+   * {@link SpeechRecognitionPlugin.start} resolves immediately and every final result is delivered through the
+   * `partialResults` listener until {@link SpeechRecognitionPlugin.stop} is called. Defaults to `false`.
+   */
+  continuous?: boolean;
+  /**
+   * Milliseconds to wait before listening again after an utterance produced a result. Defaults to `0`.
+   */
+  restartDelay?: number;
+  /**
+   * Upper bound in milliseconds of the back-off applied after consecutive empty utterances
+   * (no match or speech timeout). Defaults to `2000`.
+   */
+  maxRestartDelay?: number;
+  /**
+   * Maximum number of restarts for the session, after which it ends normally. `0` means unlimited. Defaults to `0`.
+   */
+  maxRestarts?: number;
+  /**
+   * Recognizer used for the session (Android only).
+   *
+   * - `default`: the system recognition service, which may send audio over the network.
+   * - `onDevice`: the on-device recognizer (Android 12+). `start()` fails when it is unavailable.
+   * - `auto`: the on-device recognizer when a model for `language` is installed, `default` otherwise.
+   *   Installed models are learned from {@link SpeechRecognitionPlugin.getSupportedLanguages} (Android 13+).
+   *
+   * Any other value selects an engine the app registered natively with
+   * `SpeechRecognitionPlugin.registerEngine(name, factory)`; `start()` rejects unknown names.
+   *
+   * Defaults to `default`.
+   */
+  engine?: 'default' | 'onDevice' | 'auto' | (string & {});
+  /**
+   * Emits a `sessionMetrics` event with the latency breakdown of every utterance (Android only, inline recognition).
+   * Timings are always aggregated for {@link SpeechRecognitionPlugin.getMetrics}. Defaults to `false`.
+   */
+  sessionMetrics?: boolean;
+  /**
+   * Minimum number of characters of the native transcript kept by {@link SpeechRecognitionPlugin.getTranscript}
+   * (Android only). Older text is dropped in blocks once the window is exceeded; `0` keeps everything.
+   * Defaults to `1000000`.
+   */
+  transcriptRetention?: number;
+  /**
+   * Records every recognizer callback of the session, with its results and timing, to an NDJSON trace whose path is
+   * returned by {@link SpeechRecognitionPlugin.stop} (Android only, inline recognition). Audio is recorded by length
+   * only.
+   *
+   * The trace is complete once the session has ended. Native code can replay it with
+   * `SpeechRecognitionPlugin.registerTraceReplay` to reproduce timing issues without a recognizer. Defaults to
+   * `false`.
+   */
+  recordTrace?: boolean;
+  /**
+   * Adapts the session to the device's thermal status and battery saver (Android only, inline recognition).
+   *
+   * Under stress the session caps `partialResults` and `audioLevel` event rates, requests fewer hypotheses,
+   * lengthens `allowForSilence` and moves to the on-device recognizer when a model for the language is installed.
+   * Event rates change at once, and the other settings apply from the next utterance. Each change is reported
+   * through the `profileChanged` listener. Defaults to `false`.
+   */
+  adaptiveProfile?: boolean;
+  /**
+   * Milliseconds of audio from before the session started to recognize, up to `2000` (Android 13+, inline
+   * recognition with the built-in engines, not combined with `waitForSpeech`). Elsewhere the option is ignored with a
+   * warning in the native log and the session listens without it.
+   *
+   * The plugin keeps the microphone open in a small native ring buffer and feeds each utterance to the recognizer
+   * through `EXTRA_AUDIO_SOURCE`, starting this far in the past, so words spoken just before `start()` or a
+   * `continuous` restart are not clipped. Audio the previous utterance recognized up to its end of speech is not sent
+   * again. The microphone stays open between sessions until a session starts without `preRoll`, the app goes to the
+   * background or no session has run for 30 seconds; the first session after that has no audio from before its
+   * start. If the microphone fails during an utterance, that utterance restarts on the recognizer's own microphone
+   * and the session carries on without pre-roll. Defaults to `0`.
+   */
+  preRoll?: number;
+  /**
+   * Rewrites every hypothesis natively before it is reported, in `start()` results, `partialResults`,
+   * `segmentResults` and the native transcript (Android only, inline recognition).
+   *
+   * All rules are compiled once per session and applied in a single pass over each hypothesis, so the cost does not
+   * grow with the number of rules. Timing is reported by {@link SpeechRecognitionPlugin.getMetrics}.
+   */
+  postProcessing?: SpeechRecognitionPostProcessingOptions;
+  /**
+   * Waits until someone speaks before opening a recognizer session (Android only, inline recognition).
+   *
+   * A lightweight voice activity detector listens to the microphone and the recognizer starts once speech is
+   * detected, so a silent room costs no recognizer sessions. `listeningState` reports `waiting` meanwhile. In
+   * `continuous` mode, restarts after an utterance without speech wait again. The first syllable may be clipped while
+   * the recognizer starts. Defaults to `false`.
+   */
+  waitForSpeech?: boolean;
+  /**
+   * Milliseconds to wait for speech when `waitForSpeech` is enabled before giving up as if the recognizer had timed
+   * out. `0` waits until {@link SpeechRecognitionPlugin.stop}. Defaults to `0`.
+   */
+  waitForSpeechTimeout?: number;
+  /**
+   * How easily `waitForSpeech` treats sound as speech, from `0` (only loud speech) to `1` (anything above the
+   * background noise). Defaults to `0.5`.
+   */
+  speechSensitivity?: number;
   /**
    * Enables native punctuation handling where supported (iOS 16+).
    */
@@ -46,11 +260,37 @@ export interface SpeechRecognitionStartOptions {
   allowForSilence?: number;
 }
 
+/**
+ * Changed tail of one hypothesis when `partialResultsEncoding` is `delta`.
+ *
+ * Rebuild the hypothesis with `previous.slice(0, prefixLength) + text`, where `previous` is the hypothesis at the
+ * same index in the last reconstructed update (an empty string for a new index).
+ */
+export interface SpeechRecognitionPartialResultDelta {
+  /**
+   * Number of UTF-16 code units kept from the previous hypothesis at the same index.
+   */
+  prefixLength: number;
+  /**
+   * Text appended after the kept prefix.
+   */
+  text: string;
+}
+
 /**
  * Raised whenever a partial transcription is produced.
  */
 export interface SpeechRecognitionPartialResultEvent {
-  matches: string[];
+  /**
+   * Full list of hypotheses. Always present in `full` encoding; in `delta` encoding it is only sent with the final
+   * result of an utterance, which also resets the reconstructed hypotheses to empty strings.
+   */
+  matches?: string[];
+  /**
+   * Per-hypothesis changes, sent instead of `matches` when `partialResultsEncoding` is `delta`.
+   * The number of entries is the number of current hypotheses.
+   */
+  deltas?: SpeechRecognitionPartialResultDelta[];
 }
 
 /**
@@ -60,11 +300,282 @@ export interface SpeechRecognitionSegmentResultEvent {
   matches: string[];
 }
 
+/**
+ * Raised at a fixed rate with the aggregated input level while `audioLevel` is enabled (Android only).
+ *
+ * Values are the recognizer RMS levels in dB, typically between `-2` and `10`.
+ */
+export interface SpeechRecognitionAudioLevelEvent {
+  /**
+   * Highest level observed during the window.
+   */
+  peak: number;
+  /**
+   * Mean level over the window.
+   */
+  average: number;
+}
+
+/**
+ * Rules of the `postProcessing` start option. Patterns match whole words and phrases; where matches overlap, the
+ * leftmost and then longest one wins.
+ */
+export interface SpeechRecognitionPostProcessingOptions {
+  /**
+   * Phrases to replace, mapped to their replacement, e.g. `{ "cap go": "Capgo" }`.
+   */
+  replacements?: Record<string, string>;
+  /**
+   * Words or phrases replaced by `maskCharacter`, one per character.
+   */
+  mask?: string[];
+  /**
+   * Character used by `mask`. Defaults to `*`.
+   */
+  maskCharacter?: string;
+  /**
+   * Turns spelled-out English cardinal numbers into digits, e.g. "two thousand twenty four" into "2024".
+   * "hundred" multiplies any number from 1 to 99 ("twenty five hundred" is 2500), and "and" may follow a hundred or
+   * a scale word ("one hundred and five" is 105). `replacements` take precedence over number words. Defaults to
+   * `false`.
+   */
+  normalizeNumbers?: boolean;
+  /**
+   * Matches patterns case-sensitively. Defaults to `false`.
+   */
+  caseSensitive?: boolean;
+}
+
+/**
+ * Timing of one post-processing stage.
+ */
+export interface SpeechRecognitionPostProcessingStage {
+  /**
+   * Hypotheses rewritten.
+   */
+  hypotheses: number;
+  meanUs: number;
+  maxUs: number;
+}
+
+/**
+ * Raised with a frame of the recognizer audio while `audioChunks` is enabled (Android only).
+ */
+export interface SpeechRecognitionAudioChunkEvent {
+  /**
+   * Base64 encoded 16-bit little-endian mono PCM. The last frame of an utterance may be shorter than `audioChunkSize`.
+   */
+  data: string;
+  /**
+   * Position of the frame in the session. Gaps mark dropped frames.
+   */
+  sequence: number;
+  sampleRate: number;
+  /**
+   * Frames dropped since the session started because the listener was out of credits.
+   */
+  dropped: number;
+  /**
+   * Credits left after this frame. Frames stop when it reaches `0` until {@link SpeechRecognitionPlugin.ackAudioChunks}
+   * is called.
+   */
+  credits: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.ackAudioChunks}.
+ */
+export interface SpeechRecognitionAckAudioChunksOptions {
+  /**
+   * Number of frames processed since the last acknowledgement. Defaults to `1`.
+   */
+  count?: number;
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.ackAudioChunks}.
+ */
+export interface SpeechRecognitionAudioChunkCredits {
+  credits: number;
+  dropped: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.registerCommands}.
+ */
+export interface SpeechRecognitionRegisterCommandsOptions {
+  /**
+   * Command phrases, matched as whole words ignoring case and punctuation. An empty list clears the commands.
+   */
+  phrases: string[];
+  /**
+   * Ends the utterance as soon as a command matches on a partial result instead of waiting for the recognizer's final
+   * result. A `continuous` session then listens for the next utterance; otherwise {@link SpeechRecognitionPlugin.start}
+   * resolves with the matching transcript. Defaults to `false`.
+   */
+  cancelOnMatch?: boolean;
+}
+
+/**
+ * Raised when an `adaptiveProfile` session changes its power profile (Android only).
+ */
+export interface SpeechRecognitionProfileChangedEvent {
+  /**
+   * `normal` runs as requested, `reduced` applies under moderate thermal stress or battery saver, and `minimal`
+   * applies from severe thermal stress.
+   */
+  profile: 'normal' | 'reduced' | 'minimal';
+  previous: 'normal' | 'reduced' | 'minimal';
+  /**
+   * `PowerManager` thermal status, from `0` (none) to `6` (shutdown). Always `0` before Android 10.
+   */
+  thermalStatus: number;
+  powerSave: boolean;
+  /**
+   * Hypotheses requested from the next utterance on.
+   */
+  maxResults: number;
+  /**
+   * Segment silence in milliseconds from the next utterance on, `0` when the session is not segmented.
+   */
+  allowForSilence: number;
+  /**
+   * Engine used from the next utterance on.
+   */
+  engine: string;
+}
+
+/**
+ * Raised when a registered command is heard, at most once per utterance (Android only).
+ */
+export interface SpeechRecognitionCommandMatchedEvent {
+  /**
+   * The phrase as registered.
+   */
+  phrase: string;
+  /**
+   * Position of the phrase in {@link SpeechRecognitionRegisterCommandsOptions.phrases}.
+   */
+  index: number;
+  /**
+   * Recognizer hypothesis the phrase was found in, before `postProcessing`.
+   */
+  transcript: string;
+  /**
+   * Whether the match came from a final result rather than a partial one.
+   */
+  final: boolean;
+}
+
+/**
+ * Raised when a continuous session is listening again after an utterance ended (Android only).
+ */
+export interface SpeechRecognitionRestartEvent {
+  /**
+   * Number of restarts since the session started.
+   */
+  restartCount: number;
+  /**
+   * Milliseconds between the end of the previous utterance and the recognizer being ready again.
+   */
+  gapMs: number;
+  /**
+   * Why the previous utterance ended.
+   */
+  reason: 'result' | 'noMatch' | 'speechTimeout';
+}
+
+/**
+ * Raised while an on-device model requested with {@link SpeechRecognitionPlugin.downloadModel} downloads
+ * (Android 14+).
+ */
+export interface SpeechRecognitionModelDownloadProgressEvent {
+  language: string;
+  /**
+   * Completed percentage, from `0` to `100`.
+   */
+  progress: number;
+}
+
+/**
+ * Latency breakdown of one utterance, in milliseconds (Android only).
+ *
+ * Stages the utterance never reached are omitted, e.g. `startToFirstPartialMs` without `partialResults`.
+ */
+export interface SpeechRecognitionSessionMetricsEvent {
+  /**
+   * How the utterance ended.
+   */
+  outcome: 'result' | 'error' | 'stopped' | 'aborted';
+  /**
+   * From the `start()` call to the native session picking it up.
+   */
+  dispatchMs?: number;
+  /**
+   * Creating or reusing the recognizer and requesting it to listen.
+   */
+  recognizerSetupMs?: number;
+  /**
+   * From the `start()` call to the recognizer being ready for speech.
+   */
+  startToReadyMs?: number;
+  /**
+   * From the `start()` call to the user starting to speak.
+   */
+  startToSpeechMs?: number;
+  /**
+   * From the `start()` call to the first partial result.
+   */
+  startToFirstPartialMs?: number;
+  /**
+   * From the end of speech to the final result.
+   */
+  endOfSpeechToResultMs?: number;
+}
+
+/**
+ * Raised when a finished segment (`allowForSilence`) or a `continuous` final result is appended to the native
+ * transcript (Android only).
+ *
+ * Only the new text is sent; mirror the transcript by writing `text` at `offset`, or fetch ranges on demand with
+ * {@link SpeechRecognitionPlugin.getTranscript}.
+ */
+export interface SpeechRecognitionTranscriptAppendedEvent {
+  /**
+   * Transcript offset, in UTF-16 code units, at which `text` starts.
+   */
+  offset: number;
+  text: string;
+}
+
+/**
+ * Raised when a {@link SpeechRecognitionPlugin.transcribeFile} job changes state, and periodically while it runs
+ * (Android only).
+ */
+export interface SpeechRecognitionTranscriptionProgressEvent {
+  id: string;
+  /**
+   * `queued` is also reported when a live session preempts a running job, which then starts over.
+   */
+  state: 'queued' | 'running' | 'completed' | 'failed' | 'cancelled';
+  /**
+   * Milliseconds of audio handed to the recognizer so far.
+   */
+  processedMs: number;
+  /**
+   * Length of the file's audio in milliseconds, when its header states it.
+   */
+  durationMs?: number;
+}
+
 /**
  * Raised when the listening state changes.
  */
 export interface SpeechRecognitionListeningEvent {
-  status: 'started' | 'stopped';
+  /**
+   * `waiting` while `waitForSpeech` listens for someone to speak.
+   */
+  status: 'started' | 'stopped' | 'waiting';
 }
 
 export interface SpeechRecognitionAvailability {
@@ -75,12 +586,364 @@ export interface SpeechRecognitionMatches {
   matches?: string[];
 }
 
+/**
+ * Result of {@link SpeechRecognitionPlugin.stop}.
+ */
+export interface SpeechRecognitionStopResult {
+  /**
+   * Absolute path of the file written when the session was started with `recordAudio` (Android only).
+   */
+  audioFilePath?: string;
+  /**
+   * Absolute path of the trace written when the session was started with `recordTrace` (Android only).
+   */
+  traceFilePath?: string;
+  /**
+   * How a `flush` stop ended (Android only):
+   *
+   * - `result`: the final result arrived and is in `matches`.
+   * - `noMatch`: the recognizer heard nothing it could transcribe; `matches` is empty.
+   * - `error`: the recognizer failed; the error is also reported to the pending `start()` call.
+   * - `timeout`: no result arrived within `flushTimeout` and the session was cancelled.
+   * - `aborted`: a new `start()` replaced the session before it finished.
+   * - `idle`: no utterance was in flight.
+   */
+  outcome?: 'result' | 'noMatch' | 'error' | 'timeout' | 'aborted' | 'idle';
+  /**
+   * Final matches of the utterance that was stopped, with `flush`.
+   */
+  matches?: string[];
+  /**
+   * Milliseconds from the `stop()` call to the session ending, with `flush`.
+   */
+  stopMs?: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.stop}.
+ */
+export interface SpeechRecognitionStopOptions {
+  /**
+   * Waits for the recognizer to deliver the result of what it already heard and resolves with it, instead of
+   * resolving right away and dropping it (Android only). A `continuous` session does not restart afterwards.
+   * Defaults to `false`.
+   */
+  flush?: boolean;
+  /**
+   * Maximum milliseconds to wait for the final result with `flush` before cancelling the session.
+   * Defaults to `1500`.
+   */
+  flushTimeout?: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.getSupportedLanguages}.
+ */
+export interface SpeechRecognitionLanguagesOptions {
+  /**
+   * Ignores the cached result and queries the recognizer again (Android only). Defaults to `false`.
+   */
+  refresh?: boolean;
+}
+
 export interface SpeechRecognitionLanguages {
   languages: string[];
+  /**
+   * Languages whose on-device model is installed (Android 13+).
+   */
+  installedOnDeviceLanguages?: string[];
+  /**
+   * Languages whose on-device model is scheduled for download (Android 13+).
+   */
+  pendingOnDeviceLanguages?: string[];
+  /**
+   * `true` when the result was served from the persisted cache (Android only).
+   */
+  cached?: boolean;
 }
 
 export interface SpeechRecognitionListening {
   listening: boolean;
+  /**
+   * Current state of the native recognition session (Android only).
+   */
+  state?: 'idle' | 'starting' | 'listening' | 'stopping' | 'error';
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.prepare}.
+ */
+export interface SpeechRecognitionPrepareResult {
+  /**
+   * `true` once the recognizer is created and ready to start listening.
+   */
+  ready: boolean;
+  /**
+   * `true` when an already prepared recognizer was reused instead of creating a new one.
+   */
+  reused: boolean;
+  /**
+   * The `initStrategy` configured for the plugin.
+   */
+  initStrategy: 'lazy' | 'eager' | 'prewarm';
+  /**
+   * Milliseconds it took to create the current recognizer, including the service bind when prewarmed.
+   */
+  timeToReadyMs: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.getTranscript}.
+ */
+export interface SpeechRecognitionTranscriptOptions {
+  /**
+   * Start offset, inclusive. Defaults to the oldest retained character.
+   */
+  from?: number;
+  /**
+   * End offset, exclusive. Defaults to the end of the transcript.
+   */
+  to?: number;
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.getTranscript}.
+ */
+export interface SpeechRecognitionTranscript {
+  /**
+   * Text between `from` and `to`.
+   */
+  text: string;
+  /**
+   * Effective start offset after clamping to the retained range.
+   */
+  from: number;
+  /**
+   * Effective end offset after clamping to the retained range.
+   */
+  to: number;
+  /**
+   * Offset of the oldest character still retained.
+   */
+  startOffset: number;
+  /**
+   * Length of the whole transcript, including text no longer retained.
+   */
+  endOffset: number;
+  /**
+   * Number of segments appended.
+   */
+  segments: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.downloadModel}.
+ */
+export interface SpeechRecognitionDownloadModelOptions {
+  /**
+   * Language of the model to download, e.g. `en-US`. Defaults to the device locale.
+   */
+  language?: string;
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.downloadModel}.
+ */
+export interface SpeechRecognitionDownloadModelResult {
+  /**
+   * - `installed`: the model finished downloading (Android 14+).
+   * - `scheduled`: the download will run later, for example once the device is on Wi-Fi (Android 14+).
+   * - `requested`: the request was sent; Android 13 does not report its outcome.
+   */
+  status: 'installed' | 'scheduled' | 'requested';
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.transcribeFile}.
+ */
+export interface SpeechRecognitionTranscribeFileOptions {
+  /**
+   * Absolute path, `file://` URI or `content://` URI of a 16-bit PCM WAV file.
+   */
+  path: string;
+  /**
+   * Identifies the job in events and {@link SpeechRecognitionPlugin.cancelTranscription}. Defaults to a random
+   * UUID.
+   */
+  id?: string;
+  /**
+   * Locale identifier such as `en-US`. Defaults to the device language.
+   */
+  language?: string;
+  /**
+   * Jobs with a higher priority run first; jobs of equal priority run in submission order. Defaults to `0`.
+   */
+  priority?: number;
+  /**
+   * Recognizer used for the job, as in {@link SpeechRecognitionStartOptions.engine}. Custom engines are not
+   * supported. Defaults to `default`.
+   */
+  engine?: 'default' | 'onDevice' | 'auto';
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.transcribeFile}.
+ */
+export interface SpeechRecognitionTranscribeFileResult {
+  id: string;
+  /**
+   * Segments joined with spaces.
+   */
+  text: string;
+  /**
+   * Best hypothesis of each recognized segment, in order.
+   */
+  segments: string[];
+  /**
+   * Milliseconds of audio recognized.
+   */
+  durationMs: number;
+  /**
+   * Wall-clock milliseconds the job took once it started running.
+   */
+  elapsedMs: number;
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.cancelTranscription}.
+ */
+export interface SpeechRecognitionCancelTranscriptionOptions {
+  id: string;
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.getTranscriptionStats}.
+ *
+ * Counters cover every job finished since the plugin loaded.
+ */
+export interface SpeechRecognitionTranscriptionStats {
+  completed: number;
+  failed: number;
+  cancelled: number;
+  /**
+   * Jobs waiting to run.
+   */
+  queued: number;
+  /**
+   * Id of the job currently running, if any.
+   */
+  running?: string;
+  /**
+   * Seconds of audio processed by completed and failed jobs.
+   */
+  audioSeconds: number;
+  /**
+   * Wall-clock seconds those jobs ran for.
+   */
+  wallSeconds: number;
+  /**
+   * `audioSeconds / wallSeconds`: seconds of audio recognized per second of wall time.
+   */
+  throughput: number;
+}
+
+/**
+ * Aggregated latency of one stage across utterances, in milliseconds.
+ *
+ * Percentiles are the upper bound of the histogram bucket that holds them.
+ */
+export interface SpeechRecognitionLatencyHistogram {
+  count: number;
+  meanMs: number;
+  minMs: number;
+  maxMs: number;
+  p50Ms: number;
+  p95Ms: number;
+  /**
+   * Counts per bucket, matching `bucketBoundsMs` plus a final bucket for slower values.
+   */
+  buckets: number[];
+}
+
+/**
+ * Options for {@link SpeechRecognitionPlugin.getMetrics}.
+ */
+export interface SpeechRecognitionMetricsOptions {
+  /**
+   * Clears the latency histograms after reading them. Defaults to `false`.
+   */
+  reset?: boolean;
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.getMetrics}.
+ */
+export interface SpeechRecognitionMetrics {
+  /**
+   * Number of utterances aggregated.
+   */
+  utterances: number;
+  /**
+   * Inclusive upper bounds of the histogram buckets.
+   */
+  bucketBoundsMs: number[];
+  latency: {
+    dispatch: SpeechRecognitionLatencyHistogram;
+    recognizerSetup: SpeechRecognitionLatencyHistogram;
+    startToReady: SpeechRecognitionLatencyHistogram;
+    startToSpeech: SpeechRecognitionLatencyHistogram;
+    startToFirstPartial: SpeechRecognitionLatencyHistogram;
+    endOfSpeechToResult: SpeechRecognitionLatencyHistogram;
+  };
+  recovery: SpeechRecognitionRecoveryStats;
+  /**
+   * Post-processing timing of the current or last session, when it was started with `postProcessing` (Android
+   * only). It is kept after the session ends, including on error, until a new session starts.
+   * Partial results are rewritten when they are dispatched, final results when they arrive.
+   */
+  postProcessing?: {
+    patterns: number;
+    stages: {
+      partial: SpeechRecognitionPostProcessingStage;
+      final: SpeechRecognitionPostProcessingStage;
+    };
+  };
+}
+
+/**
+ * Result of {@link SpeechRecognitionPlugin.getRecoveryStats}.
+ *
+ * Counts are per recovery action taken after a recognizer error since the plugin loaded.
+ */
+export interface SpeechRecognitionRecoveryStats {
+  /**
+   * Errors that left the recognizer untouched (no match, no speech input).
+   */
+  keep: number;
+  /**
+   * Errors after which the request was cancelled and the recognizer reused (network, server, busy, audio).
+   */
+  cancelAndReuse: number;
+  /**
+   * Errors after which the recognizer was destroyed and recreated (client error, server disconnected, unknown).
+   */
+  destroyAndRecreate: number;
+  /**
+   * Number of replacement recognizers that became usable again.
+   */
+  recreations: number;
+  /**
+   * Milliseconds the last replacement recognizer took to become usable.
+   */
+  lastRecreateMs: number;
+  /**
+   * Mean of the recreation times in milliseconds.
+   */
+  averageRecreateMs: number;
+  /**
+   * Longest recreation time in milliseconds.
+   */
+  maxRecreateMs: number;
 }
 
 export interface SpeechRecognitionPlugin {
@@ -88,23 +951,80 @@ export interface SpeechRecognitionPlugin {
    * Checks whether the native speech recognition service is usable on the current device.
    */
   available(): Promise<SpeechRecognitionAvailability>;
+  /**
+   * Creates the native recognizer ahead of the first {@link start} call so it is not paid on the first utterance.
+   *
+   * Resolves immediately when a recognizer is already prepared. Android only.
+   */
+  prepare(): Promise<SpeechRecognitionPrepareResult>;
   /**
    * Begins capturing audio and transcribing speech.
    *
-   * When `partialResults` is `true`, the returned promise resolves immediately and updates are
+   * When `partialResults` or `continuous` is `true`, the returned promise resolves immediately and updates are
    * streamed through the `partialResults` listener until {@link stop} is called.
    */
   start(options?: SpeechRecognitionStartOptions): Promise<SpeechRecognitionMatches>;
   /**
    * Stops listening and tears down native resources.
+   *
+   * When the session recorded audio, resolves once the file is finalized with its path. With `flush`, resolves
+   * once the final result of the current utterance arrived, with its matches and how long stopping took.
    */
-  stop(): Promise<void>;
+  stop(options?: SpeechRecognitionStopOptions): Promise<SpeechRecognitionStopResult>;
   /**
    * Gets the locales supported by the underlying recognizer.
    *
-   * Android 13+ devices no longer expose this list; in that case `languages` is empty.
+   * On Android the result is cached on disk for `languageCacheTtl` and concurrent calls share a single lookup.
+   * Android 13+ devices report the languages through the recognition service, including on-device models.
    */
-  getSupportedLanguages(): Promise<SpeechRecognitionLanguages>;
+  getSupportedLanguages(options?: SpeechRecognitionLanguagesOptions): Promise<SpeechRecognitionLanguages>;
+  /**
+   * Downloads the on-device recognition model for a language so `engine: 'onDevice'` can use it.
+   *
+   * Android 13+ only. Progress is reported through the `modelDownloadProgress` listener on Android 14+.
+   */
+  downloadModel(options?: SpeechRecognitionDownloadModelOptions): Promise<SpeechRecognitionDownloadModelResult>;
+  /**
+   * Reads the native transcript assembled from the segments of the current or last session. Android only.
+   *
+   * The transcript is cleared when a new session starts.
+   */
+  getTranscript(options?: SpeechRecognitionTranscriptOptions): Promise<SpeechRecognitionTranscript>;
+  /**
+   * Returns latency histograms for every recognition stage since the plugin loaded, plus the recovery counters.
+   * Android only.
+   */
+  getMetrics(options?: SpeechRecognitionMetricsOptions): Promise<SpeechRecognitionMetrics>;
+  /**
+   * Returns how recognizer errors were recovered and how long recreating the recognizer took. Android only.
+   */
+  getRecoveryStats(): Promise<SpeechRecognitionRecoveryStats>;
+  /**
+   * Transcribes a recorded audio file instead of the microphone. Android 13+ only.
+   *
+   * Jobs wait in a native queue and run one at a time on the plugin's recognizer, only while no live session is
+   * open; {@link start} preempts a running job, which starts over once the session ends. Resolves when the job
+   * completes and rejects when it fails or is cancelled. Progress is reported through the `transcriptionProgress`
+   * listener.
+   */
+  transcribeFile(options: SpeechRecognitionTranscribeFileOptions): Promise<SpeechRecognitionTranscribeFileResult>;
+  /**
+   * Cancels a queued or running {@link transcribeFile} job. Android only.
+   */
+  cancelTranscription(options: SpeechRecognitionCancelTranscriptionOptions): Promise<{ cancelled: boolean }>;
+  /**
+   * Returns file transcription counters and throughput. Android only.
+   */
+  getTranscriptionStats(): Promise<SpeechRecognitionTranscriptionStats>;
+  /**
+   * Returns credits for processed `audioChunk` frames so more can be sent. Android only.
+   */
+  ackAudioChunks(options?: SpeechRecognitionAckAudioChunksOptions): Promise<SpeechRecognitionAudioChunkCredits>;
+  /**
+   * Registers command phrases matched against recognizer results, firing `commandMatched` from partial results as
+   * soon as a phrase cannot be extended by a longer one. Replaces previously registered commands. Android only.
+   */
+  registerCommands(options: SpeechRecognitionRegisterCommandsOptions): Promise<{ count: number }>;
   /**
    * Returns whether the plugin is actively listening for speech.
    */
@@ -148,6 +1068,69 @@ export interface SpeechRecognitionPlugin {
     eventName: 'listeningState',
     listenerFunc: (event: SpeechRecognitionListeningEvent) => void,
   ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for input level updates emitted while `audioLevel` is enabled (Android only).
+   */
+  addListener(
+    eventName: 'audioLevel',
+    listenerFunc: (event: SpeechRecognitionAudioLevelEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for PCM frames emitted while `audioChunks` is enabled (Android only).
+   */
+  addListener(
+    eventName: 'audioChunk',
+    listenerFunc: (event: SpeechRecognitionAudioChunkEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for restarts of a `continuous` session (Android only).
+   */
+  addListener(
+    eventName: 'recognitionRestarted',
+    listenerFunc: (event: SpeechRecognitionRestartEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for on-device model download progress (Android 14+).
+   */
+  addListener(
+    eventName: 'modelDownloadProgress',
+    listenerFunc: (event: SpeechRecognitionModelDownloadProgressEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for the latency breakdown of each utterance while `sessionMetrics` is enabled (Android only).
+   */
+  addListener(
+    eventName: 'sessionMetrics',
+    listenerFunc: (event: SpeechRecognitionSessionMetricsEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for text appended to the native transcript (Android only).
+   */
+  addListener(
+    eventName: 'transcriptAppended',
+    listenerFunc: (event: SpeechRecognitionTranscriptAppendedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for registered commands heard while listening (Android only).
+   */
+  addListener(
+    eventName: 'commandMatched',
+    listenerFunc: (event: SpeechRecognitionCommandMatchedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for power profile changes of `adaptiveProfile` sessions (Android only).
+   */
+  addListener(
+    eventName: 'profileChanged',
+    listenerFunc: (event: SpeechRecognitionProfileChangedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Listen for file transcription job updates (Android only).
+   */
+  addListener(
+    eventName: 'transcriptionProgress',
+    listenerFunc: (event: SpeechRecognitionTranscriptionProgressEvent) => void,
+  ): Promise<PluginListenerHandle>;
   /**
    * Removes every registered listener.
    */
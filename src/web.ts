@@ -1,13 +1,31 @@
 import { WebPlugin } from '@capacitor/core';
 
 import type {
+  SpeechRecognitionAckAudioChunksOptions,
+  SpeechRecognitionAudioChunkCredits,
   SpeechRecognitionAvailability,
+  SpeechRecognitionCancelTranscriptionOptions,
+  SpeechRecognitionDownloadModelOptions,
+  SpeechRecognitionDownloadModelResult,
   SpeechRecognitionLanguages,
+  SpeechRecognitionLanguagesOptions,
   SpeechRecognitionListening,
+  SpeechRecognitionMetrics,
+  SpeechRecognitionMetricsOptions,
   SpeechRecognitionMatches,
   SpeechRecognitionPermissionStatus,
   SpeechRecognitionPlugin,
+  SpeechRecognitionPrepareResult,
+  SpeechRecognitionRecoveryStats,
+  SpeechRecognitionRegisterCommandsOptions,
   SpeechRecognitionStartOptions,
+  SpeechRecognitionStopOptions,
+  SpeechRecognitionStopResult,
+  SpeechRecognitionTranscribeFileOptions,
+  SpeechRecognitionTranscribeFileResult,
+  SpeechRecognitionTranscript,
+  SpeechRecognitionTranscriptOptions,
+  SpeechRecognitionTranscriptionStats,
 } from './definitions';
 
 export class SpeechRecognitionWeb extends WebPlugin implements SpeechRecognitionPlugin {
@@ -15,15 +33,55 @@ export class SpeechRecognitionWeb extends WebPlugin implements SpeechRecognition
     throw this.unimplemented('Speech recognition is not available on the web.');
   }
 
+  prepare(): Promise<SpeechRecognitionPrepareResult> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
   start(_options?: SpeechRecognitionStartOptions): Promise<SpeechRecognitionMatches> {
     throw this.unimplemented('Speech recognition is not available on the web.');
   }
 
-  stop(): Promise<void> {
+  stop(_options?: SpeechRecognitionStopOptions): Promise<SpeechRecognitionStopResult> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  getSupportedLanguages(_options?: SpeechRecognitionLanguagesOptions): Promise<SpeechRecognitionLanguages> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  downloadModel(_options?: SpeechRecognitionDownloadModelOptions): Promise<SpeechRecognitionDownloadModelResult> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  getTranscript(_options?: SpeechRecognitionTranscriptOptions): Promise<SpeechRecognitionTranscript> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  getMetrics(_options?: SpeechRecognitionMetricsOptions): Promise<SpeechRecognitionMetrics> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  getRecoveryStats(): Promise<SpeechRecognitionRecoveryStats> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  transcribeFile(_options: SpeechRecognitionTranscribeFileOptions): Promise<SpeechRecognitionTranscribeFileResult> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  cancelTranscription(_options: SpeechRecognitionCancelTranscriptionOptions): Promise<{ cancelled: boolean }> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  getTranscriptionStats(): Promise<SpeechRecognitionTranscriptionStats> {
+    throw this.unimplemented('Speech recognition is not available on the web.');
+  }
+
+  ackAudioChunks(_options?: SpeechRecognitionAckAudioChunksOptions): Promise<SpeechRecognitionAudioChunkCredits> {
     throw this.unimplemented('Speech recognition is not available on the web.');
   }
 
-  getSupportedLanguages(): Promise<SpeechRecognitionLanguages> {
+  registerCommands(_options: SpeechRecognitionRegisterCommandsOptions): Promise<{ count: number }> {
     throw this.unimplemented('Speech recognition is not available on the web.');
   }
 